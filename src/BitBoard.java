@@ -0,0 +1,468 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of cells on a square board, stored one bit per cell in packed long
+ * words. Bulk operations work a whole word (64 cells) at a time, so flood
+ * fills and region counts do not need to visit cells individually.
+ *
+ * Abstraction function:
+ * Cell (x,y) is a member of the set iff bit (x + y*dimension) is set, where
+ * bit i lives in words[i / 64] at position i % 64.
+ *
+ * Invariant:
+ * Bits at indices >= dimension*dimension are always clear.
+ *
+ */
+public class BitBoard {
+
+    private static final int WORD_BITS = 64;
+    private static final int WORD_SHIFT = 6;
+
+    /* Column masks shared between all BitBoards of the same dimension. */
+    private static final Map<Integer, long[][]> COLUMN_MASKS =
+            new ConcurrentHashMap<Integer, long[][]>();
+
+    private final int dimension;
+    private final int cellCount;
+    private final long[] words;
+
+    /**
+     * Create an empty BitBoard covering a dimension by dimension board.
+     *
+     * @requires dimension is greater than 0 and dimension*dimension fits in
+     *           an int.
+     * @param dimension The dimension of the board along one edge.
+     * @throws InvalidStateException (unchecked) if dimension is out of range.
+     */
+    public BitBoard(final int dimension) {
+        if (dimension <= 0 || (long) dimension * dimension > Integer.MAX_VALUE) {
+            throw new InvalidStateException(
+                    "Cannot create bit board with given dimension.");
+        }
+        this.dimension = dimension;
+        this.cellCount = dimension * dimension;
+        this.words = new long[(cellCount + WORD_BITS - 1) >>> WORD_SHIFT];
+    }
+
+    /**
+     * Create a copy of a BitBoard.
+     *
+     * @return A BitBoard of the same dimension containing the same cells.
+     */
+    @Override
+    public BitBoard clone() {
+        BitBoard copy = new BitBoard(this.dimension);
+        System.arraycopy(this.words, 0, copy.words, 0, this.words.length);
+        return copy;
+    }
+
+    /**
+     * Get the dimension of the board this set covers.
+     *
+     * @return Dimension of the board.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Get the number of cells this set covers.
+     *
+     * @return dimension*dimension.
+     */
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    /**
+     * Get the index of the cell at the given coordinates.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @return x + y*dimension.
+     */
+    public int getIndex(final int x, final int y) {
+        return x + y * dimension;
+    }
+
+    /**
+     * Check whether a cell is in the set.
+     *
+     * @requires index in [0, dimension*dimension - 1].
+     * @param index The index of the cell.
+     * @return true if the cell is in the set. false otherwise.
+     */
+    public boolean get(final int index) {
+        return (words[index >>> WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    /**
+     * Check whether a cell is in the set.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @return true if the cell is in the set. false otherwise.
+     */
+    public boolean get(final int x, final int y) {
+        return get(x + y * dimension);
+    }
+
+    /**
+     * Add a cell to the set.
+     *
+     * @requires index in [0, dimension*dimension - 1].
+     * @param index The index of the cell.
+     * @modifies this
+     */
+    public void set(final int index) {
+        words[index >>> WORD_SHIFT] |= (1L << index);
+    }
+
+    /**
+     * Remove a cell from the set.
+     *
+     * @requires index in [0, dimension*dimension - 1].
+     * @param index The index of the cell.
+     * @modifies this
+     */
+    public void clear(final int index) {
+        words[index >>> WORD_SHIFT] &= ~(1L << index);
+    }
+
+    /**
+     * Add every cell of the board to the set.
+     *
+     * @modifies this
+     */
+    public void setAll() {
+        Arrays.fill(words, -1L);
+        trimTail();
+    }
+
+    /**
+     * Remove every cell from the set.
+     *
+     * @modifies this
+     */
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Replace the contents of this set with the contents of another.
+     *
+     * @requires that has the same dimension as this.
+     * @param that The set to copy from.
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if the dimensions differ.
+     */
+    public void copyFrom(final BitBoard that) {
+        checkDimension(that);
+        System.arraycopy(that.words, 0, this.words, 0, words.length);
+    }
+
+    /**
+     * Intersect this set with another.
+     *
+     * @requires that has the same dimension as this.
+     * @param that The set to intersect with.
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if the dimensions differ.
+     */
+    public void and(final BitBoard that) {
+        checkDimension(that);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= that.words[i];
+        }
+    }
+
+    /**
+     * Add all cells of another set to this set.
+     *
+     * @requires that has the same dimension as this.
+     * @param that The set to merge in.
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if the dimensions differ.
+     */
+    public void or(final BitBoard that) {
+        checkDimension(that);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= that.words[i];
+        }
+    }
+
+    /**
+     * Remove all cells of another set from this set.
+     *
+     * @requires that has the same dimension as this.
+     * @param that The set of cells to remove.
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if the dimensions differ.
+     */
+    public void andNot(final BitBoard that) {
+        checkDimension(that);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~that.words[i];
+        }
+    }
+
+    /**
+     * Replace this set with its complement over the board.
+     *
+     * @modifies this
+     */
+    public void not() {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ~words[i];
+        }
+        trimTail();
+    }
+
+    /**
+     * Move every cell in the set one step in a direction. Cells that would
+     * leave the board are dropped.
+     *
+     * @param direction The direction to shift the set.
+     * @modifies this
+     * @result (x,y) is in this iff (x,y) - direction was in this.
+     */
+    public void shift(final Direction direction) {
+        switch (direction) {
+        case NORTH:
+            shiftUp(dimension);
+            break;
+        case SOUTH:
+            shiftDown(dimension);
+            break;
+        case EAST:
+            andNotWords(getColumnMasks()[1]);
+            shiftUp(1);
+            break;
+        case WEST:
+            andNotWords(getColumnMasks()[0]);
+            shiftDown(1);
+            break;
+        default:
+            break;
+        }
+        trimTail();
+    }
+
+    /**
+     * Count the cells in the set.
+     *
+     * @return The number of cells in the set.
+     */
+    public int popCount() {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Count the cells in the intersection of this set and another, without
+     * modifying either.
+     *
+     * @requires that has the same dimension as this.
+     * @param that The set to intersect with.
+     * @return The number of cells in both sets.
+     * @throws InvalidStateException (unchecked) if the dimensions differ.
+     */
+    public int popCountAnd(final BitBoard that) {
+        checkDimension(that);
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] & that.words[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Check if the set is empty.
+     *
+     * @return true if no cell is in the set. false otherwise.
+     */
+    public boolean isEmpty() {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the next cell in the set at or after a given index.
+     *
+     * @param from The index to start searching from.
+     * @return The smallest index >= from in the set, or -1 if there is none.
+     */
+    public int nextSetBit(final int from) {
+        if (from < 0 || from >= cellCount) {
+            return -1;
+        }
+        int wordIndex = from >>> WORD_SHIFT;
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    /**
+     * Get the number of words backing this set.
+     *
+     * @return The number of long words.
+     */
+    public int getWordCount() {
+        return words.length;
+    }
+
+    /**
+     * Get one word of the set. Bit b of word w represents cell 64*w + b.
+     *
+     * @requires index in [0, getWordCount() - 1].
+     * @param index The index of the word.
+     * @return The word at the given index.
+     */
+    public long getWord(final int index) {
+        return words[index];
+    }
+
+    /**
+     * Replace one word of the set, for kernels that compute whole words.
+     *
+     * @requires index in [0, getWordCount() - 1].
+     * @param index The index of the word.
+     * @param word The new word; bits beyond the last cell are dropped.
+     * @modifies this
+     */
+    void setWord(final int index, final long word) {
+        words[index] = word;
+        if (index == words.length - 1) {
+            trimTail();
+        }
+    }
+
+    /**
+     * Determine if two sets are equal.
+     *
+     * @param that The object to compare against this.
+     * @return true if that is a BitBoard of the same dimension containing the
+     *         same cells. false otherwise.
+     */
+    @Override
+    public boolean equals(Object that) {
+        if (!(that instanceof BitBoard)) {
+            return false;
+        }
+        BitBoard bitBoard = (BitBoard) that;
+        return (this.dimension == bitBoard.dimension)
+                && Arrays.equals(this.words, bitBoard.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * dimension + Arrays.hashCode(words);
+    }
+
+    /**
+     * Shift all bits towards higher indices.
+     *
+     * @param bits The number of bit positions to shift by.
+     * @modifies words
+     */
+    private void shiftUp(final int bits) {
+        final int wordShift = bits >>> WORD_SHIFT;
+        final int bitShift = bits & (WORD_BITS - 1);
+        for (int i = words.length - 1; i >= 0; i--) {
+            int source = i - wordShift;
+            long word = 0;
+            if (source >= 0) {
+                word = words[source] << bitShift;
+                if (bitShift != 0 && source > 0) {
+                    word |= words[source - 1] >>> (WORD_BITS - bitShift);
+                }
+            }
+            words[i] = word;
+        }
+    }
+
+    /**
+     * Shift all bits towards lower indices.
+     *
+     * @param bits The number of bit positions to shift by.
+     * @modifies words
+     */
+    private void shiftDown(final int bits) {
+        final int wordShift = bits >>> WORD_SHIFT;
+        final int bitShift = bits & (WORD_BITS - 1);
+        for (int i = 0; i < words.length; i++) {
+            int source = i + wordShift;
+            long word = 0;
+            if (source < words.length) {
+                word = words[source] >>> bitShift;
+                if (bitShift != 0 && source + 1 < words.length) {
+                    word |= words[source + 1] << (WORD_BITS - bitShift);
+                }
+            }
+            words[i] = word;
+        }
+    }
+
+    private void andNotWords(final long[] mask) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~mask[i];
+        }
+    }
+
+    /**
+     * Clear the unused bits of the last word.
+     *
+     * @modifies words
+     */
+    private void trimTail() {
+        final int used = cellCount & (WORD_BITS - 1);
+        if (used != 0) {
+            words[words.length - 1] &= (1L << used) - 1;
+        }
+    }
+
+    private void checkDimension(final BitBoard that) {
+        if (this.dimension != that.dimension) {
+            throw new InvalidStateException("Bit board dimensions differ.");
+        }
+    }
+
+    /**
+     * Get the masks of the west-most and east-most columns for this
+     * dimension, computing them on first use.
+     *
+     * @return {westColumn, eastColumn} as word arrays.
+     */
+    private long[][] getColumnMasks() {
+        long[][] masks = COLUMN_MASKS.get(dimension);
+        if (masks == null) {
+            masks = new long[2][words.length];
+            for (int y = 0; y < dimension; y++) {
+                int west = y * dimension;
+                int east = west + dimension - 1;
+                masks[0][west >>> WORD_SHIFT] |= 1L << west;
+                masks[1][east >>> WORD_SHIFT] |= 1L << east;
+            }
+            COLUMN_MASKS.put(dimension, masks);
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BitBoardTest {
+
+    @Test
+    public void construct() {
+        BitBoard testBoard = new BitBoard(7);
+        assertEquals(49, testBoard.getCellCount());
+        assertTrue(testBoard.isEmpty());
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void constructInvalidDimension() {
+        BitBoard testBoard = new BitBoard(0);
+    }
+
+    @Test
+    public void testSetAndClear() {
+        BitBoard testBoard = new BitBoard(9);
+        testBoard.set(testBoard.getIndex(8, 7));
+        assertTrue(testBoard.get(8, 7));
+        assertFalse(testBoard.get(7, 8));
+        assertEquals(1, testBoard.popCount());
+
+        testBoard.clear(testBoard.getIndex(8, 7));
+        assertTrue(testBoard.isEmpty());
+    }
+
+    @Test
+    public void testSetAllRespectsBoardSize() {
+        BitBoard testBoard = new BitBoard(9);
+        testBoard.setAll();
+        assertEquals(81, testBoard.popCount());
+
+        testBoard.not();
+        assertTrue(testBoard.isEmpty());
+    }
+
+    @Test
+    public void testShiftDropsEdges() {
+        BitBoard testBoard = new BitBoard(9);
+        testBoard.set(testBoard.getIndex(8, 0));
+        testBoard.set(testBoard.getIndex(0, 8));
+
+        BitBoard east = testBoard.clone();
+        east.shift(Direction.EAST);
+        assertEquals(1, east.popCount());
+        assertTrue(east.get(1, 8));
+
+        BitBoard west = testBoard.clone();
+        west.shift(Direction.WEST);
+        assertEquals(1, west.popCount());
+        assertTrue(west.get(7, 0));
+
+        BitBoard north = testBoard.clone();
+        north.shift(Direction.NORTH);
+        assertEquals(1, north.popCount());
+        assertTrue(north.get(8, 1));
+
+        BitBoard south = testBoard.clone();
+        south.shift(Direction.SOUTH);
+        assertEquals(1, south.popCount());
+        assertTrue(south.get(0, 7));
+    }
+
+    @Test
+    public void testShiftAcrossWords() {
+        BitBoard testBoard = new BitBoard(20);
+        testBoard.set(testBoard.getIndex(5, 3));
+        testBoard.shift(Direction.NORTH);
+        testBoard.shift(Direction.NORTH);
+        testBoard.shift(Direction.NORTH);
+        testBoard.shift(Direction.NORTH);
+        assertTrue(testBoard.get(5, 7));
+        assertEquals(testBoard.getIndex(5, 7), testBoard.nextSetBit(0));
+    }
+
+    @Test
+    public void testBulkOperations() {
+        BitBoard a = new BitBoard(8);
+        BitBoard b = new BitBoard(8);
+        for (int i = 0; i < 64; i += 2) {
+            a.set(i);
+        }
+        for (int i = 0; i < 64; i += 3) {
+            b.set(i);
+        }
+        assertEquals(11, a.popCountAnd(b));
+
+        BitBoard union = a.clone();
+        union.or(b);
+        assertEquals(32 + 22 - 11, union.popCount());
+
+        BitBoard difference = a.clone();
+        difference.andNot(b);
+        assertEquals(32 - 11, difference.popCount());
+
+        a.and(b);
+        assertEquals(11, a.popCount());
+    }
+
+}
@@ -0,0 +1,295 @@
+import java.util.Arrays;
+
+/**
+ * Word-parallel flood fill, region counting and Voronoi kernels over
+ * BitBoards of a square grid without wrap-around.
+ *
+ * Every kernel is built from one step: the cells next to a set, found by
+ * shifting its words one row up and down and one column east and west,
+ * masked by the cells that may be entered. Each step handles 64 cells per
+ * word operation. The sets are copied into arrays padded with empty words
+ * on both sides, so the inner loop reads its row neighbours without bounds
+ * checks and the JIT is free to vectorise it.
+ *
+ * A BitKernels holds scratch space for one dimension and is not thread
+ * safe; give each thread its own.
+ */
+public final class BitKernels {
+
+    private static final int WORD_BITS = 64;
+    private static final int WORD_SHIFT = 6;
+
+    private final int dimension;
+    private final int wordCount;
+    /* Words of padding before and after each padded array. */
+    private final int pad;
+    /* Padded masks of the cells that keep a neighbour to the west / east. */
+    private final long[] notWest;
+    private final long[] notEast;
+
+    /* Padded scratch sets. */
+    private final long[] free;
+    private final long[] visited;
+    private final long[] frontier;
+    private final long[] next;
+    private final long[] otherFrontier;
+    private final long[] otherNext;
+
+    private int firstTerritory;
+    private int secondTerritory;
+
+    /**
+     * Create kernels for one board dimension.
+     *
+     * @requires dimension is greater than 0 and dimension*dimension fits in
+     *           an int.
+     * @param dimension The dimension of the boards to work on.
+     */
+    public BitKernels(final int dimension) {
+        this.dimension = dimension;
+        this.wordCount = new BitBoard(dimension).getWordCount();
+        this.pad = (dimension >>> WORD_SHIFT) + 2;
+        final int length = wordCount + 2 * pad;
+        this.notWest = new long[length];
+        this.notEast = new long[length];
+        for (int cell = 0; cell < dimension * dimension; cell++) {
+            final int x = cell % dimension;
+            if (x > 0) {
+                notWest[pad + (cell >>> WORD_SHIFT)] |= 1L << cell;
+            }
+            if (x < dimension - 1) {
+                notEast[pad + (cell >>> WORD_SHIFT)] |= 1L << cell;
+            }
+        }
+        this.free = new long[length];
+        this.visited = new long[length];
+        this.frontier = new long[length];
+        this.next = new long[length];
+        this.otherFrontier = new long[length];
+        this.otherNext = new long[length];
+    }
+
+    /**
+     * Get the dimension these kernels work on.
+     *
+     * @return The board dimension.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Grow a set through the cells that may be entered until it stops
+     * growing.
+     *
+     * @requires seeds and open have this dimension.
+     * @param seeds The cells to start from; they need not be open.
+     * @param open The cells that may be entered.
+     * @modifies seeds
+     * @effects seeds holds the original seeds and every open cell reachable
+     *          from them through open cells.
+     * @return The number of open cells added.
+     */
+    public int floodFill(final BitBoard seeds, final BitBoard open) {
+        load(open, free);
+        load(seeds, visited);
+        System.arraycopy(visited, 0, frontier, 0, visited.length);
+        int added = 0;
+        long[] current = frontier;
+        long[] grown = next;
+        while (true) {
+            final int count = spread(current, visited, grown);
+            if (count == 0) {
+                break;
+            }
+            added += count;
+            final long[] swap = current;
+            current = grown;
+            grown = swap;
+        }
+        store(visited, seeds);
+        return added;
+    }
+
+    /**
+     * Count the connected regions of a set.
+     *
+     * @requires open has this dimension.
+     * @param open The cells to partition into regions.
+     * @return The number of regions.
+     */
+    public int countRegions(final BitBoard open) {
+        load(open, free);
+        Arrays.fill(visited, 0);
+        int regions = 0;
+        int word = pad;
+        while (true) {
+            while (word < pad + wordCount
+                    && (free[word] & ~visited[word]) == 0) {
+                word++;
+            }
+            if (word == pad + wordCount) {
+                return regions;
+            }
+            final long lowest = Long.lowestOneBit(free[word] & ~visited[word]);
+            Arrays.fill(frontier, 0);
+            frontier[word] = lowest;
+            visited[word] |= lowest;
+            long[] current = frontier;
+            long[] grown = next;
+            while (spread(current, visited, grown) != 0) {
+                final long[] swap = current;
+                current = grown;
+                grown = swap;
+            }
+            regions++;
+        }
+    }
+
+    /**
+     * Split the open cells between two players by simultaneous
+     * breadth-first search: a cell belongs to the player strictly closer to
+     * it, and cells at equal distance belong to neither.
+     *
+     * @requires Both cells in [0, dimension*dimension - 1], open has this
+     *           dimension.
+     * @param firstCell The cell of the first player.
+     * @param secondCell The cell of the second player.
+     * @param open The cells the players may enter.
+     * @return getFirstTerritory() - getSecondTerritory() after the call.
+     */
+    public int voronoi(final int firstCell, final int secondCell,
+            final BitBoard open) {
+        load(open, free);
+        Arrays.fill(visited, 0);
+        Arrays.fill(frontier, 0);
+        Arrays.fill(otherFrontier, 0);
+        setBit(visited, firstCell);
+        setBit(visited, secondCell);
+        setBit(frontier, firstCell);
+        setBit(otherFrontier, secondCell);
+        firstTerritory = 0;
+        secondTerritory = 0;
+
+        long[] first = frontier;
+        long[] firstGrown = next;
+        long[] second = otherFrontier;
+        long[] secondGrown = otherNext;
+        while (true) {
+            /* Both frontiers advance against the cells visited before this
+             * round, so a cell reached by both in the same round is shared. */
+            final int firstCount = neighbours(first, visited, firstGrown);
+            final int secondCount = neighbours(second, visited, secondGrown);
+            if (firstCount == 0 && secondCount == 0) {
+                break;
+            }
+            int shared = 0;
+            for (int i = pad; i < pad + wordCount; i++) {
+                shared += Long.bitCount(firstGrown[i] & secondGrown[i]);
+                visited[i] |= firstGrown[i] | secondGrown[i];
+            }
+            firstTerritory += firstCount - shared;
+            secondTerritory += secondCount - shared;
+            long[] swap = first;
+            first = firstGrown;
+            firstGrown = swap;
+            swap = second;
+            second = secondGrown;
+            secondGrown = swap;
+        }
+        return firstTerritory - secondTerritory;
+    }
+
+    /**
+     * @return The number of cells the first player reached first in the
+     *         last call to voronoi.
+     */
+    public int getFirstTerritory() {
+        return this.firstTerritory;
+    }
+
+    /**
+     * @return The number of cells the second player reached first in the
+     *         last call to voronoi.
+     */
+    public int getSecondTerritory() {
+        return this.secondTerritory;
+    }
+
+    /**
+     * Advance a frontier one step into open cells not yet visited, and
+     * mark the new cells visited.
+     *
+     * @return The number of new cells.
+     */
+    private int spread(final long[] from, final long[] seen, final long[] to) {
+        final int count = neighbours(from, seen, to);
+        for (int i = pad; i < pad + wordCount; i++) {
+            seen[i] |= to[i];
+        }
+        return count;
+    }
+
+    /**
+     * The kernel: to = (cells next to from) & free & ~seen.
+     *
+     * @return The number of cells in to.
+     */
+    private int neighbours(final long[] from, final long[] seen,
+            final long[] to) {
+        final int rowWords = dimension >>> WORD_SHIFT;
+        final int rowBits = dimension & (WORD_BITS - 1);
+        final int end = pad + wordCount;
+        int count = 0;
+        if (rowBits == 0) {
+            for (int i = pad; i < end; i++) {
+                final long north = from[i - rowWords];
+                final long south = from[i + rowWords];
+                final long east = ((from[i] & notEast[i]) << 1)
+                        | ((from[i - 1] & notEast[i - 1]) >>> 63);
+                final long west = ((from[i] & notWest[i]) >>> 1)
+                        | ((from[i + 1] & notWest[i + 1]) << 63);
+                final long word = (north | south | east | west) & free[i]
+                        & ~seen[i];
+                to[i] = word;
+                count += Long.bitCount(word);
+            }
+        } else {
+            final int back = WORD_BITS - rowBits;
+            for (int i = pad; i < end; i++) {
+                final long north = (from[i - rowWords] << rowBits)
+                        | (from[i - rowWords - 1] >>> back);
+                final long south = (from[i + rowWords] >>> rowBits)
+                        | (from[i + rowWords + 1] << back);
+                final long east = ((from[i] & notEast[i]) << 1)
+                        | ((from[i - 1] & notEast[i - 1]) >>> 63);
+                final long west = ((from[i] & notWest[i]) >>> 1)
+                        | ((from[i + 1] & notWest[i + 1]) << 63);
+                final long word = (north | south | east | west) & free[i]
+                        & ~seen[i];
+                to[i] = word;
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    private void load(final BitBoard source, final long[] target) {
+        if (source.getDimension() != dimension) {
+            throw new InvalidStateException("Bit board dimensions differ.");
+        }
+        for (int i = 0; i < wordCount; i++) {
+            target[pad + i] = source.getWord(i);
+        }
+    }
+
+    private void store(final long[] source, final BitBoard target) {
+        for (int i = 0; i < wordCount; i++) {
+            target.setWord(i, source[pad + i]);
+        }
+    }
+
+    private void setBit(final long[] words, final int cell) {
+        words[pad + (cell >>> WORD_SHIFT)] |= 1L << cell;
+    }
+}
@@ -0,0 +1,124 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BitKernelsTest {
+
+    private static final int[] DIMENSIONS = { 1, 5, 8, 63, 64, 65, 130 };
+
+    private static Board randomBoard(Topology topology, double density,
+            long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(topology);
+        for (int cell = 0; cell < topology.getCellCount(); cell++) {
+            if (random.nextDouble() < density) {
+                board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Breadth-first distances from a cell through available cells, or -1.
+     */
+    private static int[] distances(Board board, int source) {
+        Topology topology = board.getTopology();
+        int cells = topology.getCellCount();
+        int[] distance = new int[cells];
+        java.util.Arrays.fill(distance, -1);
+        int[] queue = new int[cells];
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int e = topology.getEdgeStart(cell); e < topology.getEdgeEnd(cell); e++) {
+                int next = topology.getNeighbourAt(e);
+                if (distance[next] < 0 && board.getStateAt(next)
+                        == Board.LocationState.AVAILABLE) {
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance;
+    }
+
+    @Test
+    public void testFloodFillMatchesSearch() {
+        for (int dimension : DIMENSIONS) {
+            Board board = randomBoard(Topology.square(dimension), 0.35,
+                    dimension);
+            int start = dimension * dimension / 2;
+            int[] distance = distances(board, start);
+            BitBoard reached = board.getReachableCells(start);
+            for (int cell = 0; cell < dimension * dimension; cell++) {
+                boolean expected = distance[cell] >= 0 && board.getStateAt(
+                        cell) == Board.LocationState.AVAILABLE;
+                assertEquals(dimension + ": " + cell, expected,
+                        reached.get(cell));
+            }
+        }
+    }
+
+    @Test
+    public void testRegionCountMatchesTracker() {
+        for (int dimension : DIMENSIONS) {
+            Board board = randomBoard(Topology.square(dimension), 0.45,
+                    dimension + 1);
+            BitKernels kernels = new BitKernels(dimension);
+            assertEquals(board.getRegions().getRegionCount(),
+                    kernels.countRegions(board.getAvailableCells()));
+        }
+    }
+
+    @Test
+    public void testVoronoiMatchesSearch() {
+        for (int dimension : DIMENSIONS) {
+            if (dimension < 2) {
+                continue;
+            }
+            Board board = randomBoard(Topology.square(dimension), 0.25,
+                    dimension + 2);
+            int first = 0;
+            int second = dimension * dimension - 1;
+            board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+            board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+            int[] a = distances(board, first);
+            int[] b = distances(board, second);
+            int expectedFirst = 0;
+            int expectedSecond = 0;
+            for (int cell = 0; cell < dimension * dimension; cell++) {
+                if (board.getStateAt(cell) == Board.LocationState.UNAVAILABLE) {
+                    continue;
+                }
+                int da = a[cell] < 0 ? Integer.MAX_VALUE : a[cell];
+                int db = b[cell] < 0 ? Integer.MAX_VALUE : b[cell];
+                if (da < db) {
+                    expectedFirst++;
+                } else if (db < da) {
+                    expectedSecond++;
+                }
+            }
+            BitKernels kernels = new BitKernels(dimension);
+            assertEquals(expectedFirst - expectedSecond, kernels.voronoi(
+                    first, second, board.getAvailableCells()));
+            assertEquals(expectedFirst, kernels.getFirstTerritory());
+            assertEquals(expectedSecond, kernels.getSecondTerritory());
+        }
+    }
+
+    @Test
+    public void testReachableCellsOnHexBoard() {
+        Board board = randomBoard(Topology.hexagonal(9), 0.3, 9);
+        int[] distance = distances(board, 40);
+        BitBoard reached = board.getReachableCells(40);
+        for (int cell = 0; cell < 81; cell++) {
+            assertEquals(distance[cell] >= 0 && board.getStateAt(cell)
+                    == Board.LocationState.AVAILABLE, reached.get(cell));
+        }
+    }
+}
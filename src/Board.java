@@ -1,4 +1,4 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,10 +31,75 @@ public class Board {
 
     }
     
+    public enum Storage {
+        
+        DENSE(0, "One bit per cell in a single BitBoard."),
+        TILED(1, "Lazily allocated off-heap tiles, for huge boards.");
+        
+
+        private final int ID;
+        private final String text;
+
+
+        private Storage(final int ID, final String text) {
+            this.ID = ID;
+            this.text = text;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Enum#toString()
+         */
+        @Override
+        public String toString() {
+            return this.text;
+        }
+
+    }
+    
+    private static final int INITIAL_UNDO_CAPACITY = 64;
+    /* Moves the log holds before it first grows; covers whole games on
+     * boards of up to 256 by 256 cells. */
+    private static final int MOVE_LOG_RESERVE = 1 << 16;
+    private static final Symmetry[] SYMMETRIES = Symmetry.values();
+    
     private final Integer dimension;
-    private final int[][] adjacency;
-    private final LocationState[][] availability;
-    private List<Location> changeLog;
+    private final Storage storage;
+    private final BitBoard unavailable;
+    private final TiledCellSet unavailableTiles;
+    /* DENSE only: the cell graph, and per cell the free-neighbour mask in
+     * the low byte and the degree in the next four bits. */
+    private final Topology topology;
+    private final short[] neighbourInfo;
+    /* DENSE only; null until first requested. */
+    private RegionTracker regions = null;
+    /* DENSE only; distanceFields[p] is null until first requested. */
+    private final DistanceField[] distanceFields = new DistanceField[2];
+    /* Square grids only; null until first requested. */
+    private RegionSummary regionSummary = null;
+    /* DENSE square grids only; null until first needed. */
+    private BitKernels kernels = null;
+    private final MoveLog moveLog;
+    /* Undo records pushed by makeMove: cell << 1 | (was unavailable ? 1 : 0). */
+    private int[] undoStack = new int[INITIAL_UNDO_CAPACITY];
+    private int undoSize = 0;
+    private final ZobristKeys zobristKeys;
+    /* XOR of the Zobrist keys of all unavailable cells. */
+    private long zobristKey = 0;
+    /* symmetricKeys[s] is the Zobrist key of the image of the unavailable
+     * cells under Symmetry s, entry 0 unused; null until first requested,
+     * so boards that are never canonicalised pay nothing per change. */
+    private long[] symmetricKeys = null;
+    /* The symmetries that map this board's cell graph onto itself. */
+    private final List<Symmetry> symmetries;
+    private long unavailableCount = 0;
+    
+    /* Copy-on-write chunks behind published snapshots; null until the first
+     * snapshot is published. A chunk may be written in place only while
+     * chunkEpoch[chunk] == snapshotEpoch. */
+    private long[][] snapshotChunks = null;
+    private int[] chunkEpoch = null;
+    private int snapshotEpoch = 0;
+    private volatile BoardSnapshot snapshot = null;
 	
     /**
      * Create an empty square Board with size
@@ -45,19 +110,66 @@ public class Board {
      * @throws InvalidStateException if dimension is not greater than 0.
      */
 	public Board(final int dimension) {
+	    this(dimension, Storage.DENSE);
+	}
+	
+    /**
+     * Create an empty square Board with size dimension by dimension, using
+     * the given storage for cell availability. Adjacency is implicit in the
+     * grid, so DENSE boards use one bit per cell and TILED boards only use
+     * memory for the tiles in which cells have been marked unavailable.
+     * 
+     * @requires Dimension is greater than 0. For DENSE storage,
+     *           dimension*dimension must fit in an int.
+     * @param dimension The dimension of the Board along one edge.
+     * @param storage The representation of cell availability.
+     * @throws InvalidStateException if dimension is out of range for the
+     *         given storage.
+     */
+	public Board(final int dimension, final Storage storage) {
+	    this(dimension, storage, (storage == Storage.DENSE && dimension > 0)
+	            ? Topology.square(dimension) : null);
+	}
+	
+    /**
+     * Create an empty DENSE Board over the cells of a topology. Obstacle
+     * cells of the topology start unavailable and are not recorded in the
+     * move log.
+     * 
+     * @requires topology is not null.
+     * @param topology The cell graph of the board; its dimension is the
+     *        dimension of the board.
+     */
+	public Board(final Topology topology) {
+	    this(topology.getDimension(), Storage.DENSE, topology);
+	}
+	
+	private Board(final int dimension, final Storage storage,
+	        final Topology topology) {
         if (dimension <= 0) {
             throw new
              InvalidStateException("Cannot create board with given dimension.");
         }
 	    this.dimension = dimension;
+	    this.storage = storage;
+	    this.zobristKeys = ZobristKeys.forDimension(dimension);
+	    this.symmetries = Symmetry.of(topology);
 	    
-	    this.adjacency = new int[dimension*dimension][dimension*dimension];
-	    // initializeAdjacency();
-	    
-	    this.availability = new LocationState[dimension][dimension];
-        initializeAvailability();
+	    if (storage == Storage.DENSE) {
+	        this.unavailable = new BitBoard(dimension);
+	        this.unavailableTiles = null;
+	        this.topology = topology;
+	        this.neighbourInfo = new short[dimension * dimension];
+	        initializeNeighbourInfo();
+	    } else {
+	        this.unavailable = null;
+	        this.unavailableTiles = new TiledCellSet(dimension);
+	        this.topology = null;
+	        this.neighbourInfo = null;
+	    }
         
-        changeLog = new ArrayList<Location>();
+        moveLog = new MoveLog(dimension, (int) Math.min(
+                (long) dimension * dimension, MOVE_LOG_RESERVE));
 	}
 
 	/**
@@ -69,6 +181,25 @@ public class Board {
 	    return this.dimension;
 	}
 	
+	/**
+	 * Get the cell graph of the board.
+	 * 
+	 * @return The topology of a DENSE board, or null for a TILED board,
+	 *         whose square-grid adjacency is implicit.
+	 */
+	public Topology getTopology() {
+	    return this.topology;
+	}
+	
+	/**
+	 * Get the storage used for cell availability.
+	 * 
+	 * @return The storage this board was created with.
+	 */
+	public Storage getStorage() {
+	    return this.storage;
+	}
+	
 	/**
 	 * Set the state of a given location.
 	 * 
@@ -84,14 +215,401 @@ public class Board {
 	        throw new InvalidStateException("Invalid location for this board.");
 	    }
 	    
-	    int x = location.getCoordinate(Location.Coordinate.FIRST);
-	    int y = location.getCoordinate(Location.Coordinate.SECOND);
-	    
-	    availability[x][y] = state;
+	    applyState(location.getCoordinate(Location.Coordinate.FIRST),
+	            location.getCoordinate(Location.Coordinate.SECOND), state);
+	}
+	
+	/**
+	 * Set the state of the cell with a given index.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell to modify.
+	 * @param state The state to associate with this cell.
+	 * @modifies State of the given cell.
+	 * @throws InvalidStateException (unchecked) if cell is not on the board,
+	 *         or the board is too large for cell indices.
+	 */
+	public void setStateAt(final int cell, final LocationState state) {
+	    checkCell(cell);
+	    applyState(cell % dimension, cell / dimension, state);
+	}
+	
+	/**
+	 * Apply a state change to a cell and record it in the move log.
+	 * 
+	 * @modifies availability, neighbourInfo, moveLog
+	 */
+	private void applyState(final int x, final int y, final LocationState state) {
+	    boolean wasUnavailable = changeAvailability(x, y,
+	            state == LocationState.UNAVAILABLE);
 	    
 	    if (state == LocationState.UNAVAILABLE) {
-	        changeLog.add(location.clone());
+	        moveLog.append(x, y);
+	    }
+	    updateDistanceFields(x + y * dimension,
+	            wasUnavailable != (state == LocationState.UNAVAILABLE));
+	}
+	
+	/**
+	 * Change the availability of a cell and everything derived from it.
+	 * 
+	 * @param x The first coordinate of the cell.
+	 * @param y The second coordinate of the cell.
+	 * @param makeUnavailable true to mark the cell unavailable, false to mark
+	 *        it available.
+	 * @modifies availability, neighbourInfo, zobristKey, unavailableCount,
+	 *           snapshotChunks
+	 * @return true if the cell was unavailable before the change.
+	 */
+	private boolean changeAvailability(final int x, final int y,
+	        final boolean makeUnavailable) {
+	    boolean wasUnavailable = isUnavailable(x, y);
+	    if (wasUnavailable == makeUnavailable) {
+	        return wasUnavailable;
+	    }
+	    if (makeUnavailable) {
+	        markUnavailable(x, y);
+	    } else {
+	        markAvailable(x, y);
+	    }
+	    if (neighbourInfo != null) {
+	        updateNeighbourInfo(x + y * dimension, !makeUnavailable);
+	    }
+	    if (regions != null) {
+	        if (makeUnavailable) {
+	            regions.remove(x + y * dimension);
+	        } else {
+	            regions.restore(x + y * dimension);
+	        }
+	    }
+	    if (regionSummary != null) {
+	        regionSummary.update(x, y);
+	    }
+	    zobristKey ^= zobristKeys.getUnavailableKey(x, y);
+	    if (symmetricKeys != null) {
+	        updateSymmetricKeys(x, y);
+	    }
+	    unavailableCount += makeUnavailable ? 1 : -1;
+	    if (snapshotChunks != null) {
+	        writeSnapshotChunk(x + y * dimension, makeUnavailable);
+	    }
+	    return wasUnavailable;
+	}
+	
+	/**
+	 * Occupy a cell as a move, so that it can later be reverted with
+	 * unmakeMove. The cell is marked unavailable and appended to the change
+	 * log exactly as setStateAt does, and a one-int undo record is pushed.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell moved to.
+	 * @modifies State of the given cell, the move log and the undo stack.
+	 * @throws InvalidStateException (unchecked) if cell is not on the board,
+	 *         or the board is too large for cell indices.
+	 */
+	public void makeMove(final int cell) {
+	    checkCell(cell);
+	    final int x = cell % dimension;
+	    final int y = cell / dimension;
+	    boolean wasUnavailable = changeAvailability(x, y, true);
+	    moveLog.append(x, y);
+	    updateDistanceFields(cell, !wasUnavailable);
+	    
+	    if (undoSize == undoStack.length) {
+	        undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+	    }
+	    undoStack[undoSize++] = (cell << 1) | (wasUnavailable ? 1 : 0);
+	}
+	
+	/**
+	 * Occupy a location as a move, so that it can later be reverted with
+	 * unmakeMove.
+	 * 
+	 * @requires location must be constrained to dimension - 1.
+	 * @param location The location moved to.
+	 * @modifies State of the given location, the move log and the undo
+	 *           stack.
+	 * @throws InvalidStateException (unchecked) if location is constrained to
+	 *         anything other than dimension - 1.
+	 */
+	public void makeMove(final Location location) {
+	    makeMove(getCellIndex(location));
+	}
+	
+	/**
+	 * Revert the most recent makeMove, restoring the cell's availability,
+	 * the neighbour masks and the tail of the move log.
+	 * 
+	 * @requires Every setStateAt since the matching makeMove has itself been
+	 *           reverted, so the move log tail belongs to that move.
+	 * @modifies State of the reverted cell, the move log and the undo stack.
+	 * @throws InvalidStateException (unchecked) if there is no move to undo.
+	 * @return The index of the cell that was reverted.
+	 */
+	public int unmakeMove() {
+	    if (undoSize == 0) {
+	        throw new InvalidStateException("No move to undo.");
+	    }
+	    final int record = undoStack[--undoSize];
+	    final int cell = record >>> 1;
+	    if ((record & 1) == 0) {
+	        changeAvailability(cell % dimension, cell / dimension, false);
+	    }
+	    moveLog.removeLast();
+	    updateDistanceFields(cell, (record & 1) == 0);
+	    return cell;
+	}
+	
+	/**
+	 * Get the Zobrist key of the set of unavailable cells. It is updated by
+	 * one XOR whenever a cell changes availability, and is equal for any
+	 * two boards of the same dimension with the same unavailable cells.
+	 * 
+	 * @return The XOR of getZobristKeys().getUnavailableKey over every
+	 *         unavailable cell.
+	 */
+	public long getZobristKey() {
+	    return zobristKey;
+	}
+	
+	/**
+	 * Get the Zobrist key of the image of the unavailable cells under a
+	 * symmetry. The keys of every symmetry are computed from the
+	 * unavailable cells on the first call and maintained incrementally
+	 * alongside getZobristKey from then on. Two boards have equal keys for
+	 * symmetries a and b when the image of one under a equals the image of
+	 * the other under b.
+	 * 
+	 * @param symmetry A symmetry of the square.
+	 * @return The XOR of getZobristKeys().getUnavailableKey over the image
+	 *         of every unavailable cell.
+	 */
+	public long getZobristKey(final Symmetry symmetry) {
+	    if (symmetry == Symmetry.IDENTITY) {
+	        return zobristKey;
+	    }
+	    if (symmetricKeys == null) {
+	        symmetricKeys = new long[SYMMETRIES.length];
+	        if (unavailable != null) {
+	            for (int cell = unavailable.nextSetBit(0); cell >= 0;
+	                    cell = unavailable.nextSetBit(cell + 1)) {
+	                updateSymmetricKeys(cell % dimension, cell / dimension);
+	            }
+	        } else {
+	            /* Every unavailable cell of a TILED board is in the move log,
+	             * but the log may also hold repeats and cells made available
+	             * again, so each unavailable cell is counted once. */
+	            TiledCellSet counted = new TiledCellSet(dimension);
+	            MoveLog.Cursor cursor = moveLog.cursor();
+	            while (cursor.hasNext()) {
+	                final long position = cursor.next();
+	                final int x = Location.unpackX(position);
+	                final int y = Location.unpackY(position);
+	                if (isUnavailable(x, y) && !counted.contains(x, y)) {
+	                    counted.add(x, y);
+	                    updateSymmetricKeys(x, y);
+	                }
+	            }
+	        }
+	    }
+	    return symmetricKeys[symmetry.ordinal()];
+	}
+	
+	/**
+	 * Toggle the images of a cell in the keys of every symmetry.
+	 */
+	private void updateSymmetricKeys(final int x, final int y) {
+	    final int max = dimension - 1;
+	    for (int s = 1; s < SYMMETRIES.length; s++) {
+	        symmetricKeys[s] ^= zobristKeys.getUnavailableKey(
+	                SYMMETRIES[s].applyX(x, y, max),
+	                SYMMETRIES[s].applyY(x, y, max));
+	    }
+	}
+	
+	/**
+	 * Get the symmetries that map this board's cell graph onto itself:
+	 * all eight for SQUARE and TORUS topologies and TILED boards, those
+	 * that fix the obstacles for MASKED topologies, and only IDENTITY for
+	 * HEXAGONAL ones. Only these may be used to canonicalise positions.
+	 * 
+	 * @return An unmodifiable list of symmetries, IDENTITY first.
+	 */
+	public List<Symmetry> getSymmetries() {
+	    return symmetries;
+	}
+	
+	/**
+	 * Get the Zobrist keys used by this board, so that callers can extend
+	 * the board key with player cells and side to move.
+	 * 
+	 * @return The shared keys for this board's dimension.
+	 */
+	public ZobristKeys getZobristKeys() {
+	    return zobristKeys;
+	}
+	
+	/**
+	 * Publish an immutable snapshot of the current availability. Chunks that
+	 * have not changed since the previous snapshot are shared with it, so
+	 * publishing costs one reference per chunk, and each chunk is copied at
+	 * most once per snapshot when it is next written.
+	 * 
+	 * @modifies The snapshot returned by getSnapshot.
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 * @return The published snapshot.
+	 */
+	public BoardSnapshot publishSnapshot() {
+	    checkDense();
+	    if (snapshotChunks == null) {
+	        initializeSnapshotChunks();
+	    }
+	    BoardSnapshot published = new BoardSnapshot(dimension,
+	            snapshotChunks.clone(), zobristKey, (int) unavailableCount,
+	            moveLog.size());
+	    snapshotEpoch++;
+	    snapshot = published;
+	    return published;
+	}
+	
+	/**
+	 * Get the most recently published snapshot. Safe to call from any
+	 * thread; the result is a consistent view even while the board changes.
+	 * 
+	 * @return The latest snapshot, or null if none has been published.
+	 */
+	public BoardSnapshot getSnapshot() {
+	    return snapshot;
+	}
+	
+	/**
+	 * Get the number of moves that can be reverted with unmakeMove.
+	 * 
+	 * @return The depth of the undo stack.
+	 */
+	public int getUndoDepth() {
+	    return undoSize;
+	}
+
+	/**
+	 * Get the connected regions of available cells. They are labelled on
+	 * the first call and kept up to date as cells change availability, so
+	 * boards that never ask pay nothing for them.
+	 * 
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 * @return The live region tracker of this board.
+	 */
+	public RegionTracker getRegions() {
+	    checkDense();
+	    if (regions == null) {
+	        regions = new RegionTracker(topology, unavailable);
+	    }
+	    return regions;
+	}
+
+	/**
+	 * Get every cell made unavailable on this board, in order, starting
+	 * with the two players' start cells.
+	 *
+	 * @return A copy of the move log.
+	 */
+	public MoveLog getMoveLog() {
+	    return moveLog.clone();
+	}
+	
+	/**
+	 * Get the breadth-first distances from a player's cell to every
+	 * available cell. The player's cell is its latest entry in the move
+	 * log. The field is built on the first call and from then on repaired
+	 * incrementally whenever a cell changes availability or a player moves.
+	 * 
+	 * @requires player is 0 or 1.
+	 * @param player The index of the player in turn order.
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 * @return The live distance field of the player.
+	 */
+	public DistanceField getDistanceField(final int player) {
+	    checkDense();
+	    if (distanceFields[player] == null) {
+	        distanceFields[player] = new DistanceField(topology, unavailable);
+	        distanceFields[player].recompute(getPlayerCell(player));
+	    }
+	    return distanceFields[player];
+	}
+	
+	/**
+	 * Get the coarse tile summary of this board, for region and territory
+	 * queries on boards too large to search cell by cell. It is built on
+	 * the first call and kept up to date as cells change availability.
+	 * 
+	 * @requires The board is TILED or has a SQUARE or MASKED topology.
+	 * @throws InvalidStateException (unchecked) if the board is not a
+	 *         square grid, or needs more than RegionSummary.MAX_TILES tiles.
+	 * @return The live summary of this board.
+	 */
+	public RegionSummary getRegionSummary() {
+	    if (regionSummary != null) {
+	        return regionSummary;
+	    }
+	    if (topology != null && topology.getKind() != Topology.Kind.SQUARE
+	            && topology.getKind() != Topology.Kind.MASKED) {
+	        throw new InvalidStateException(
+	                "Region summaries require a square grid.");
+	    }
+	    RegionSummary summary = new RegionSummary(this);
+	    if (unavailable != null) {
+	        for (int cell = unavailable.nextSetBit(0); cell >= 0;
+	                cell = unavailable.nextSetBit(cell + 1)) {
+	            summary.update(cell % dimension, cell / dimension);
+	        }
+	    } else {
+	        /* Every unavailable cell of a TILED board is in the move log. */
+	        MoveLog.Cursor cursor = moveLog.cursor();
+	        while (cursor.hasNext()) {
+	            final long position = cursor.next();
+	            summary.update(Location.unpackX(position),
+	                    Location.unpackY(position));
+	        }
+	    }
+	    regionSummary = summary;
+	    return regionSummary;
+	}
+	
+	/**
+	 * Bring the distance fields up to date after a cell changed or the move
+	 * log grew or shrank.
+	 * 
+	 * @param cell The index of the cell involved.
+	 * @param changed true if the cell changed availability.
+	 * @modifies distanceFields
+	 */
+	private void updateDistanceFields(final int cell, final boolean changed) {
+	    for (int player = 0; player < distanceFields.length; player++) {
+	        DistanceField field = distanceFields[player];
+	        if (field == null) {
+	            continue;
+	        }
+	        final int source = getPlayerCell(player);
+	        if (source != field.getSource()) {
+	            field.moveSource(source);
+	        } else if (changed) {
+	            field.update(cell);
+	        }
+	    }
+	}
+	
+	/**
+	 * @return The cell of a player's latest move log entry, or -1 if it has
+	 *         none.
+	 */
+	private int getPlayerCell(final int player) {
+	    final int count = moveLog.getMoveCount(player);
+	    if (count == 0) {
+	        return -1;
 	    }
+	    final long position = moveLog.getPlayerPosition(player, count - 1);
+	    return Location.unpackX(position)
+	            + Location.unpackY(position) * dimension;
 	}
 	
 	/**
@@ -112,7 +630,87 @@ public class Board {
 	    int x = location.getCoordinate(Location.Coordinate.FIRST);
         int y = location.getCoordinate(Location.Coordinate.SECOND);
         
-        return availability[x][y];
+        return isUnavailable(x, y) ? LocationState.UNAVAILABLE
+                                   : LocationState.AVAILABLE;
+	}
+	
+	/**
+	 * Get the state of the cell with a given index.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell.
+	 * @throws InvalidStateException (unchecked) if cell is not on the board,
+	 *         or the board is too large for cell indices.
+	 * @return The state of this cell.
+	 */
+	public LocationState getStateAt(final int cell) {
+	    checkCell(cell);
+	    return isUnavailable(cell % dimension, cell / dimension)
+	            ? LocationState.UNAVAILABLE : LocationState.AVAILABLE;
+	}
+	
+	/**
+	 * Get the index of a location on this board. Cell indices let hot paths
+	 * address cells without creating Location objects.
+	 * 
+	 * @requires location must be constrained to dimension - 1.
+	 * @param location The location to convert.
+	 * @return x + y*dimension.
+	 * @throws InvalidStateException (unchecked) if location is constrained to
+	 *         anything other than dimension - 1, or the board is too large
+	 *         for cell indices.
+	 */
+	public int getCellIndex(final Location location) {
+	    checkLocation(location);
+	    checkCellIndexable();
+	    return location.getIndex();
+	}
+	
+	/**
+	 * Get the canonical location of the cell with a given index.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell.
+	 * @throws InvalidStateException (unchecked) if cell is not on the board,
+	 *         or the board is too large for cell indices.
+	 * @return The location of the cell.
+	 */
+	public Location getLocationOf(final int cell) {
+	    checkCell(cell);
+	    return Location.of(cell % dimension, cell / dimension, dimension - 1);
+	}
+	
+	/**
+	 * Get the index of the cell one step from another.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index of the source cell.
+	 * @param direction The direction to step in.
+	 * @return The index of the neighbouring cell, or -1 if the step leaves
+	 *         the board or direction is NOT_A_DIRECTION.
+	 * @throws InvalidStateException (unchecked) if the board's topology has
+	 *         no cardinal directions.
+	 */
+	public int getNeighbourCell(final int cell, final Direction direction) {
+	    if (topology != null) {
+	        checkCardinal();
+	        return direction == Direction.NOT_A_DIRECTION ? -1
+	                : topology.getNeighbour(cell, direction.ordinal());
+	    }
+	    final int x = cell % dimension;
+	    switch (direction) {
+	    case NORTH:
+	        return (cell + dimension < dimension * dimension)
+	                ? cell + dimension : -1;
+	    case SOUTH:
+	        return (cell - dimension >= 0) ? cell - dimension : -1;
+	    case EAST:
+	        return (x + 1 < dimension) ? cell + 1 : -1;
+	    case WEST:
+	        return (x > 0) ? cell - 1 : -1;
+	    default:
+	        return -1;
+	    }
 	}
 	
 	/**
@@ -120,113 +718,524 @@ public class Board {
 	 * 
 	 * @requires location must be constrained to dimension - 1.
 	 * @param location The location to check for possible movements.
-	 * @return A list of all directions in which it is possible to move
-	 *         from this location.
+	 * @return A shared, unmodifiable list of all directions in which it is
+	 *         possible to move from this location.
 	 * @throws InvalidStateException (unchecked) if location
-     *         is constrained to anything other than dimension - 1.
+     *         is constrained to anything other than dimension - 1, or the
+     *         board's topology has no cardinal directions.
 	 */
 	public List<Direction> getAvailableDirectionsAt(final Location location) {
-	    if (location.getUpperBound() != dimension - 1) {
-            throw new InvalidStateException("Invalid location for this board.");
-        }
-	    
-	    final int xSource = location.getCoordinate(Location.Coordinate.FIRST);
-	    final int ySource = location.getCoordinate(Location.Coordinate.SECOND);
-        List<Direction> directions = new ArrayList<Direction>();
-        int xDest;
-        int yDest;
-        
-        if ((yDest = ySource + 1) < dimension) {
-            if (availability[xSource][yDest] == LocationState.AVAILABLE) {
-                directions.add(Direction.NORTH);
-            }
-        }
-        if ((yDest = ySource - 1) >= 0) {
-            if (availability[xSource][yDest] == LocationState.AVAILABLE) {
-                directions.add(Direction.SOUTH);
-            }
-        }
-        if ((xDest = xSource + 1) < dimension) {
-            if (availability[xDest][ySource] == LocationState.AVAILABLE) {
-                directions.add(Direction.EAST);
-            }
-        }
-        if ((xDest = xSource - 1) >= 0) {
-            if (availability[xDest][ySource] == LocationState.AVAILABLE) {
-                directions.add(Direction.WEST);
-            }
-        }
-        
-        
-        /*
-	    final int dimensionSquared = dimension*dimension;
-	    final int adjacencySourceIndex = x + (y * dimension);
-	    int adjacencyDestIndex;
-	    
-        if ((adjacencyDestIndex = adjacencySourceIndex + dimension) < dimensionSquared) {
-            if (adjacency[adjacencyDestIndex][adjacencySourceIndex] == 1) {
-                directions.add(Direction.NORTH);
-            }
-        }
-        if ((adjacencyDestIndex = adjacencySourceIndex - dimension) >= 0) {
-            if (adjacency[adjacencyDestIndex][adjacencySourceIndex] == 1) {
-                directions.add(Direction.SOUTH);
-            }
-        }
-	    if ((adjacencyDestIndex = adjacencySourceIndex + 1) < dimensionSquared) {
-	        if (adjacency[adjacencyDestIndex][adjacencySourceIndex] == 1) {
-	            directions.add(Direction.EAST);
-	        }
+	    checkCardinal();
+	    return Direction.fromMask(getFreeNeighbourMask(location));
+	}
+	
+	/**
+	 * Check whether a piece may move from one cell to another: the cells
+	 * must be neighbours in the board's topology and the destination must
+	 * be available.
+	 * 
+	 * @requires from and to in [0, dimension*dimension - 1].
+	 * @param from The index of the cell moved from.
+	 * @param to The index of the cell moved to.
+	 * @return true if the move is legal. false otherwise.
+	 */
+	public boolean isMoveLegal(final int from, final int to) {
+	    if (topology != null) {
+	        return !unavailable.get(to) && topology.isNeighbour(from, to);
 	    }
-        if ((adjacencyDestIndex = adjacencySourceIndex - 1) >= 0) {
-            if (adjacency[adjacencyDestIndex][adjacencySourceIndex] == 1) {
-                directions.add(Direction.WEST);
-            }
-        }
-        */
-        return directions;
+	    return isMoveLegal(getLocationOf(from), getLocationOf(to));
 	}
 	
 	/**
-	 * Initialize the adjacency matrix so that all locations that can be reached
-	 * from a given location are known.
+	 * Check whether a piece may move from one location to another: the
+	 * locations must be neighbours in the board's topology and the
+	 * destination must be available.
 	 * 
-	 * @modifies adjacency
-	 * @results adjacency[x1 + dimension*y1][x2 + dimension*y2] = 1 iff
-	 *          Location[x2][y2] is accessible from Location[x1][y1].
+	 * @requires from and to must be constrained to dimension - 1.
+	 * @param from The location moved from.
+	 * @param to The location moved to.
+	 * @return true if the move is legal. false otherwise.
+	 * @throws InvalidStateException (unchecked) if either location
+	 *         is constrained to anything other than dimension - 1.
 	 */
-	private void initializeAdjacency() {
-	    
-	    for (int xSource = 0; xSource < dimension; xSource++) {
-	        for (int ySource = 0; ySource < dimension; ySource++) {
-	            for (int xDest = 0; xDest < dimension; xDest++) {
-	                for (int yDest = 0; yDest < dimension; yDest++) {
-	                    if (( (xSource == xDest) && (yDest == ySource + 1) ) ||
-	                        ( (xSource == xDest) && (yDest == ySource - 1) ) ||
-	                        ( (xDest == xSource + 1) && (yDest == ySource) ) ||
-	                        ( (xDest == xSource - 1) && (yDest == ySource) )) {
-	                        
-	                        adjacency[xDest + (yDest * dimension)]
-	                                 [xSource + (ySource * dimension)] = 1;
-	                    }
-	                }
+	public boolean isMoveLegal(final Location from, final Location to) {
+	    checkLocation(from);
+	    checkLocation(to);
+	    if (topology != null) {
+	        return isMoveLegal(from.getIndex(), to.getIndex());
+	    }
+	    return (getFreeNeighbourMask(from)
+	            & from.getDirectionTo(to).getBit()) != 0;
+	}
+	
+	/**
+	 * Get the free neighbours of a location as a mask of direction bits.
+	 * 
+	 * @requires location must be constrained to dimension - 1.
+	 * @param location The location to check for possible movements.
+	 * @return The OR of Direction.getBit() over every direction in which it
+	 *         is possible to move from this location.
+	 * @throws InvalidStateException (unchecked) if location
+	 *         is constrained to anything other than dimension - 1.
+	 */
+	public int getFreeNeighbourMask(final Location location) {
+	    checkLocation(location);
+	    return getFreeNeighbourMask(
+	            location.getCoordinate(Location.Coordinate.FIRST),
+	            location.getCoordinate(Location.Coordinate.SECOND));
+	}
+	
+	/**
+	 * Get the free neighbours of a cell as a mask of direction bits.
+	 * 
+	 * @requires x and y both in [0, dimension - 1].
+	 * @param x The first coordinate of the cell.
+	 * @param y The second coordinate of the cell.
+	 * @return The OR of Direction.getBit() over every direction in which it
+	 *         is possible to move from this cell.
+	 */
+	public int getFreeNeighbourMask(final int x, final int y) {
+	    if (neighbourInfo != null) {
+	        return neighbourInfo[x + y * dimension] & 0xFF;
+	    }
+	    return computeFreeNeighbourMask(x, y);
+	}
+	
+	/**
+	 * Get the free neighbours of the cell with a given index.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell.
+	 * @return The OR of Direction.getBit() over every direction in which it
+	 *         is possible to move from this cell.
+	 */
+	public int getFreeNeighbourMask(final int cell) {
+	    if (neighbourInfo != null) {
+	        return neighbourInfo[cell] & 0xFF;
+	    }
+	    return computeFreeNeighbourMask(cell % dimension, cell / dimension);
+	}
+	
+	/**
+	 * Get the number of free neighbours of a location.
+	 * 
+	 * @requires location must be constrained to dimension - 1.
+	 * @param location The location to check.
+	 * @return The number of directions in which it is possible to move from
+	 *         this location.
+	 * @throws InvalidStateException (unchecked) if location
+	 *         is constrained to anything other than dimension - 1.
+	 */
+	public int getDegreeAt(final Location location) {
+	    checkLocation(location);
+	    return getDegreeAt(location.getCoordinate(Location.Coordinate.FIRST),
+	            location.getCoordinate(Location.Coordinate.SECOND));
+	}
+	
+	/**
+	 * Get the number of free neighbours of a cell.
+	 * 
+	 * @requires x and y both in [0, dimension - 1].
+	 * @param x The first coordinate of the cell.
+	 * @param y The second coordinate of the cell.
+	 * @return The number of directions in which it is possible to move from
+	 *         this cell.
+	 */
+	public int getDegreeAt(final int x, final int y) {
+	    if (neighbourInfo != null) {
+	        return (neighbourInfo[x + y * dimension] >>> 8) & 0x0F;
+	    }
+	    return Integer.bitCount(computeFreeNeighbourMask(x, y));
+	}
+	
+	/**
+	 * Get the number of free neighbours of the cell with a given index.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell.
+	 * @return The number of directions in which it is possible to move from
+	 *         this cell.
+	 */
+	public int getDegreeAt(final int cell) {
+	    if (neighbourInfo != null) {
+	        return (neighbourInfo[cell] >>> 8) & 0x0F;
+	    }
+	    return Integer.bitCount(getFreeNeighbourMask(cell));
+	}
+	
+	/**
+	 * Check if any move is possible from a location.
+	 * 
+	 * @requires location must be constrained to dimension - 1.
+	 * @param location The location to check.
+	 * @return true if at least one neighbour of location is available.
+	 * @throws InvalidStateException (unchecked) if location
+	 *         is constrained to anything other than dimension - 1.
+	 */
+	public boolean hasAvailableMove(final Location location) {
+	    return getFreeNeighbourMask(location) != 0;
+	}
+	
+	/**
+	 * Check if any move is possible from a cell.
+	 * 
+	 * @requires x and y both in [0, dimension - 1].
+	 * @param x The first coordinate of the cell.
+	 * @param y The second coordinate of the cell.
+	 * @return true if at least one neighbour of the cell is available.
+	 */
+	public boolean hasAvailableMove(final int x, final int y) {
+	    return getFreeNeighbourMask(x, y) != 0;
+	}
+	
+	/**
+	 * Check if any move is possible from the cell with a given index.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index x + y*dimension of the cell.
+	 * @return true if at least one neighbour of the cell is available.
+	 */
+	public boolean hasAvailableMove(final int cell) {
+	    return getFreeNeighbourMask(cell) != 0;
+	}
+	
+	/**
+	 * Get the set of cells which are still available.
+	 * 
+	 * @return A new BitBoard containing every available cell, indexed by
+	 *         x + y*dimension.
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 */
+	public BitBoard getAvailableCells() {
+	    checkDense();
+	    BitBoard available = unavailable.clone();
+	    available.not();
+	    return available;
+	}
+	
+	/**
+	 * Get the set of available cells a player on a cell could reach. Square
+	 * grids are flood filled a word of 64 cells at a time by BitKernels;
+	 * other topologies are searched cell by cell.
+	 * 
+	 * @requires cell in [0, dimension*dimension - 1].
+	 * @param cell The index of the cell to start from.
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 * @return A new BitBoard of the available cells connected to the cell,
+	 *         not including the cell itself unless it is available.
+	 */
+	public BitBoard getReachableCells(final int cell) {
+	    checkDense();
+	    checkCell(cell);
+	    BitBoard reached = new BitBoard(dimension);
+	    reached.set(cell);
+	    if (topology.getKind() == Topology.Kind.SQUARE
+	            || topology.getKind() == Topology.Kind.MASKED) {
+	        if (kernels == null) {
+	            kernels = new BitKernels(dimension);
+	        }
+	        BitBoard available = getAvailableCells();
+	        kernels.floodFill(reached, available);
+	        reached.and(available);
+	        return reached;
+	    }
+	    int[] queue = new int[topology.getCellCount()];
+	    int head = 0;
+	    int tail = 0;
+	    queue[tail++] = cell;
+	    while (head < tail) {
+	        final int current = queue[head++];
+	        final int end = topology.getEdgeEnd(current);
+	        for (int e = topology.getEdgeStart(current); e < end; e++) {
+	            final int next = topology.getNeighbourAt(e);
+	            if (!reached.get(next) && !unavailable.get(next)) {
+	                reached.set(next);
+	                queue[tail++] = next;
 	            }
 	        }
 	    }
-	    
+	    if (unavailable.get(cell)) {
+	        reached.clear(cell);
+	    }
+	    return reached;
 	}
 	
 	/**
-	 * Initialize the availability matrix, marking all locations as available.
+	 * Get the set of cells which have been marked unavailable.
 	 * 
-	 * @modifies availability
-	 * @result All locations are marked as available.
+	 * @return A new BitBoard containing every unavailable cell, indexed by
+	 *         x + y*dimension.
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
 	 */
-	private void initializeAvailability() {
-	    for (int x = 0; x < dimension; x++) {
-	        for (int y = 0; y < dimension; y++) {
-	            availability[x][y] = LocationState.AVAILABLE;
+	public BitBoard getUnavailableCells() {
+	    checkDense();
+	    return unavailable.clone();
+	}
+
+	/**
+	 * Get 64 cells of the set of unavailable cells without copying the
+	 * set, for callers that must not allocate.
+	 * 
+	 * @requires index in [0, number of words of the board's cells).
+	 * @param index The index of the word; bit b of word w is the cell
+	 *        64*w + b.
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 * @return The word of unavailable cells.
+	 */
+	public long getUnavailableWord(final int index) {
+	    checkDense();
+	    return unavailable.getWord(index);
+	}
+	
+	/**
+	 * Copy the set of unavailable cells into an existing BitBoard, for
+	 * callers that must not allocate.
+	 * 
+	 * @requires target has the dimension of this board.
+	 * @param target The BitBoard to overwrite.
+	 * @modifies target
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 */
+	public void copyUnavailableCells(final BitBoard target) {
+	    checkDense();
+	    target.copyFrom(unavailable);
+	}
+
+	/**
+	 * Create an independent board with the same topology and the same
+	 * unavailable cells, for example for a search on another thread. The
+	 * copy starts with an empty move log and undo stack.
+	 *
+	 * @throws InvalidStateException (unchecked) if the board is not DENSE.
+	 * @return The copy.
+	 */
+	public Board copy() {
+	    checkDense();
+	    Board copy = new Board(dimension, storage, topology);
+	    for (int cell = unavailable.nextSetBit(0); cell >= 0;
+	            cell = unavailable.nextSetBit(cell + 1)) {
+	        copy.changeAvailability(cell % dimension, cell / dimension, true);
+	    }
+	    return copy;
+	}
+
+	/**
+	 * Make this board's unavailable cells match another board's, as copy
+	 * would, but changing only the cells that differ. A board kept as a
+	 * copy can so follow the original from move to move at the cost of a
+	 * pass over the words of availability, without being rebuilt.
+	 *
+	 * @requires source has this board's dimension and topology, and this
+	 *           board has no moves to undo.
+	 * @param source The board to match.
+	 * @modifies availability, neighbourInfo, zobristKey, unavailableCount
+	 * @throws InvalidStateException (unchecked) if either board is not
+	 *         DENSE, or the dimensions differ.
+	 */
+	public void copyUnavailableCellsFrom(final Board source) {
+	    checkDense();
+	    source.checkDense();
+	    if (source.getDimension() != getDimension()) {
+	        throw new InvalidStateException("Boards differ in dimension.");
+	    }
+	    for (int word = 0; word < unavailable.getWordCount(); word++) {
+	        long changed = unavailable.getWord(word)
+	                ^ source.unavailable.getWord(word);
+	        while (changed != 0) {
+	            final int cell = (word << 6) + Long.numberOfTrailingZeros(changed);
+	            changed &= changed - 1;
+	            changeAvailability(cell % dimension, cell / dimension,
+	                    source.unavailable.get(cell));
+	        }
+	    }
+	}
+
+	/**
+	 * Count the cells which are still available.
+	 * 
+	 * @return The number of available cells on the board.
+	 */
+	public long countAvailable() {
+	    return (long) dimension * dimension - unavailableCount;
+	}
+	
+	/**
+	 * Get the amount of memory used to hold cell availability.
+	 * 
+	 * @return The number of bytes backing the availability of this board.
+	 */
+	public long getAvailabilityBytes() {
+	    if (storage == Storage.DENSE) {
+	        return (long) unavailable.getWordCount() * 8;
+	    }
+	    return unavailableTiles.getAllocatedBytes();
+	}
+	
+	/**
+	 * Build the snapshot chunks from the current availability.
+	 * 
+	 * @modifies snapshotChunks, chunkEpoch
+	 */
+	private void initializeSnapshotChunks() {
+	    final int chunkCount = ((dimension * dimension - 1)
+	            >>> BoardSnapshot.CHUNK_SHIFT) + 1;
+	    snapshotChunks = new long[chunkCount][BoardSnapshot.CHUNK_WORDS];
+	    chunkEpoch = new int[chunkCount];
+	    for (int word = 0; word < unavailable.getWordCount(); word++) {
+	        snapshotChunks[word / BoardSnapshot.CHUNK_WORDS]
+	                      [word % BoardSnapshot.CHUNK_WORDS] = unavailable.getWord(word);
+	    }
+	    Arrays.fill(chunkEpoch, snapshotEpoch);
+	}
+	
+	/**
+	 * Write a cell into the snapshot chunks, first copying its chunk if the
+	 * chunk is shared with a published snapshot.
+	 * 
+	 * @modifies snapshotChunks, chunkEpoch
+	 */
+	private void writeSnapshotChunk(final int cell, final boolean makeUnavailable) {
+	    final int chunkIndex = cell >>> BoardSnapshot.CHUNK_SHIFT;
+	    long[] chunk = snapshotChunks[chunkIndex];
+	    if (chunkEpoch[chunkIndex] != snapshotEpoch) {
+	        chunk = chunk.clone();
+	        snapshotChunks[chunkIndex] = chunk;
+	        chunkEpoch[chunkIndex] = snapshotEpoch;
+	    }
+	    final int word = (cell & (BoardSnapshot.CHUNK_CELLS - 1)) >>> 6;
+	    if (makeUnavailable) {
+	        chunk[word] |= 1L << cell;
+	    } else {
+	        chunk[word] &= ~(1L << cell);
+	    }
+	}
+	
+	/**
+	 * Check a cell's availability without building a Location, for
+	 * derived structures that scan many cells.
+	 */
+	boolean isUnavailable(final int x, final int y) {
+	    if (unavailable != null) {
+	        return unavailable.get(x, y);
+	    }
+	    return unavailableTiles.contains(x, y);
+	}
+	
+	private void markUnavailable(final int x, final int y) {
+	    if (unavailable != null) {
+	        unavailable.set(unavailable.getIndex(x, y));
+	    } else {
+	        unavailableTiles.add(x, y);
+	    }
+	}
+	
+	private void markAvailable(final int x, final int y) {
+	    if (unavailable != null) {
+	        unavailable.clear(unavailable.getIndex(x, y));
+	    } else {
+	        unavailableTiles.remove(x, y);
+	    }
+	}
+	
+	/**
+	 * Compute the free-neighbour mask of a cell from availability alone.
+	 * 
+	 * @return The OR of Direction.getBit() over all available neighbours.
+	 */
+	private int computeFreeNeighbourMask(final int x, final int y) {
+	    int mask = 0;
+	    if (y + 1 < dimension && !isUnavailable(x, y + 1)) {
+	        mask |= Direction.NORTH.getBit();
+	    }
+	    if (y - 1 >= 0 && !isUnavailable(x, y - 1)) {
+	        mask |= Direction.SOUTH.getBit();
+	    }
+	    if (x + 1 < dimension && !isUnavailable(x + 1, y)) {
+	        mask |= Direction.EAST.getBit();
+	    }
+	    if (x - 1 >= 0 && !isUnavailable(x - 1, y)) {
+	        mask |= Direction.WEST.getBit();
+	    }
+	    return mask;
+	}
+	
+	/**
+	 * Initialize the neighbour masks and degrees of an empty board, then
+	 * mark the topology's obstacles unavailable.
+	 * 
+	 * @modifies neighbourInfo, availability
+	 * @result Every cell records all of its neighbours in the topology as
+	 *         free, except obstacles.
+	 */
+	private void initializeNeighbourInfo() {
+	    for (int cell = 0; cell < dimension * dimension; cell++) {
+	        int mask = 0;
+	        for (int e = topology.getEdgeStart(cell); e < topology.getEdgeEnd(cell); e++) {
+	            mask |= 1 << topology.getLabelAt(e);
+	        }
+	        neighbourInfo[cell] = (short) (mask | (Integer.bitCount(mask) << 8));
+	    }
+	    for (int cell = 0; cell < dimension * dimension; cell++) {
+	        if (topology.isBlocked(cell)) {
+	            changeAvailability(cell % dimension, cell / dimension, true);
+	        }
+	    }
+	}
+	
+	/**
+	 * Record that a cell changed availability in the masks of its
+	 * neighbours.
+	 * 
+	 * @param cell The index of the changed cell.
+	 * @param nowAvailable true if the cell became available.
+	 * @modifies neighbourInfo
+	 */
+	private void updateNeighbourInfo(final int cell, final boolean nowAvailable) {
+	    final int end = topology.getEdgeEnd(cell);
+	    for (int e = topology.getEdgeStart(cell); e < end; e++) {
+	        final int neighbour = topology.getNeighbourAt(e);
+	        final int bit = 1 << topology.getReverseLabelAt(e);
+	        int info = neighbourInfo[neighbour];
+	        if (nowAvailable) {
+	            info = (info | bit) + 0x100;
+	        } else {
+	            info = (info & ~bit) - 0x100;
 	        }
+	        neighbourInfo[neighbour] = (short) info;
+	    }
+	}
+	
+	private void checkCardinal() {
+	    if (topology != null && !topology.hasCardinalLabels()) {
+	        throw new InvalidStateException(
+	                "Board topology has no cardinal directions.");
+	    }
+	}
+	
+	private void checkLocation(final Location location) {
+	    if (location.getUpperBound() != dimension - 1) {
+	        throw new InvalidStateException("Invalid location for this board.");
+	    }
+	}
+	
+	private void checkCellIndexable() {
+	    if ((long) dimension * dimension > Integer.MAX_VALUE) {
+	        throw new InvalidStateException(
+	                "Board is too large for cell indices.");
+	    }
+	}
+	
+	private void checkCell(final int cell) {
+	    checkCellIndexable();
+	    if (cell < 0 || cell >= dimension * dimension) {
+	        throw new InvalidStateException("Invalid cell for this board.");
+	    }
+	}
+	
+	private void checkDense() {
+	    if (storage != Storage.DENSE) {
+	        throw new InvalidStateException(
+	                "Operation requires a DENSE board.");
 	    }
 	}
 
@@ -244,35 +1253,7 @@ public class Board {
         serialized.append("\tMODE     : " + mode.toString() + "\n");
         serialized.append("START_CONFIG\n\n");
         
-        int first = 1;
-        int player = 1;
-        Location lastLocation = new Location(0,0,1);
-        
-        for (Location change : changeLog) {
-            if (first == 1) {
-                lastLocation = change;
-                first = 0;
-                player = 2;
-            } else {
-                if (player == 2) {
-                    serialized.append("START_BOARD\n");
-                    serialized.append("\tP1_LOCATION: " + lastLocation.toString() + "\n");
-                    serialized.append("\tP2_LOCATION: " + change.toString() + "\n");
-                    serialized.append("END_BOARD\n\n");
-                    
-                    player = 1;
-                } else {
-                    serialized.append("START_BOARD\n");
-                    serialized.append("\tP1_LOCATION: " + change.toString() + "\n");
-                    serialized.append("\tP2_LOCATION: " + lastLocation.toString() + "\n");
-                    serialized.append("END_BOARD\n\n");
-                    
-                    player = 2;
-                }
-
-                lastLocation = change;
-            }
-        }
+        moveLog.appendBoards(serialized);
         
         return serialized.toString();
     }
@@ -130,14 +130,14 @@ public class BoardFrame extends JFrame {
         game.addMoveListener(new ActionListener() {
 
             public void actionPerformed(ActionEvent e) {
-                updateBoard((Player) e.getSource());
+                renderLater(game.getSnapshot());
             }
         });
 
         game.addWinListener(new ActionListener() {
 
             public void actionPerformed(ActionEvent e) {
-                gameWon((Player) e.getSource());
+                renderLater(game.getSnapshot());
             }
         });
 
@@ -152,74 +152,74 @@ public class BoardFrame extends JFrame {
                     new Location(dimension / 2, dimension - 1, dimension - 1),
                     new Location(dimension / 2, 0, dimension - 1));
         }
+        renderLater(game.getSnapshot());
     }
 
     /**
-     * Redraw player whenever it moves.
-     * 
-     * @param oldLocation
-     *            The Player's location before movement.
-     * @param player
-     *            The player object which moved (containing its new location).
+     * Redraw the board on the event dispatch thread. Listeners may run on a
+     * bot thread, so the board is drawn from an immutable snapshot of the
+     * game rather than from the live board.
      * 
+     * @param snapshot
+     *            The snapshot to draw, or null to draw nothing.
      */
-    private void updateBoard(Player player) {
-        String name = player.getName();
-        String marker;
-        Color color;
-        if (name == PLAYER1_NAME) {
-            marker = PLAYER1_MARKER;
-            color = PLAYER1_COLOR;
-        } else {
-            marker = PLAYER2_MARKER;
-            color = PLAYER2_COLOR;
+    private void renderLater(final GameSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
         }
+        EventQueue.invokeLater(new Runnable() {
 
-        setInfoLabelText(
-                "Turn: " + (game.getCurrentPlayer().getName() == PLAYER1_NAME
-                        ? PLAYER2_MARKER : PLAYER1_MARKER));
-
-        Location location = player.getLocation();
-        Map.Entry<JButton, Location> srcBtnLoc = null;
-        Map.Entry<JButton, Location> destBtnLoc = null;
-
-        for (Map.Entry<JButton, Location> entry : buttonPoint.entrySet()) {
-            if (entry.getKey().getText() == name) {
-                entry.getKey().setBackground(this.UNAVAILABLE_COLOR);
-                entry.getKey().setText("");
-
-                srcBtnLoc = entry;
-            }
-            if (entry.getValue().equals(location)) {
-                entry.getKey().setBackground(color);
-                entry.getKey().setText(marker);
-
-                destBtnLoc = entry;
+            public void run() {
+                render(snapshot);
             }
-        }
-
-        System.out.println("Player moved: " + srcBtnLoc.getValue().toString()
-                + " to " + player.getLocation().toString());
+        });
     }
 
     /**
-     * Respond to the game being won.
+     * Redraw every cell, both players and the info label from a snapshot.
+     * 
+     * @param snapshot
+     *            The state of the game to draw.
      */
-    private void gameWon(Player winner) {
-        setInfoLabelText(
-                "WINNER: " + (game.getWinner().getName() == PLAYER1_NAME
-                        ? PLAYER1_MARKER : PLAYER2_MARKER) + "!");
+    private void render(GameSnapshot snapshot) {
+        BoardSnapshot cells = snapshot.getBoard();
+        Location first = snapshot.getPlayerLocation(0);
+        Location second = snapshot.getPlayerLocation(1);
+        boolean won = snapshot.getWinnerIndex() >= 0;
+
         for (Map.Entry<JButton, Location> entry : buttonPoint.entrySet()) {
-            Color bgColor = entry.getKey().getBackground();
-            if (bgColor != UNAVAILABLE_COLOR &&
-                    bgColor != PLAYER1_COLOR &&
-                    bgColor != PLAYER2_COLOR) {
-                entry.getKey().setBackground(WIN_COLOR);
+            JButton button = entry.getKey();
+            Location location = entry.getValue();
+            if (location.equals(first)) {
+                button.setBackground(this.PLAYER1_COLOR);
+                button.setText(this.PLAYER1_MARKER);
+            } else if (location.equals(second)) {
+                button.setBackground(this.PLAYER2_COLOR);
+                button.setText(this.PLAYER2_MARKER);
+            } else if (cells.getStateAt(location)
+                    == Board.LocationState.UNAVAILABLE) {
+                button.setBackground(this.UNAVAILABLE_COLOR);
+                button.setText("");
+            } else {
+                button.setBackground(won ? this.WIN_COLOR : null);
+                button.setText("");
             }
         }
+
+        if (won) {
+            setInfoLabelText("WINNER: " + getMarker(snapshot.getWinnerIndex())
+                    + "!");
+        } else {
+            setInfoLabelText("Turn: "
+                    + getMarker(snapshot.getCurrentPlayerIndex()));
+        }
         this.repaint();
     }
 
+    private String getMarker(int playerIndex) {
+        return playerIndex == 0 ? PLAYER1_MARKER : PLAYER2_MARKER;
+    }
+
     /**
      * Initialize the contents of the frame.
      */
@@ -0,0 +1,125 @@
+/**
+ * An immutable view of a Board's availability at one point in time, safe
+ * to read from any thread without locking.
+ *
+ * Unavailable cells are held in fixed-size chunks of CHUNK_WORDS long words.
+ * Successive snapshots of the same board share every chunk that did not
+ * change between them; the Board copies a chunk only the first time it is
+ * written after being published.
+ *
+ * Abstraction function:
+ * Cell i is unavailable iff bit (i % 64) of chunks[i / CHUNK_CELLS]
+ * [(i % CHUNK_CELLS) / 64] is set.
+ *
+ * @invariant Neither the chunk array nor any chunk it refers to is ever
+ *            modified once the snapshot has been created.
+ */
+public final class BoardSnapshot {
+
+    /** Number of long words per chunk. */
+    public static final int CHUNK_WORDS = 64;
+    /** Number of cells per chunk. */
+    public static final int CHUNK_CELLS = CHUNK_WORDS * 64;
+
+    static final int CHUNK_SHIFT = 12;
+
+    private final int      dimension;
+    private final long[][] chunks;
+    private final long     zobristKey;
+    private final int      unavailableCount;
+    private final int      changeCount;
+
+    /**
+     * Create a snapshot. Only Board creates snapshots, handing over a chunk
+     * array it will never modify again.
+     */
+    BoardSnapshot(final int dimension, final long[][] chunks,
+            final long zobristKey, final int unavailableCount,
+            final int changeCount) {
+        this.dimension = dimension;
+        this.chunks = chunks;
+        this.zobristKey = zobristKey;
+        this.unavailableCount = unavailableCount;
+        this.changeCount = changeCount;
+    }
+
+    /**
+     * Get the dimension of the board.
+     *
+     * @return Dimension of the board.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Get the state of a given location at the time of the snapshot.
+     *
+     * @requires location must be constrained to dimension - 1.
+     * @param location The location to check.
+     * @throws InvalidStateException (unchecked) if location
+     *         is constrained to anything other than dimension - 1.
+     * @return The state of this location.
+     */
+    public Board.LocationState getStateAt(final Location location) {
+        if (location.getUpperBound() != dimension - 1) {
+            throw new InvalidStateException("Invalid location for this board.");
+        }
+        return isUnavailable(location.getIndex())
+                ? Board.LocationState.UNAVAILABLE
+                : Board.LocationState.AVAILABLE;
+    }
+
+    /**
+     * Check whether a cell was unavailable at the time of the snapshot.
+     *
+     * @requires cell in [0, dimension*dimension - 1].
+     * @param cell The index x + y*dimension of the cell.
+     * @return true if the cell was unavailable. false otherwise.
+     */
+    public boolean isUnavailable(final int cell) {
+        long word = chunks[cell >>> CHUNK_SHIFT][(cell & (CHUNK_CELLS - 1)) >>> 6];
+        return (word & (1L << cell)) != 0;
+    }
+
+    /**
+     * Get the number of unavailable cells at the time of the snapshot.
+     *
+     * @return The number of unavailable cells.
+     */
+    public int getUnavailableCount() {
+        return this.unavailableCount;
+    }
+
+    /**
+     * Get the board's Zobrist key at the time of the snapshot.
+     *
+     * @return The XOR of the keys of every unavailable cell.
+     */
+    public long getZobristKey() {
+        return this.zobristKey;
+    }
+
+    /**
+     * Get the number of entries in the board's move log at the time of
+     * the snapshot.
+     *
+     * @return The number of recorded changes.
+     */
+    public int getChangeCount() {
+        return this.changeCount;
+    }
+
+    /**
+     * Check whether this snapshot and another share the storage of a chunk,
+     * meaning that no cell in it changed between them.
+     *
+     * @requires that is a snapshot of the same board.
+     * @param that The snapshot to compare with.
+     * @param chunk The index of the chunk.
+     * @return true if both snapshots hold the same chunk instance.
+     */
+    public boolean sharesChunkWith(final BoardSnapshot that, final int chunk) {
+        return this.chunks[chunk] == that.chunks[chunk];
+    }
+}
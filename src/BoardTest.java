@@ -123,6 +123,214 @@ public class BoardTest {
         
     }
     
+    @Test
+    public void testNeighbourMaskAndDegree() {
+        Board testBoard = new Board(7);
+        Location centre = new Location(3, 3, 6);
+        assertEquals(4, testBoard.getDegreeAt(centre));
+        assertEquals(2, testBoard.getDegreeAt(new Location(0, 0, 6)));
+        
+        testBoard.setStateAt(centre.cloneOffset(Direction.NORTH), Board.LocationState.UNAVAILABLE);
+        testBoard.setStateAt(centre.cloneOffset(Direction.WEST), Board.LocationState.UNAVAILABLE);
+        testBoard.setStateAt(centre.cloneOffset(Direction.WEST), Board.LocationState.UNAVAILABLE);
+        
+        assertEquals(2, testBoard.getDegreeAt(centre));
+        assertEquals(Direction.SOUTH.getBit() | Direction.EAST.getBit(),
+                testBoard.getFreeNeighbourMask(centre));
+        assertTrue(testBoard.hasAvailableMove(centre));
+        
+        testBoard.setStateAt(centre.cloneOffset(Direction.WEST), Board.LocationState.AVAILABLE);
+        assertEquals(3, testBoard.getDegreeAt(centre));
+    }
+    
+    @Test
+    public void testAvailableDirectionsAreShared() {
+        Board testBoard = new Board(7);
+        Location location = new Location(2, 2, 6);
+        assertSame(testBoard.getAvailableDirectionsAt(location),
+                testBoard.getAvailableDirectionsAt(new Location(4, 4, 6)));
+    }
+    
+    @Test
+    public void testCellIndexOverloads() {
+        Board testBoard = new Board(7);
+        Location location = new Location(2, 5, 6);
+        int cell = testBoard.getCellIndex(location);
+        assertEquals(2 + 5 * 7, cell);
+        assertSame(Location.of(2, 5, 6), testBoard.getLocationOf(cell));
+        
+        testBoard.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+        assertEquals(Board.LocationState.UNAVAILABLE, testBoard.getStateAt(location));
+        assertEquals(3, testBoard.getDegreeAt(
+                testBoard.getNeighbourCell(cell, Direction.SOUTH)));
+        assertEquals(-1, testBoard.getNeighbourCell(6, Direction.EAST));
+    }
+    
+    @Test
+    public void testMakeUnmakeMove() {
+        Board testBoard = new Board(7);
+        Location start = new Location(3, 3, 6);
+        testBoard.setStateAt(start, Board.LocationState.UNAVAILABLE);
+        String before = testBoard.serialize(Game.Mode.TWO_PLAYER);
+        
+        int north = testBoard.getNeighbourCell(testBoard.getCellIndex(start), Direction.NORTH);
+        testBoard.makeMove(north);
+        testBoard.makeMove(testBoard.getNeighbourCell(north, Direction.EAST));
+        assertEquals(2, testBoard.getUndoDepth());
+        assertEquals(Board.LocationState.UNAVAILABLE, testBoard.getStateAt(north));
+        assertEquals(3, testBoard.getDegreeAt(start));
+        
+        assertEquals(north + 1, testBoard.unmakeMove());
+        assertEquals(north, testBoard.unmakeMove());
+        assertEquals(Board.LocationState.AVAILABLE, testBoard.getStateAt(north));
+        assertEquals(4, testBoard.getDegreeAt(start));
+        assertEquals(Board.LocationState.UNAVAILABLE, testBoard.getStateAt(start));
+        assertEquals(before, testBoard.serialize(Game.Mode.TWO_PLAYER));
+    }
+    
+    @Test
+    public void testMakeUnmakeDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = java.lang.management
+                .ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        Board testBoard = new Board(16);
+        testBoard.setStateAt(new Location(0, 0, 15), Board.LocationState.UNAVAILABLE);
+        testBoard.setStateAt(new Location(0, 15, 15), Board.LocationState.UNAVAILABLE);
+        /* Walk well past a move log checkpoint, then back. */
+        int[] path = new int[2 * 15 * 7];
+        int length = 0;
+        for (int y = 1; y < 15; y += 2) {
+            for (int x = 0; x < 15; x++) {
+                path[length++] = x + y * 16;
+            }
+            for (int x = 14; x >= 0; x--) {
+                path[length++] = x + (y + 1) * 16;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            testBoard.makeMove(path[i]);
+        }
+        for (int i = 0; i < length; i++) {
+            testBoard.unmakeMove();
+        }
+
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < length; i++) {
+                testBoard.makeMove(path[i]);
+            }
+            for (int i = 0; i < length; i++) {
+                testBoard.unmakeMove();
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - start;
+        assertEquals("Make and unmake allocated " + allocated + " bytes",
+                0, allocated);
+    }
+    
+    @Test(expected = InvalidStateException.class)
+    public void testUnmakeMoveEmpty() {
+        Board testBoard = new Board(7);
+        testBoard.unmakeMove();
+    }
+    
+    @Test
+    public void testZobristKeyIndependentOfOrder() {
+        Board board1 = new Board(7);
+        Board board2 = new Board(7);
+        board1.setStateAt(new Location(1, 2, 6), Board.LocationState.UNAVAILABLE);
+        board1.setStateAt(new Location(5, 5, 6), Board.LocationState.UNAVAILABLE);
+        board2.setStateAt(new Location(5, 5, 6), Board.LocationState.UNAVAILABLE);
+        assertTrue(board1.getZobristKey() != board2.getZobristKey());
+        
+        board2.setStateAt(new Location(1, 2, 6), Board.LocationState.UNAVAILABLE);
+        assertEquals(board1.getZobristKey(), board2.getZobristKey());
+        
+        long before = board1.getZobristKey();
+        board1.makeMove(new Location(3, 3, 6));
+        assertTrue(before != board1.getZobristKey());
+        board1.unmakeMove();
+        assertEquals(before, board1.getZobristKey());
+    }
+    
+    @Test
+    public void testSnapshotIsImmutableAndShared() {
+        Board testBoard = new Board(100);
+        Location near = new Location(1, 1, 99);
+        Location far = new Location(98, 98, 99);
+        testBoard.setStateAt(near, Board.LocationState.UNAVAILABLE);
+        BoardSnapshot first = testBoard.publishSnapshot();
+        
+        testBoard.setStateAt(far, Board.LocationState.UNAVAILABLE);
+        assertEquals(Board.LocationState.AVAILABLE, first.getStateAt(far));
+        assertEquals(1, first.getUnavailableCount());
+        
+        BoardSnapshot second = testBoard.publishSnapshot();
+        assertSame(second, testBoard.getSnapshot());
+        assertEquals(Board.LocationState.UNAVAILABLE, second.getStateAt(far));
+        assertEquals(testBoard.getZobristKey(), second.getZobristKey());
+        assertTrue(second.sharesChunkWith(first, 0));
+        assertFalse(second.sharesChunkWith(first, far.getIndex() / BoardSnapshot.CHUNK_CELLS));
+    }
+    
+    @Test
+    public void testUnavailableWordsWithoutCopy() {
+        Board testBoard = new Board(9);
+        testBoard.setStateAt(3, Board.LocationState.UNAVAILABLE);
+        testBoard.setStateAt(70, Board.LocationState.UNAVAILABLE);
+        BitBoard copy = testBoard.getUnavailableCells();
+        assertEquals(copy.getWord(0), testBoard.getUnavailableWord(0));
+        assertEquals(copy.getWord(1), testBoard.getUnavailableWord(1));
+        assertEquals(1L << 6, testBoard.getUnavailableWord(1));
+    }
+    
+    @Test
+    public void constructHugeTiled() {
+        Board testBoard = new Board(50000, Board.Storage.TILED);
+        assertEquals(0, testBoard.getAvailabilityBytes());
+        assertEquals(50000L * 50000L, testBoard.countAvailable());
+    }
+    
+    @Test
+    public void testSetStateHugeTiled() {
+        Board testBoard = new Board(50000, Board.Storage.TILED);
+        Location corner = new Location(49999, 49999, 49999);
+        
+        testBoard.setStateAt(corner.cloneOffset(-1, 0), Board.LocationState.UNAVAILABLE);
+        testBoard.setStateAt(corner.cloneOffset(0, -1), Board.LocationState.UNAVAILABLE);
+        
+        assertEquals(Board.LocationState.UNAVAILABLE,
+                testBoard.getStateAt(corner.cloneOffset(0, -1)));
+        assertEquals(Board.LocationState.AVAILABLE, testBoard.getStateAt(corner));
+        assertTrue(testBoard.getAvailableDirectionsAt(corner).isEmpty());
+        assertEquals(TiledCellSet.SLAB_BYTES, testBoard.getAvailabilityBytes());
+        assertEquals(50000L * 50000L - 2, testBoard.countAvailable());
+    }
+    
+    @Test
+    public void testTiledBytesCountWholeSlabs() {
+        TiledCellSet cells = new TiledCellSet(50000);
+        /* One cell in each of the first 64 tiles fills exactly one slab. */
+        for (int i = 0; i < 64; i++) {
+            cells.add(i * TiledCellSet.TILE_WIDTH, 0);
+        }
+        assertEquals(64, cells.getAllocatedTileCount());
+        assertEquals(TiledCellSet.SLAB_BYTES, cells.getAllocatedBytes());
+        cells.add(64 * TiledCellSet.TILE_WIDTH, 0);
+        assertEquals(65, cells.getAllocatedTileCount());
+        assertEquals(2L * TiledCellSet.SLAB_BYTES, cells.getAllocatedBytes());
+    }
+    
     @Test
     public void testSerialize() {
         Board testBoard = new Board(7);
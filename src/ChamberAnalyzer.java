@@ -0,0 +1,294 @@
+import java.util.Arrays;
+
+/**
+ * Cheap bounds on how many moves a player can still make, from the
+ * structure of the area it can reach.
+ *
+ * The area is split at its articulation points into chambers (biconnected
+ * blocks). A walk that leaves a chamber through an articulation point can
+ * never come back, so it collects cells from one chamber per level of the
+ * block-cut tree rooted at the player. Inside a chamber, a walk on a
+ * bipartite grid alternates checkerboard colours, so it visits at most
+ * one more cell of the colour opposite its entry than of the entry's own
+ * colour. The upper bound is the best sum of those chamber bounds along a
+ * root-to-leaf path of the tree. The lower bound is the depth of the DFS
+ * tree, which is itself a walk.
+ *
+ * Results are cached against the versions of the regions next to the
+ * player's cell, so a player whose regions were untouched by the last move
+ * is answered without searching.
+ */
+public final class ChamberAnalyzer {
+
+    private static final int CACHE_SIZE = 4;
+
+    private final Board board;
+    /* The unavailable cells to read instead of the board's, or null. */
+    private final BitBoard blocked;
+    private final Topology topology;
+    private final ZobristKeys keys;
+    private final boolean bipartite;
+
+    /* Iterative Tarjan state; a cell is discovered iff seen[c] == stamp. */
+    private final int[] seen;
+    private final int[] order;
+    private final int[] low;
+    private final int[] depth;
+    private final int[] cursor;
+    private final int[] reach;
+    private final int[] dfsStack;
+    private final int[] blockStack;
+    private int stamp = 0;
+    private int lastDepth = 0;
+
+    private final long[] cacheKeys = new long[CACHE_SIZE];
+    private final LongestPathSolver.Bound[] cacheBounds =
+            new LongestPathSolver.Bound[CACHE_SIZE];
+    private int cacheNext = 0;
+
+    /**
+     * Create an analyzer for a board. The analyzer reads the board's
+     * current availability on every call.
+     *
+     * @requires board is DENSE.
+     * @param board The board to analyse.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    public ChamberAnalyzer(final Board board) {
+        this(board, null);
+    }
+
+    /**
+     * Create an analyzer that reads availability from a BitBoard of
+     * unavailable cells rather than from the board, such as the private
+     * state of a search. Results are then never cached, since the board's
+     * region versions do not follow the BitBoard.
+     *
+     * @requires board is DENSE, and blocked is null or has the dimension
+     *           of the board.
+     * @param board The board whose cell graph to analyse.
+     * @param blocked The unavailable cells, read on every call, or null to
+     *        read the board's.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    ChamberAnalyzer(final Board board, final BitBoard blocked) {
+        if (board.getStorage() != Board.Storage.DENSE) {
+            throw new InvalidStateException(
+                    "Operation requires a DENSE board.");
+        }
+        this.board = board;
+        this.blocked = blocked;
+        this.topology = board.getTopology();
+        this.keys = board.getZobristKeys();
+        this.bipartite = isBipartite(topology);
+        final int cells = topology.getCellCount();
+        this.seen = new int[cells];
+        this.order = new int[cells];
+        this.low = new int[cells];
+        this.depth = new int[cells];
+        this.cursor = new int[cells];
+        this.reach = new int[cells];
+        this.dfsStack = new int[cells];
+        this.blockStack = new int[cells];
+    }
+
+    /**
+     * Check whether walks on a topology alternate checkerboard colours.
+     *
+     * @param topology The cell graph.
+     * @return true for square grids, masked or not, and tori of even
+     *         dimension. false otherwise.
+     */
+    public static boolean isBipartite(final Topology topology) {
+        switch (topology.getKind()) {
+        case SQUARE:
+        case MASKED:
+            return true;
+        case TORUS:
+            return topology.getDimension() % 2 == 0;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Bound the length of a walk that alternates colours, given the number
+     * of cells of each colour it may use.
+     *
+     * @param opposite The number of usable cells of the colour opposite the
+     *        walk's starting cell, which the walk enters first.
+     * @param same The number of usable cells of the starting cell's colour.
+     * @param bipartite true if walks alternate colours.
+     * @return The longest length the colour counts allow.
+     */
+    public static int parityBound(final int opposite, final int same,
+            final boolean bipartite) {
+        if (!bipartite) {
+            return opposite + same;
+        }
+        return Math.min(2 * opposite, 2 * same + 1);
+    }
+
+    /**
+     * Bound the number of moves a player standing on a cell can still make,
+     * ignoring the other player.
+     *
+     * @requires cell in [0, dimension*dimension - 1].
+     * @param cell The index of the player's cell.
+     * @return Bounds on the longest walk from the cell.
+     */
+    public LongestPathSolver.Bound analyze(final int cell) {
+        if (blocked != null) {
+            final int upper = search(cell, null, 0);
+            return new LongestPathSolver.Bound(Math.min(lastDepth, upper),
+                    upper);
+        }
+        final long key = getCacheKey(cell);
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (cacheBounds[i] != null && cacheKeys[i] == key) {
+                return cacheBounds[i];
+            }
+        }
+        final int upper = search(cell, null, 0);
+        LongestPathSolver.Bound bound = new LongestPathSolver.Bound(
+                Math.min(lastDepth, upper), upper);
+        cacheKeys[cacheNext] = key;
+        cacheBounds[cacheNext] = bound;
+        cacheNext = (cacheNext + 1) % CACHE_SIZE;
+        return bound;
+    }
+
+    /**
+     * Bound the number of moves a player can make without leaving a set
+     * of cells, such as its territory, by the same chamber analysis.
+     *
+     * @requires start in [0, dimension*dimension - 1], owner has one entry
+     *           per cell.
+     * @param start The index of the player's cell.
+     * @param owner Labels of the cells; only available cells labelled
+     *        label may be entered.
+     * @param label The label of the allowed cells.
+     * @return An upper bound on the longest walk inside the set.
+     */
+    int boundWithin(final int start, final int[] owner, final int label) {
+        return search(start, owner, label);
+    }
+
+    /**
+     * Run Tarjan's articulation point search from a cell, folding each
+     * chamber into the bound of the articulation point above it as the
+     * chamber is closed. Without an owner array every available cell may be
+     * entered. Sets lastDepth to the depth of the DFS tree.
+     *
+     * @return The upper bound on the longest walk.
+     */
+    private int search(final int start, final int[] owner, final int label) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        final int startColour = getColour(start);
+        int counter = 0;
+        int deepest = 0;
+        int opposite = 0;
+        int same = 0;
+        int top = 0;
+        int blockTop = 0;
+
+        seen[start] = stamp;
+        order[start] = low[start] = counter++;
+        depth[start] = 0;
+        reach[start] = 0;
+        cursor[start] = topology.getEdgeStart(start);
+        dfsStack[top++] = start;
+
+        while (top > 0) {
+            final int v = dfsStack[top - 1];
+            if (cursor[v] < topology.getEdgeEnd(v)) {
+                final int w = topology.getNeighbourAt(cursor[v]++);
+                if (w != start && (isBlocked(w)
+                        || (owner != null && owner[w] != label))) {
+                    continue;
+                }
+                if (seen[w] == stamp) {
+                    low[v] = Math.min(low[v], order[w]);
+                    continue;
+                }
+                seen[w] = stamp;
+                order[w] = low[w] = counter++;
+                depth[w] = depth[v] + 1;
+                deepest = Math.max(deepest, depth[w]);
+                reach[w] = 0;
+                cursor[w] = topology.getEdgeStart(w);
+                dfsStack[top++] = w;
+                blockStack[blockTop++] = w;
+                if (getColour(w) == startColour) {
+                    same++;
+                } else {
+                    opposite++;
+                }
+                continue;
+            }
+
+            top--;
+            if (top == 0) {
+                break;
+            }
+            final int parent = dfsStack[top - 1];
+            low[parent] = Math.min(low[parent], low[v]);
+            if (low[v] >= order[parent]) {
+                /* Close the chamber hanging from parent. */
+                final int colour = getColour(parent);
+                int blockOpposite = 0;
+                int blockSame = 0;
+                int beyond = 0;
+                int member;
+                do {
+                    member = blockStack[--blockTop];
+                    if (getColour(member) == colour) {
+                        blockSame++;
+                    } else {
+                        blockOpposite++;
+                    }
+                    beyond = Math.max(beyond, reach[member]);
+                } while (member != v);
+                int chamber = parityBound(blockOpposite, blockSame, bipartite)
+                        + beyond;
+                reach[parent] = Math.max(reach[parent], chamber);
+            }
+        }
+
+        lastDepth = deepest;
+        return Math.min(reach[start], parityBound(opposite, same, bipartite));
+    }
+
+    /**
+     * Get a key for the player's cell and the versions of the regions next
+     * to it, which together determine the reachable area.
+     */
+    private long getCacheKey(final int cell) {
+        final RegionTracker regions = board.getRegions();
+        long key = keys.getPlayerKey(0, cell);
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int region = regions.getRegion(topology.getNeighbourAt(e));
+            if (region >= 0) {
+                key += ZobristKeys.mix(((long) region << 32)
+                        | (regions.getRegionVersion(region) & 0xFFFFFFFFL));
+            }
+        }
+        return key;
+    }
+
+    private boolean isBlocked(final int cell) {
+        if (blocked != null) {
+            return blocked.get(cell);
+        }
+        return board.getStateAt(cell) == Board.LocationState.UNAVAILABLE;
+    }
+
+    private int getColour(final int cell) {
+        final int dimension = topology.getDimension();
+        return (cell % dimension + cell / dimension) & 1;
+    }
+}
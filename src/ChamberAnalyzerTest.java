@@ -0,0 +1,85 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ChamberAnalyzerTest {
+
+    @Test
+    public void testParityBound() {
+        assertEquals(7, ChamberAnalyzer.parityBound(4, 3, true));
+        assertEquals(6, ChamberAnalyzer.parityBound(3, 4, true));
+        assertEquals(7, ChamberAnalyzer.parityBound(3, 4, false));
+        assertTrue(ChamberAnalyzer.isBipartite(Topology.torus(6)));
+        assertFalse(ChamberAnalyzer.isBipartite(Topology.torus(5)));
+        assertFalse(ChamberAnalyzer.isBipartite(Topology.hexagonal(6)));
+    }
+
+    @Test
+    public void testChambersBoundDeadEnds() {
+        /* Two 3 by 3 rooms joined by a one-cell door at (3,1); the player
+         * stands in a corridor cell above the left room. */
+        BitBoard obstacles = new BitBoard(7);
+        for (int cell = 0; cell < 49; cell++) {
+            obstacles.set(cell);
+        }
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                obstacles.clear(x + y * 7);
+                obstacles.clear(4 + x + y * 7);
+            }
+        }
+        obstacles.clear(3 + 1 * 7);
+        obstacles.clear(1 + 3 * 7);
+        Board board = new Board(Topology.masked(obstacles));
+        board.setStateAt(1 + 3 * 7, Board.LocationState.UNAVAILABLE);
+
+        LongestPathSolver.Bound bound = new ChamberAnalyzer(board)
+                .analyze(1 + 3 * 7);
+        LongestPathSolver.Bound exact = new LongestPathSolver(board)
+                .solve(1 + 3 * 7);
+        assertTrue(exact.isExact());
+        assertTrue(bound.getLower() <= exact.getLower());
+        assertTrue(bound.getUpper() >= exact.getUpper());
+        /* Without the parity bound the upper bound would be all 19 cells. */
+        assertTrue(bound.getUpper() < 19);
+    }
+
+    @Test
+    public void testBoundsHoldOnRandomBoards() {
+        java.util.Random random = new java.util.Random(11);
+        for (int trial = 0; trial < 20; trial++) {
+            Board board = new Board(6);
+            for (int i = 0; i < 12; i++) {
+                board.setStateAt(random.nextInt(36),
+                        Board.LocationState.UNAVAILABLE);
+            }
+            int start = random.nextInt(36);
+            board.setStateAt(start, Board.LocationState.UNAVAILABLE);
+            LongestPathSolver.Bound bound = new ChamberAnalyzer(board)
+                    .analyze(start);
+            LongestPathSolver.Bound exact = new LongestPathSolver(board)
+                    .solve(start);
+            assertTrue(exact.isExact());
+            assertTrue(bound.getLower() <= exact.getLower());
+            assertTrue(bound.getUpper() >= exact.getUpper());
+        }
+    }
+
+    @Test
+    public void testCachedUntilRegionChanges() {
+        Board board = new Board(6);
+        for (int y = 0; y < 6; y++) {
+            board.setStateAt(3 + y * 6, Board.LocationState.UNAVAILABLE);
+        }
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        ChamberAnalyzer chambers = new ChamberAnalyzer(board);
+        LongestPathSolver.Bound first = chambers.analyze(0 + 0 * 6);
+
+        board.setStateAt(5 + 5 * 6, Board.LocationState.UNAVAILABLE);
+        assertSame(first, chambers.analyze(0 + 0 * 6));
+
+        board.setStateAt(1 + 5 * 6, Board.LocationState.UNAVAILABLE);
+        assertNotSame(first, chambers.analyze(0 + 0 * 6));
+    }
+
+}
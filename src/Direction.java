@@ -1,4 +1,8 @@
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public enum Direction {
     
     NORTH(0, "North/Up"),
@@ -11,6 +15,22 @@ public enum Direction {
     private final int ID;
     private final String text;
 
+    /* Shared, unmodifiable direction lists for every 4-bit direction mask. */
+    private static final List<List<Direction>> MASK_LISTS =
+            new ArrayList<List<Direction>>();
+
+    static {
+        for (int mask = 0; mask < 16; mask++) {
+            List<Direction> directions = new ArrayList<Direction>();
+            for (Direction direction : values()) {
+                if ((mask & direction.getBit()) != 0) {
+                    directions.add(direction);
+                }
+            }
+            MASK_LISTS.add(Collections.unmodifiableList(directions));
+        }
+    }
+
 
     private Direction(final int ID, final String text) {
         this.ID = ID;
@@ -25,4 +45,46 @@ public enum Direction {
         return this.text;
     }
 
+    /**
+     * Get the bit representing this direction in a direction mask.
+     * 
+     * @return 1 << ID for the four cardinal directions, 0 for
+     *         NOT_A_DIRECTION.
+     */
+    public int getBit() {
+        return this == NOT_A_DIRECTION ? 0 : 1 << this.ID;
+    }
+
+    /**
+     * Get the direction pointing the opposite way.
+     * 
+     * @return The opposite direction. NOT_A_DIRECTION is its own opposite.
+     */
+    public Direction getOpposite() {
+        switch (this) {
+        case NORTH:
+            return SOUTH;
+        case SOUTH:
+            return NORTH;
+        case EAST:
+            return WEST;
+        case WEST:
+            return EAST;
+        default:
+            return NOT_A_DIRECTION;
+        }
+    }
+
+    /**
+     * Get the directions contained in a direction mask.
+     * 
+     * @requires mask in [0, 15].
+     * @param mask A combination of direction bits from getBit().
+     * @return A shared, unmodifiable list of the directions in the mask, in
+     *         the order NORTH, SOUTH, EAST, WEST.
+     */
+    public static List<Direction> fromMask(final int mask) {
+        return MASK_LISTS.get(mask);
+    }
+
 }
@@ -0,0 +1,361 @@
+/**
+ * Breadth-first distances from one player's cell to every available cell,
+ * repaired incrementally as the board changes instead of recomputed.
+ *
+ * Distances are stored against a moving origin: cell c is getDistances()[c]
+ * - getOrigin() steps from the player, or unreachable when the entry is
+ * UNREACHABLE. When the player steps to a neighbour, every cell whose
+ * shortest path led through that neighbour gets one step closer; raising
+ * the origin by one moves all of them at once, so only the cells that lost
+ * their shortest path are touched.
+ *
+ * A cell that becomes unavailable can only push distances up: the cells
+ * whose every shortest path ran through it are found level by level, each
+ * checked for another neighbour one step closer, and only those are
+ * relaxed again from the cells around them. A cell that becomes available
+ * can only pull distances down, and is relaxed outwards from itself.
+ *
+ * Abstraction function:
+ * With no source every entry is UNREACHABLE. Otherwise entry[source] ==
+ * origin, and for every other cell c, entry[c] - origin is the length of
+ * the shortest walk from the source to c through available cells, or
+ * entry[c] == UNREACHABLE if there is none.
+ */
+public final class DistanceField {
+
+    /** Entry of a cell that cannot be reached. */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Topology topology;
+    private final BitBoard unavailable;
+    private final int[] distance;
+    private int origin = 0;
+    private int source = -1;
+
+    /* Repair state: a circular queue with membership flags, and the stamp
+     * marking the cells whose distance is being recomputed. */
+    private final int[] queue;
+    private final boolean[] queued;
+    private final int[] affected;
+    private final int[] mark;
+    private int stamp = 0;
+
+    /**
+     * Create a field with no source.
+     *
+     * @requires unavailable has the dimension of topology and is the live
+     *           availability of the board the field belongs to.
+     * @param topology The cell graph of the board.
+     * @param unavailable The cells that are currently unavailable.
+     */
+    DistanceField(final Topology topology, final BitBoard unavailable) {
+        this.topology = topology;
+        this.unavailable = unavailable;
+        final int cells = topology.getCellCount();
+        this.distance = new int[cells];
+        this.queue = new int[cells];
+        this.queued = new boolean[cells];
+        this.affected = new int[cells];
+        this.mark = new int[cells];
+        java.util.Arrays.fill(distance, UNREACHABLE);
+    }
+
+    /**
+     * Get the distance entries. The array is live and must not be
+     * modified; subtract getOrigin() from an entry other than UNREACHABLE
+     * to get a distance.
+     *
+     * @return The entry of every cell, indexed by cell.
+     */
+    public int[] getDistances() {
+        return this.distance;
+    }
+
+    /**
+     * Get the value the entries are measured from.
+     *
+     * @return The entry of the source cell.
+     */
+    public int getOrigin() {
+        return this.origin;
+    }
+
+    /**
+     * Get the number of steps from the source to a cell.
+     *
+     * @requires cell in [0, getCellCount() - 1] of the topology.
+     * @param cell The index of the cell.
+     * @return The distance, or UNREACHABLE.
+     */
+    public int getDistance(final int cell) {
+        final int entry = distance[cell];
+        return entry == UNREACHABLE ? UNREACHABLE : entry - origin;
+    }
+
+    /**
+     * Get the cell distances are measured from.
+     *
+     * @return The index of the player's cell, or -1 if there is none.
+     */
+    public int getSource() {
+        return this.source;
+    }
+
+    /**
+     * Measure distances from a new source. A step to a neighbour that was
+     * one step away, and the reverse step back from it, are repaired
+     * incrementally; any other change recomputes the field.
+     *
+     * @requires The board's availability already reflects the move.
+     * @param cell The index of the new source, or -1 for none.
+     * @modifies this
+     */
+    void moveSource(final int cell) {
+        final int previous = source;
+        if (previous >= 0 && cell >= 0
+                && topology.isNeighbour(previous, cell)) {
+            if (distance[cell] == origin + 1) {
+                stepForward(previous, cell);
+                return;
+            }
+            if (distance[cell] == UNREACHABLE
+                    && !unavailable.get(previous)
+                    && distance[previous] == origin) {
+                stepBack(previous, cell);
+                return;
+            }
+        }
+        recompute(cell);
+    }
+
+    /**
+     * Repair the field after a cell other than the source changed
+     * availability.
+     *
+     * @requires The board's availability already reflects the change.
+     * @param cell The index of the cell that changed.
+     * @modifies this
+     */
+    void update(final int cell) {
+        if (source < 0 || cell == source) {
+            return;
+        }
+        if (unavailable.get(cell)) {
+            if (distance[cell] != UNREACHABLE) {
+                final int level = distance[cell];
+                distance[cell] = UNREACHABLE;
+                raise(cell, level);
+            }
+        } else if (distance[cell] == UNREACHABLE) {
+            final int best = getBestNeighbour(cell, false);
+            if (best != UNREACHABLE) {
+                distance[cell] = best + 1;
+                lower(cell);
+            }
+        }
+    }
+
+    /**
+     * Recompute every distance from scratch by breadth-first search.
+     *
+     * @param cell The index of the source, or -1 for none.
+     * @modifies this
+     */
+    void recompute(final int cell) {
+        java.util.Arrays.fill(distance, UNREACHABLE);
+        source = cell;
+        origin = 0;
+        if (cell < 0) {
+            return;
+        }
+        distance[cell] = 0;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = cell;
+        while (head < tail) {
+            final int current = queue[head++];
+            final int next = distance[current] + 1;
+            final int end = topology.getEdgeEnd(current);
+            for (int e = topology.getEdgeStart(current); e < end; e++) {
+                final int neighbour = topology.getNeighbourAt(e);
+                if (distance[neighbour] == UNREACHABLE
+                        && !unavailable.get(neighbour)) {
+                    distance[neighbour] = next;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    /**
+     * The source stepped to a neighbour one step away. Entries of cells
+     * reached through that neighbour stay valid once the origin rises by
+     * one; the cells reached only through the other neighbours of the old
+     * source are repaired as if the old source had become unavailable.
+     */
+    private void stepForward(final int from, final int to) {
+        final int level = distance[from];
+        origin++;
+        source = to;
+        distance[from] = UNREACHABLE;
+        raise(from, level);
+    }
+
+    /**
+     * The source stepped back onto the cell it came from, freeing the cell
+     * it left. Entries of cells reached through the freed cell are at most
+     * one too large once the origin falls by one, and all other entries
+     * can only fall, so relaxing outwards from the source repairs them.
+     */
+    private void stepBack(final int freed, final int to) {
+        origin--;
+        source = to;
+        distance[to] = origin;
+        lower(to);
+    }
+
+    /**
+     * Raise the entries of the cells whose every shortest path ran through
+     * a cell that left the shortest path tree at a level.
+     */
+    private void raise(final int removed, final int level) {
+        if (++stamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        /* Find the affected cells level by level: a cell is affected when
+         * no unaffected neighbour sits one level closer. The queue holds
+         * candidates in level order, so every affected cell of a level is
+         * known before the next level is checked. Candidates are marked
+         * with -stamp, affected cells with stamp. */
+        int head = 0;
+        int tail = 0;
+        final int end = topology.getEdgeEnd(removed);
+        for (int e = topology.getEdgeStart(removed); e < end; e++) {
+            final int neighbour = topology.getNeighbourAt(e);
+            if (neighbour != source && distance[neighbour] == level + 1) {
+                mark[neighbour] = -stamp;
+                queue[tail++] = neighbour;
+            }
+        }
+        int count = 0;
+        while (head < tail) {
+            final int cell = queue[head++];
+            if (isSupported(cell)) {
+                continue;
+            }
+            mark[cell] = stamp;
+            affected[count++] = cell;
+            final int child = distance[cell] + 1;
+            final int cellEnd = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < cellEnd; e++) {
+                final int neighbour = topology.getNeighbourAt(e);
+                if (distance[neighbour] == child
+                        && mark[neighbour] != stamp
+                        && mark[neighbour] != -stamp) {
+                    mark[neighbour] = -stamp;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+
+        /* Give every affected cell the best entry offered by its unaffected
+         * neighbours, then relax among the affected cells. */
+        for (int i = 0; i < count; i++) {
+            distance[affected[i]] = UNREACHABLE;
+        }
+        head = 0;
+        tail = 0;
+        for (int i = 0; i < count; i++) {
+            final int cell = affected[i];
+            final int best = getBestNeighbour(cell, true);
+            if (best != UNREACHABLE) {
+                distance[cell] = best + 1;
+                queue[tail++] = cell;
+                queued[cell] = true;
+            }
+        }
+        relax(head, tail);
+    }
+
+    /**
+     * Lower the entries reachable from a cell whose entry just fell.
+     */
+    private void lower(final int cell) {
+        queue[0] = cell;
+        queued[cell] = true;
+        relax(0, 1);
+    }
+
+    /**
+     * Relax entries outwards from the queued cells until no entry falls.
+     * The queue is circular and holds each cell at most once.
+     */
+    private void relax(int head, final int tail) {
+        final int capacity = queue.length;
+        int size = tail - head;
+        int back = tail % capacity;
+        while (size > 0) {
+            final int cell = queue[head];
+            head = (head + 1) % capacity;
+            size--;
+            queued[cell] = false;
+            final int next = distance[cell] + 1;
+            final int end = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < end; e++) {
+                final int neighbour = topology.getNeighbourAt(e);
+                if (distance[neighbour] > next && neighbour != source
+                        && !unavailable.get(neighbour)) {
+                    distance[neighbour] = next;
+                    if (!queued[neighbour]) {
+                        queued[neighbour] = true;
+                        queue[back] = neighbour;
+                        back = (back + 1) % capacity;
+                        size++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a cell keeps a neighbour one level closer that is not
+     * itself affected.
+     */
+    private boolean isSupported(final int cell) {
+        final int parentLevel = distance[cell] - 1;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int neighbour = topology.getNeighbourAt(e);
+            if (distance[neighbour] == parentLevel && mark[neighbour] != stamp
+                    && isOpen(neighbour)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the smallest entry among the open neighbours of a cell, skipping
+     * affected cells if asked.
+     */
+    private int getBestNeighbour(final int cell, final boolean skipAffected) {
+        int best = UNREACHABLE;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int neighbour = topology.getNeighbourAt(e);
+            if (distance[neighbour] < best && isOpen(neighbour)
+                    && !(skipAffected && mark[neighbour] == stamp)) {
+                best = distance[neighbour];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A cell paths may pass through: the source or an available cell.
+     */
+    private boolean isOpen(final int cell) {
+        return cell == source || !unavailable.get(cell);
+    }
+}
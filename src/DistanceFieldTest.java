@@ -0,0 +1,158 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DistanceFieldTest {
+
+    /**
+     * Check a player's field against a breadth-first search of the board.
+     */
+    private static void assertMatchesSearch(Board board, int player) {
+        DistanceField field = board.getDistanceField(player);
+        Topology topology = board.getTopology();
+        int cells = topology.getCellCount();
+        int[] expected = new int[cells];
+        java.util.Arrays.fill(expected, DistanceField.UNREACHABLE);
+        int source = field.getSource();
+        if (source >= 0) {
+            int[] queue = new int[cells];
+            int head = 0;
+            int tail = 0;
+            expected[source] = 0;
+            queue[tail++] = source;
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int e = topology.getEdgeStart(cell); e < topology.getEdgeEnd(cell); e++) {
+                    int next = topology.getNeighbourAt(e);
+                    if (expected[next] == DistanceField.UNREACHABLE
+                            && board.getStateAt(next)
+                                    == Board.LocationState.AVAILABLE) {
+                        expected[next] = expected[cell] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            assertEquals("cell " + cell, expected[cell],
+                    field.getDistance(cell));
+        }
+    }
+
+    @Test
+    public void testDistancesFromStart() {
+        Board board = new Board(5);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(24, Board.LocationState.UNAVAILABLE);
+        DistanceField first = board.getDistanceField(0);
+        assertEquals(0, first.getSource());
+        assertEquals(0, first.getDistance(0));
+        assertEquals(4, first.getDistance(4));
+        assertEquals(DistanceField.UNREACHABLE, first.getDistance(24));
+        assertEquals(7, board.getDistanceField(1).getDistance(1));
+    }
+
+    @Test
+    public void testStepsAreRepaired() {
+        Board board = new Board(6);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(35, Board.LocationState.UNAVAILABLE);
+        board.getDistanceField(0);
+        board.getDistanceField(1);
+        int origin = board.getDistanceField(0).getOrigin();
+
+        board.makeMove(1);
+        assertEquals(origin + 1, board.getDistanceField(0).getOrigin());
+        assertMatchesSearch(board, 0);
+        assertMatchesSearch(board, 1);
+
+        board.unmakeMove();
+        assertEquals(origin, board.getDistanceField(0).getOrigin());
+        assertMatchesSearch(board, 0);
+        assertMatchesSearch(board, 1);
+    }
+
+    @Test
+    public void testWallRaisesDistances() {
+        Board board = new Board(5);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(2, Board.LocationState.UNAVAILABLE);
+        DistanceField field = board.getDistanceField(0);
+        assertEquals(4, field.getDistance(3 + 1 * 5));
+
+        /* Player 1 walks up column 0 while player 2 walls off column 2. */
+        for (int y = 1; y < 5; y++) {
+            board.makeMove(y * 5);
+            board.makeMove(2 + y * 5);
+            assertMatchesSearch(board, 0);
+            assertMatchesSearch(board, 1);
+        }
+        assertEquals(DistanceField.UNREACHABLE, field.getDistance(3 + 1 * 5));
+        assertEquals(1, field.getDistance(1 + 4 * 5));
+
+        board.unmakeMove();
+        assertMatchesSearch(board, 0);
+        assertEquals(3, field.getDistance(3 + 4 * 5));
+    }
+
+    private static void playRandomly(Board board, long seed) {
+        Random random = new Random(seed);
+        int cells = board.getTopology().getCellCount();
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(cells - 1, Board.LocationState.UNAVAILABLE);
+        board.getDistanceField(0);
+        board.getDistanceField(1);
+        int[] players = { 0, cells - 1 };
+        int[] history = new int[400];
+        int depth = 0;
+        int toMove = 0;
+        for (int step = 0; step < 400; step++) {
+            int choice = random.nextInt(10);
+            if (choice < 2 && depth > 0) {
+                board.unmakeMove();
+                depth--;
+                toMove = 1 - toMove;
+                players[toMove] = history[depth];
+            } else if (choice < 3) {
+                int cell = random.nextInt(cells);
+                if (cell != players[0] && cell != players[1]
+                        && board.getStateAt(cell)
+                                == Board.LocationState.UNAVAILABLE
+                        && depth == 0) {
+                    board.setStateAt(cell, Board.LocationState.AVAILABLE);
+                }
+            } else {
+                Topology topology = board.getTopology();
+                int from = players[toMove];
+                int next = -1;
+                for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+                    int candidate = topology.getNeighbourAt(e);
+                    if (board.getStateAt(candidate)
+                            == Board.LocationState.AVAILABLE
+                            && (next < 0 || random.nextBoolean())) {
+                        next = candidate;
+                    }
+                }
+                if (next < 0) {
+                    /* Jump anywhere free, as a stuck player cannot step. */
+                    next = random.nextInt(cells);
+                }
+                history[depth++] = from;
+                board.makeMove(next);
+                players[toMove] = next;
+                toMove = 1 - toMove;
+            }
+            assertMatchesSearch(board, 0);
+            assertMatchesSearch(board, 1);
+        }
+    }
+
+    @Test
+    public void testRandomPlay() {
+        playRandomly(new Board(Topology.square(7)), 17);
+        playRandomly(new Board(Topology.torus(6)), 18);
+        playRandomly(new Board(Topology.hexagonal(7)), 19);
+    }
+}
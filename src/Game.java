@@ -9,13 +9,14 @@ import java.util.List;
 import java.util.Scanner;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ForkJoinPool;
 
 public class Game {
 
     public enum Mode {
 
         TWO_PLAYER(0, "TWO_PLAYER"), ONE_PLAYER(1, "ONE_PLAYER"), BOT_BATTLE(2,
-                "BOT_BATTLE");
+                "BOT_BATTLE"), MCTS_BATTLE(3, "MCTS_BATTLE");
 
         private final String text;
         private final int ID;
@@ -41,7 +42,17 @@ public class Game {
     private Mode   mode;
     private Board  board;
     private int    currentPlayerIndex;
-    private Timer  botTimer = new Timer();
+    /* Created by the first bot turn, so games without bots start no
+     * thread. Bots choose and play their moves on it. */
+    private Timer  botTimer = null;
+    /* Held by the bot while it chooses a move, and by the setters of what
+     * it searches with, so that they wait for the move instead of changing
+     * a search in progress. Never held while taking the game's lock. */
+    private final Object botLock = new Object();
+    /* Least time between a turn and the bot's reply, so that the moves can
+     * be followed on screen. */
+    private static final long BOT_MOVE_DELAY_MILLIS = 1000;
+    private boolean headless = false;
 
     private List<Player> players = new ArrayList<Player>();
 
@@ -50,30 +61,227 @@ public class Game {
 
     private Player winningPlayer = null;
 
+    /* Created the first time the players are found separated. It runs
+     * inside every turn, so its exact search gets a tenth of the solver's
+     * default work. */
+    private LongestPathSolver pathSolver = null;
+    private static final long PATH_WORK_BUDGET =
+            LongestPathSolver.WORK_BUDGET / 10;
+    /* Created by the first end check; keeps its results between turns. */
+    private ProofNumberSearch proofSearch = null;
+    private Tablebase tablebase = null;
+    private OpeningBook openingBook = null;
+    /* Created by the first tricky bot move; parallelSearch only when the
+     * bot has more than one thread. */
+    private SearchEngine searchEngine = null;
+    private ParallelSearch parallelSearch = null;
+    /* Created by the first Monte Carlo bot move. */
+    private MonteCarloSearch monteCarloSearch = null;
+    private ForkJoinPool botPool = null;
+    private int botThreads = 1;
+    /* The table of the tricky bot's search, or null for the shared one. */
+    private TranspositionTable transpositionTable = null;
+
+    /* Shared by the tricky bots of every game without a table of its own. */
+    private static final int SHARED_TABLE_MEGABYTES = 16;
+    private static TranspositionTable sharedTable = null;
+
+    /* Budget of the proof-number search run by each end check, set with
+     * setProofBudget. Nodes alone by default, so that when a game ends
+     * does not depend on the speed of the machine. */
+    private long proofNodeBudget = 20000;
+    private long proofTimeMillis = 0;
+
+    /* Budget of the tricky bot's search, set with setBotBudget. */
+    private int botDepth = SearchEngine.MAX_PLY;
+    private long botNodeBudget = 2000000;
+    private long botTimeMillis = 500;
+    /* Budget of the Monte Carlo bot, set with setMonteCarloBudget. */
+    private long monteCarloPlayouts = 200000;
+    private long monteCarloMillis = 500;
+
+    /* XOR of the Zobrist keys of both player cells and the side to move. The
+     * board holds the key of the unavailable cells. */
+    private long playerKey = 0;
+
+    private volatile GameSnapshot snapshot = null;
+
     // private List<Location> movements = new ArrayList<Location>();
 
     /**
      * Check if the current Game is finished, which occurs when one player is
-     * guaranteed win no matter what moves either player makes.
+     * guaranteed win no matter what moves either player makes: when a
+     * player is stuck, when the tablebase holds the position, when the
+     * players have been separated and one can
+     * certainly outlast the other, or when a budgeted proof-number search
+     * proves a forced win for either side.
      * 
+     * @param playerToMove
+     *            The index of the player who moves next.
      * @return true if one player is guaranteed to win.
      */
-    private boolean isFinished() {
-        List<Player> stuckPlayers = new ArrayList<Player>();
-        for (Player candidatePlayer : players) {
-            if (board.getAvailableDirectionsAt(candidatePlayer.getLocation())
-                    .isEmpty()) {
-                stuckPlayers.add(candidatePlayer);
-            }
-        }
-        if (stuckPlayers.size() > 0) {
-            winningPlayer = stuckPlayers.contains(players.get(0))
-                    ? players.get(1) : players.get(0);
-            botTimer.cancel();
+    private boolean isFinished(int playerToMove) {
+        if (winningPlayer != null) {
             return true;
+        }
+        Player mover = players.get(playerToMove);
+        Player other = players.get((playerToMove + 1) % players.size());
+        if (!board.hasAvailableMove(mover.getLocation())) {
+            winningPlayer = other;
+        } else if (!board.hasAvailableMove(other.getLocation())) {
+            winningPlayer = mover;
         } else {
+            int entry = probeTablebase(playerToMove);
+            if (entry >= 0) {
+                winningPlayer = Tablebase.isWin(entry) ? mover : other;
+            } else if (arePlayersSeparated()) {
+                winningPlayer = getSeparatedWinner(mover, other);
+            } else {
+                winningPlayer = getProvenWinner(playerToMove, mover, other);
+            }
+        }
+        if (winningPlayer == null) {
             return false;
         }
+        if (botTimer != null) {
+            botTimer.cancel();
+        }
+        return true;
+    }
+
+    /**
+     * Decide the winner of a game whose players can no longer meet. Each
+     * can then make exactly as many moves as its longest walk allows, so
+     * the player to move loses iff its walk is no longer than the other's.
+     * Cheap chamber bounds are tried first; the exact solver runs only when
+     * they cannot decide.
+     * 
+     * @param mover
+     *            The player who moves next.
+     * @param other
+     *            The other player.
+     * @return The winner, or null if the bounds do not decide it yet.
+     */
+    private Player getSeparatedWinner(Player mover, Player other) {
+        if (pathSolver == null) {
+            pathSolver = new LongestPathSolver(board, PATH_WORK_BUDGET);
+        }
+        int moverCell = board.getCellIndex(mover.getLocation());
+        int otherCell = board.getCellIndex(other.getLocation());
+        Player winner = compareWalks(mover, other,
+                pathSolver.bound(moverCell), pathSolver.bound(otherCell));
+        if (winner == null) {
+            winner = compareWalks(mover, other, pathSolver.solve(moverCell),
+                    pathSolver.solve(otherCell));
+        }
+        return winner;
+    }
+
+    /**
+     * Look up the current position in the tablebase, if one is in use.
+     * 
+     * @param playerToMove
+     *            The index of the player who moves next.
+     * @return The tablebase entry, or -1 if there is none.
+     */
+    private int probeTablebase(int playerToMove) {
+        if (tablebase == null) {
+            return -1;
+        }
+        return tablebase.probe(board,
+                board.getCellIndex(players.get(0).getLocation()),
+                board.getCellIndex(players.get(1).getLocation()),
+                playerToMove);
+    }
+
+    /**
+     * Choose a move from the tablebase for the current player: the fastest
+     * win, or failing that the slowest loss.
+     * 
+     * @return The cell to move to, or -1 if the tablebase does not hold
+     *         every position after a move.
+     */
+    private int getTablebaseMove() {
+        int[] cells = {
+                board.getCellIndex(players.get(0).getLocation()),
+                board.getCellIndex(players.get(1).getLocation()) };
+        int from = cells[currentPlayerIndex];
+        long unavailable = board.getUnavailableWord(0);
+        int bestCell = -1;
+        int bestScore = Integer.MIN_VALUE;
+        Topology topology = board.getTopology();
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            int next = topology.getNeighbourAt(e);
+            if ((unavailable & (1L << next)) != 0) {
+                continue;
+            }
+            cells[currentPlayerIndex] = next;
+            int entry = tablebase.probe(Tablebase.encode(
+                    unavailable | (1L << next), cells[0], cells[1],
+                    1 - currentPlayerIndex));
+            cells[currentPlayerIndex] = from;
+            if (entry < 0) {
+                return -1;
+            }
+            /* The entry is from the opponent's side. */
+            int distance = Tablebase.getDistance(entry);
+            int score = Tablebase.isWin(entry) ? distance - 1000 : 1000 - distance;
+            if (score > bestScore) {
+                bestScore = score;
+                bestCell = next;
+            }
+        }
+        return bestCell;
+    }
+
+    /**
+     * Decide a game whose players still share a region by proof-number
+     * search. Results are cached by position, so repeated checks of the
+     * same position cost one table probe.
+     * 
+     * @param playerToMove
+     *            The index of the player who moves next.
+     * @return The winner, or null if the search budget ran out first.
+     */
+    private Player getProvenWinner(int playerToMove, Player mover,
+            Player other) {
+        if (proofNodeBudget <= 0) {
+            return null;
+        }
+        if (proofSearch == null) {
+            proofSearch = new ProofNumberSearch(board);
+        }
+        int firstCell = board.getCellIndex(players.get(0).getLocation());
+        int secondCell = board.getCellIndex(players.get(1).getLocation());
+        ProofNumberSearch.Result result = proofTimeMillis > 0
+                ? proofSearch.prove(firstCell, secondCell, playerToMove,
+                        proofNodeBudget, proofTimeMillis)
+                : proofSearch.prove(firstCell, secondCell, playerToMove,
+                        proofNodeBudget);
+        if (result == ProofNumberSearch.Result.WIN) {
+            return mover;
+        }
+        if (result == ProofNumberSearch.Result.LOSS) {
+            return other;
+        }
+        return null;
+    }
+
+    /**
+     * Decide a separated game from bounds on both players' walks.
+     * 
+     * @return The winner, or null if the bounds overlap.
+     */
+    private Player compareWalks(Player mover, Player other,
+            LongestPathSolver.Bound moverWalk,
+            LongestPathSolver.Bound otherWalk) {
+        if (moverWalk.getUpper() <= otherWalk.getLower()) {
+            return other;
+        }
+        if (moverWalk.getLower() > otherWalk.getUpper()) {
+            return mover;
+        }
+        return null;
     }
 
     /******************************************
@@ -102,6 +310,9 @@ public class Game {
         } else if (mode == Mode.ONE_PLAYER) {
             addHumanPlayer(P1Name);
             addBotHardPlayer(P2Name);
+        } else if (mode == Mode.MCTS_BATTLE) {
+            addBotHardPlayer(P1Name);
+            addBotMonteCarloPlayer(P2Name);
         } else {
             addBotPlayer(P1Name);
             addBotHardPlayer(P2Name);
@@ -121,13 +332,15 @@ public class Game {
     public void begin(Location p1Location, Location p2Location) {
         currentPlayerIndex = 0;
 
-        players.get(0).setLocation(p1Location);
+        placePlayer(0, p1Location);
         board.setStateAt(p1Location, Board.LocationState.UNAVAILABLE);
 
-        players.get(1).setLocation(p2Location);
+        placePlayer(1, p2Location);
         board.setStateAt(p2Location, Board.LocationState.UNAVAILABLE);
 
-        if (mode == Mode.BOT_BATTLE) {
+        publishSnapshot();
+
+        if (mode == Mode.BOT_BATTLE || mode == Mode.MCTS_BATTLE) {
             takeTurnBot();
         }
     }
@@ -171,10 +384,10 @@ public class Game {
                 p2Location = Location.fromString(lineContents[1],
                         this.board.getDimension() - 1);
                 if (first) {
-                    players.get(0).setLocation(p1Location);
+                    placePlayer(0, p1Location);
                     board.setStateAt(p1Location, Board.LocationState.UNAVAILABLE);
 
-                    players.get(1).setLocation(p2Location);
+                    placePlayer(1, p2Location);
                     board.setStateAt(p2Location, Board.LocationState.UNAVAILABLE);
                     first = false;
                 }
@@ -182,10 +395,10 @@ public class Game {
             if (!first) {
             if (p1Location != p1PrevLocation) {
                 //if (canMove(players.get(0), p1Location)) {
-                    players.get(0).setLocation(p1Location);
+                    placePlayer(0, p1Location);
                     board.setStateAt(p1Location,
                             Board.LocationState.UNAVAILABLE);
-                    notifyMoveListeners();
+                    notifyMoveListeners(currentPlayerIndex);
                     nextPlayer();
                 //} else {
                 //    throw new InvalidStateException("Game file is invalid.");
@@ -193,10 +406,10 @@ public class Game {
             }
             if (p2Location != p2PrevLocation) {
                 //if (canMove(players.get(1), p2Location)) {
-                    players.get(1).setLocation(p2Location);
+                    placePlayer(1, p2Location);
                     board.setStateAt(p2Location,
                             Board.LocationState.UNAVAILABLE);
-                    notifyMoveListeners();
+                    notifyMoveListeners(currentPlayerIndex);
                     nextPlayer();
                 //} else {
                 //    throw new InvalidStateException("Game file is invalid.");
@@ -211,7 +424,9 @@ public class Game {
 
         scanner.close();
 
-        if (mode == Mode.BOT_BATTLE) {
+        publishSnapshot();
+
+        if (mode == Mode.BOT_BATTLE || mode == Mode.MCTS_BATTLE) {
             takeTurnBot();
         }
     }
@@ -225,12 +440,298 @@ public class Game {
      * @return A copy of the winning Player.
      */
     public Player getWinner() {
-        if (!isFinished()) {
+        if (!isFinished(currentPlayerIndex)) {
             throw new InvalidStateException("This is not over!");
         }
         return winningPlayer.clone();
     }
 
+    /**
+     * Get the 64-bit Zobrist key of the current position: the unavailable
+     * cells, both player cells and the side to move. Keys are stable across
+     * JVM runs, so they may be used to index stored positions.
+     * 
+     * @return The position key.
+     */
+    public long getPositionKey() {
+        return board.getZobristKey() ^ playerKey;
+    }
+
+    /**
+     * Get the symmetry that maps the current position to its canonical
+     * form: the image with the smallest position key among the symmetries
+     * of the board. Symmetric positions share a canonical key, and a move
+     * found for the canonical form is played here by mapping it through
+     * the inverse of this symmetry.
+     *
+     * @return The canonicalising symmetry, IDENTITY on ties.
+     */
+    public Symmetry getCanonicalSymmetry() {
+        Symmetry best = Symmetry.IDENTITY;
+        long bestKey = getPositionKey();
+        for (Symmetry symmetry : board.getSymmetries()) {
+            long key = getPositionKey(symmetry);
+            if (key < bestKey) {
+                best = symmetry;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the position key of the canonical form of the current position,
+     * equal for all positions that are images of each other under a
+     * symmetry of the board.
+     *
+     * @return The smallest position key over the board's symmetries.
+     */
+    public long getCanonicalPositionKey() {
+        return getPositionKey(getCanonicalSymmetry());
+    }
+
+    /**
+     * Get the position key of the image of the current position under a
+     * symmetry.
+     *
+     * @param symmetry
+     *            A symmetry of the square.
+     * @return The key getPositionKey would return for the image.
+     */
+    private long getPositionKey(Symmetry symmetry) {
+        if (symmetry == Symmetry.IDENTITY) {
+            return getPositionKey();
+        }
+        ZobristKeys keys = board.getZobristKeys();
+        final int max = board.getDimension() - 1;
+        /* playerKey is the player keys plus the side to move key; swap the
+         * former for their images and keep the latter. */
+        long key = board.getZobristKey(symmetry) ^ playerKey;
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            if (!player.hasLocation()) {
+                continue;
+            }
+            Location location = player.getLocation();
+            int x = location.getCoordinate(Location.Coordinate.FIRST);
+            int y = location.getCoordinate(Location.Coordinate.SECOND);
+            key ^= keys.getPlayerKey(i, x, y) ^ keys.getPlayerKey(i,
+                    symmetry.applyX(x, y, max), symmetry.applyY(x, y, max));
+        }
+        return key;
+    }
+
+    /**
+     * Get the most recently published snapshot of the game. Safe to call
+     * from any thread: it costs a single volatile read, takes no locks, and
+     * the result stays consistent while the game continues.
+     * 
+     * @return The snapshot published after the latest turn, or null if the
+     *         game has not begun or is headless.
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Check whether the players have been walled off from each other, so
+     * that neither can ever block the other again. Answered from the
+     * board's region tracker without searching the board.
+     * 
+     * @requires The game has begun.
+     * @return true if no free region is next to both players. false
+     *         otherwise.
+     */
+    public boolean arePlayersSeparated() {
+        return !board.getRegions().isConnected(
+                board.getCellIndex(players.get(0).getLocation()),
+                board.getCellIndex(players.get(1).getLocation()));
+    }
+
+    /**
+     * Get the number of free cells a player can still reach: the size of
+     * the largest free region next to it.
+     * 
+     * @requires The game has begun.
+     * @param playerIndex
+     *            The index of the player in turn order.
+     * @return An upper bound on the player's remaining moves.
+     */
+    public int getReachableArea(int playerIndex) {
+        return board.getRegions().getReachableSize(
+                board.getCellIndex(players.get(playerIndex).getLocation()));
+    }
+
+    /**
+     * Use an endgame tablebase for the end check and the tricky bot. It is
+     * only consulted when its dimension matches the board's.
+     * 
+     * @param tablebase
+     *            The tablebase, or null to stop using one.
+     * @modifies tablebase
+     */
+    public synchronized void setTablebase(Tablebase tablebase) {
+        if (tablebase != null
+                && tablebase.getDimension() != board.getDimension()) {
+            tablebase = null;
+        }
+        synchronized (botLock) {
+            this.tablebase = tablebase;
+        }
+    }
+
+    /**
+     * Use an opening book for the bots' first moves. It is only consulted
+     * when its dimension matches the board's.
+     * 
+     * @param openingBook
+     *            The book, or null to stop using one.
+     * @modifies openingBook
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        if (openingBook != null
+                && openingBook.getDimension() != board.getDimension()) {
+            openingBook = null;
+        }
+        synchronized (botLock) {
+            this.openingBook = openingBook;
+        }
+    }
+
+    /**
+     * Set the budget of the tricky bot's search, which sets its strength.
+     * The search stops at whichever limit it reaches first.
+     * 
+     * @requires depth, nodeBudget and timeBudgetMillis are greater than 0.
+     * @param depth
+     *            The deepest iteration to search, in plies.
+     * @param nodeBudget
+     *            The number of positions to search per move.
+     * @param timeBudgetMillis
+     *            The time to search per move.
+     * @modifies this
+     */
+    public void setBotBudget(int depth, long nodeBudget, long timeBudgetMillis) {
+        synchronized (botLock) {
+            this.botDepth = depth;
+            this.botNodeBudget = nodeBudget;
+            this.botTimeMillis = timeBudgetMillis;
+        }
+    }
+
+    /**
+     * Set the budget of the proof-number search that each end check runs
+     * while the players still share a region. It stops at whichever limit
+     * it reaches first; a node budget of 0 turns it off, so that only a
+     * stuck player, the tablebase or separation ends the game. By default
+     * it expands 20000 nodes with no time limit, so that the turn a game
+     * is declared won does not depend on the speed of the machine.
+     * 
+     * @requires nodeBudget and timeBudgetMillis are not negative.
+     * @param nodeBudget
+     *            The number of nodes to expand per end check.
+     * @param timeBudgetMillis
+     *            The time to spend per end check, or 0 for no time limit.
+     * @modifies this
+     */
+    public synchronized void setProofBudget(long nodeBudget,
+            long timeBudgetMillis) {
+        this.proofNodeBudget = nodeBudget;
+        this.proofTimeMillis = timeBudgetMillis;
+    }
+
+    /**
+     * Set the budget of the Monte Carlo bot's search, which sets its
+     * strength. The search stops at whichever limit it reaches first.
+     * 
+     * @requires playouts and timeBudgetMillis are greater than 0.
+     * @param playouts
+     *            The number of playouts per move, over all threads.
+     * @param timeBudgetMillis
+     *            The time to search per move.
+     * @modifies this
+     */
+    public void setMonteCarloBudget(long playouts, long timeBudgetMillis) {
+        synchronized (botLock) {
+            this.monteCarloPlayouts = playouts;
+            this.monteCarloMillis = timeBudgetMillis;
+        }
+    }
+
+    /**
+     * Run the bots' searches on several threads at once. The tricky bot's
+     * threads share one transposition table, and the Monte Carlo bot's
+     * threads grow one tree. The helper threads are daemon threads of a
+     * ForkJoinPool owned by this game. If a bot is choosing a move, this
+     * waits for it before replacing the pool.
+     * 
+     * @requires threads is greater than 0.
+     * @param threads
+     *            The number of threads, counting the bot's own thread; 1
+     *            searches on the bot's thread alone.
+     * @modifies this
+     */
+    public void setBotThreads(int threads) {
+        synchronized (botLock) {
+            if (threads != botThreads) {
+                botThreads = threads;
+                parallelSearch = null;
+                monteCarloSearch = null;
+                if (botPool != null) {
+                    botPool.shutdown();
+                    botPool = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Keep the tricky bot's search results in a table of its own rather
+     * than the one shared by every game.
+     * 
+     * @param table
+     *            The table, or null to use the shared table.
+     * @modifies this
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        synchronized (botLock) {
+            this.transpositionTable = table;
+            parallelSearch = null;
+            if (searchEngine != null) {
+                searchEngine.setTranspositionTable(table != null ? table
+                        : getSharedTable());
+            }
+        }
+    }
+
+    /**
+     * Get the table shared by the tricky bots of every game, creating it
+     * on first use.
+     * 
+     * @return The shared table.
+     */
+    private static synchronized TranspositionTable getSharedTable() {
+        if (sharedTable == null) {
+            sharedTable = new TranspositionTable(SHARED_TABLE_MEGABYTES);
+        }
+        return sharedTable;
+    }
+
+    /**
+     * Run the game headless, for simulation. A headless game publishes no
+     * snapshots, and once its move log has been sized, a turn requested
+     * with requestMove(int) allocates nothing when no listeners are
+     * subscribed and the board is small enough to intern its locations.
+     * 
+     * @requires Called before begin.
+     * @param headless
+     *            true to run headless. false to publish snapshots.
+     * @modifies headless
+     */
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
     /**
      * Get the player whose turn it currently is.
      * 
@@ -241,14 +742,16 @@ public class Game {
     }
 
     /**
-     * Attempt to move the current player to the given location.
+     * Attempt to move the current player to the given location. Fails once
+     * the game has been won, and while a bot is to move. Returns without
+     * waiting for a bot's reply, which is played on the bot thread.
      * 
      * @param destination
      *            The location to move the player to.
      * @return true if the player was moved. false otherwise.
      */
-    public boolean requestMove(Location destination) {
-        if (players.get(currentPlayerIndex).getType() == Player.Type.HUMAN) {
+    public synchronized boolean requestMove(Location destination) {
+        if (winningPlayer == null && players.get(currentPlayerIndex).getType() == Player.Type.HUMAN) {
             if (canMove(players.get(currentPlayerIndex), destination)) {
                 takeTurn(destination);
                 return true;
@@ -257,6 +760,34 @@ public class Game {
         return false;
     }
 
+    /**
+     * Attempt to move the current player to the cell with the given index.
+     * Avoids creating Location objects on boards small enough to intern them.
+     * Fails once the game has been won, and while a bot is to move.
+     * 
+     * @param destinationCell
+     *            The index x + y*dimension of the cell to move the player to.
+     * @return true if the player was moved. false otherwise.
+     */
+    public synchronized boolean requestMove(int destinationCell) {
+        if (winningPlayer == null && players.get(currentPlayerIndex).getType() == Player.Type.HUMAN) {
+            if (canMove(players.get(currentPlayerIndex), destinationCell)) {
+                takeTurn(board.getLocationOf(destinationCell));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the cell occupied by the player whose turn it currently is.
+     * 
+     * @return The index x + y*dimension of the current player's cell.
+     */
+    public int getCurrentPlayerCell() {
+        return board.getCellIndex(players.get(currentPlayerIndex).getLocation());
+    }
+
     /**
      * Subscribe to movements made on board.
      * 
@@ -285,9 +816,11 @@ public class Game {
      * @requires The game is in a playable or finished state.
      * @throws InvalidStateException
      *             (unchecked) if the game is not finished and is not playable.
-     * @effects The Game state is written to fileName.
+     * @effects The Game state is written to fileName. Holds the game's
+     *          lock, under which every move is played, so a save from the
+     *          GUI never reads a board that a bot's move is changing.
      */
-    void save(String fileName) throws IOException {
+    synchronized void save(String fileName) throws IOException {
         /**
          * @source http://stackoverflow.com/questions/2885173/\
          *         how-to-create-a-file-and-write-to-a-file-in-java
@@ -331,15 +864,32 @@ public class Game {
         this.players.add(new Player(name, Player.Type.BOT_HARD));
     }
 
+    /**
+     * Add a Monte Carlo bot player to the game.
+     * 
+     * @param name
+     *            The name of the player to be added to the game.
+     */
+    private void addBotMonteCarloPlayer(String name) {
+        this.players.add(new Player(name, Player.Type.BOT_MCTS));
+    }
+
     /**
      * Notify all subscribers that a movement has been made. A copy of the
-     * player at its new location is shared as the event source.
+     * player at its new location is shared as the event source. Nothing is
+     * created when there are no subscribers.
+     * 
+     * @param playerIndex
+     *            The index of the player who moved.
      */
-    private void notifyMoveListeners() {
-        for (ActionListener moveListener : moveListeners) {
-            ActionEvent e = new ActionEvent(
-                    players.get(currentPlayerIndex).clone(), 0, "");
-            moveListener.actionPerformed(e);
+    private void notifyMoveListeners(int playerIndex) {
+        if (moveListeners.isEmpty()) {
+            return;
+        }
+        ActionEvent e = new ActionEvent(
+                players.get(playerIndex).clone(), 0, "");
+        for (int i = 0; i < moveListeners.size(); i++) {
+            moveListeners.get(i).actionPerformed(e);
         }
     }
 
@@ -348,9 +898,12 @@ public class Game {
      * player is shared as the event source.
      */
     private void notifyWinListeners() {
-        for (ActionListener winListener : winListeners) {
-            ActionEvent e = new ActionEvent(winningPlayer.clone(), 0, "");
-            winListener.actionPerformed(e);
+        if (winListeners.isEmpty()) {
+            return;
+        }
+        ActionEvent e = new ActionEvent(winningPlayer.clone(), 0, "");
+        for (int i = 0; i < winListeners.size(); i++) {
+            winListeners.get(i).actionPerformed(e);
         }
     }
 
@@ -364,15 +917,20 @@ public class Game {
      *         otherwise.
      */
     private boolean canMove(Player player, Location destination) {
-        Location sourceLocation = player.getLocation();
-        Direction directionTo = sourceLocation.getDirectionTo(destination);
-
-        if (board.getAvailableDirectionsAt(sourceLocation)
-                .contains(directionTo)) {
-            return true;
-        }
+        return board.isMoveLegal(player.getLocation(), destination);
+    }
 
-        return false;
+    /**
+     * Determine if it is possible for a player to move to the cell with the
+     * given index.
+     * 
+     * @param destinationCell
+     *            The index x + y*dimension of the cell to query.
+     * @return true if the player can move to the given cell. false otherwise.
+     */
+    private boolean canMove(Player player, int destinationCell) {
+        return board.isMoveLegal(board.getCellIndex(player.getLocation()),
+                destinationCell);
     }
 
     /**
@@ -383,40 +941,70 @@ public class Game {
      * @requires destination is a valid movement for the current player.
      */
     private void takeTurn(Location destination) {
-        players.get(currentPlayerIndex).setLocation(destination);
-        notifyMoveListeners();
+        int moverIndex = currentPlayerIndex;
+        placePlayer(currentPlayerIndex, destination);
         board.setStateAt(destination, Board.LocationState.UNAVAILABLE);
 
-        if (!isFinished()) {
+        /* Listeners read the snapshot, so publish it before notifying. */
+        if (!isFinished((currentPlayerIndex + 1) % players.size())) {
             nextPlayer();
+            publishSnapshot();
+            notifyMoveListeners(moverIndex);
             if (players.get(currentPlayerIndex)
                     .getType() != Player.Type.HUMAN) {
                 takeTurnBot();
             }
         } else {
+            publishSnapshot();
+            notifyMoveListeners(moverIndex);
             notifyWinListeners();
         }
     }
 
     /**
-     * A bot will take it's turn if it is the current player.
+     * A bot will take it's turn if it is the current player. The move is
+     * chosen and played on the bot timer's thread, so the caller, which may
+     * be the GUI's event dispatch thread, returns at once instead of
+     * waiting out the bot's search budget.
      */
     private void takeTurnBot() {
-        Location destination;
-        if (players.get(currentPlayerIndex).getType() == Player.Type.BOT) {
-            destination = getBotMove();
-        } else if (players.get(currentPlayerIndex)
-                .getType() == Player.Type.BOT_HARD) {
-            destination = getBotHardMove();
-        } else {
+        final Player.Type type = players.get(currentPlayerIndex).getType();
+        if (type != Player.Type.BOT && type != Player.Type.BOT_HARD
+                && type != Player.Type.BOT_MCTS) {
             return;
         }
+        if (botTimer == null) {
+            botTimer = new Timer("bot", true);
+        }
+        final long start = System.currentTimeMillis();
         botTimer.schedule(new TimerTask() {
 
             public final void run() {
-                takeTurn(destination);
+                Location destination;
+                synchronized (botLock) {
+                    if (type == Player.Type.BOT) {
+                        destination = getBotMove();
+                    } else if (type == Player.Type.BOT_HARD) {
+                        destination = getBotHardMove();
+                    } else {
+                        destination = getBotMonteCarloMove();
+                    }
+                }
+                long wait = BOT_MOVE_DELAY_MILLIS
+                        - (System.currentTimeMillis() - start);
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                synchronized (Game.this) {
+                    takeTurn(destination);
+                }
             }
-        }, 1000);
+        }, 0);
     }
 
     /**
@@ -430,59 +1018,127 @@ public class Game {
 
         Location previousLocation = currentPlayer.getLocation();
 
-        List<Direction> directions = board
-                .getAvailableDirectionsAt(previousLocation);
-        Direction randomDirection = directions
-                .get((int) Math.ceil(Math.random() * (double) directions.size())
-                        - 1);
+        int mask = board.getFreeNeighbourMask(previousLocation);
+        int choice = (int) (Math.random() * Integer.bitCount(mask));
+        for (int i = 0; i < choice; i++) {
+            mask &= mask - 1;
+        }
+        Direction randomDirection = Direction
+                .fromMask(Integer.lowestOneBit(mask)).get(0);
 
         return previousLocation.cloneOffset(randomDirection);
     }
 
     /**
-     * Determine a movement for a tricky bot.
+     * Look up the current position in the opening book, if one is in use.
+     * 
+     * @return The book move, or -1 if the book does not hold the position
+     *         or its move is not legal here.
+     */
+    private int getBookMove() {
+        if (openingBook == null) {
+            return -1;
+        }
+        long entry = openingBook.probe(getPositionKey());
+        if (entry == OpeningBook.MISS) {
+            return -1;
+        }
+        int from = board.getCellIndex(players.get(currentPlayerIndex)
+                .getLocation());
+        int cell = OpeningBook.getMove(entry);
+        if (cell < 0 || cell >= board.getTopology().getCellCount()
+                || !board.isMoveLegal(from, cell)) {
+            return -1;
+        }
+        return cell;
+    }
+
+    /**
+     * Determine a movement for a tricky bot: the opening book move if the
+     * book holds the position, then the tablebase move if the tablebase
+     * holds it, otherwise the result of an alpha-beta search within the bot
+     * budget.
+     * 
+     * @return A free location adjacent to the current player's location.
      */
     private Location getBotHardMove() {
-        int random = (int) Math.round(Math.random());
-        if (random == 0) {
-            Player bot = players.get(currentPlayerIndex);
-            int botLocationX = bot.getLocation()
-                    .getCoordinate(Location.Coordinate.FIRST);
-            int botLocationY = bot.getLocation()
-                    .getCoordinate(Location.Coordinate.SECOND);
-
-            Player opponent = players
-                    .get((currentPlayerIndex + 1) % players.size());
-            int oppLocationX = opponent.getLocation()
-                    .getCoordinate(Location.Coordinate.FIRST);
-            int oppLocationY = opponent.getLocation()
-                    .getCoordinate(Location.Coordinate.SECOND);
-
-            List<Direction> suggestedDirections = new ArrayList<Direction>();
-            List<Direction> availableDirections = board
-                    .getAvailableDirectionsAt(bot.getLocation());
-
-            if (botLocationX > oppLocationX) {
-                suggestedDirections.add(Direction.WEST);
-            } else if (botLocationX < oppLocationX) {
-                suggestedDirections.add(Direction.EAST);
+        int bookCell = getBookMove();
+        if (bookCell >= 0) {
+            return board.getLocationOf(bookCell);
+        }
+        if (tablebase != null) {
+            int cell = getTablebaseMove();
+            if (cell >= 0) {
+                return board.getLocationOf(cell);
             }
-            if (botLocationY > oppLocationY) {
-                suggestedDirections.add(Direction.NORTH);
-            } else if (botLocationY < oppLocationY) {
-                suggestedDirections.add(Direction.SOUTH);
+        }
+        int firstCell = board.getCellIndex(players.get(0).getLocation());
+        int secondCell = board.getCellIndex(players.get(1).getLocation());
+        int cell;
+        if (botThreads > 1) {
+            if (botPool == null) {
+                botPool = new ForkJoinPool(botThreads - 1);
             }
-
-            for (Direction direction : suggestedDirections) {
-                if (availableDirections.contains(direction)) {
-                    System.out.println("picked suggested dir");
-                    return bot.getLocation().cloneOffset(direction);
-                }
+            if (parallelSearch == null) {
+                parallelSearch = new ParallelSearch(board,
+                        transpositionTable != null ? transpositionTable
+                                : getSharedTable(),
+                        botThreads, botPool);
             }
+            cell = parallelSearch.search(firstCell, secondCell,
+                    currentPlayerIndex, botDepth, botNodeBudget, botTimeMillis);
+        } else {
+            if (searchEngine == null) {
+                searchEngine = new SearchEngine(board);
+                searchEngine.setTranspositionTable(transpositionTable != null
+                        ? transpositionTable : getSharedTable());
+            }
+            cell = searchEngine.search(firstCell, secondCell,
+                    currentPlayerIndex, botDepth, botNodeBudget, botTimeMillis);
+        }
+        if (cell < 0) {
+            return getBotMove();
+        }
+        return board.getLocationOf(cell);
+    }
 
+    /**
+     * Determine a movement for a Monte Carlo bot: the opening book move if
+     * the book holds the position, otherwise the most visited move of a
+     * Monte Carlo tree search within its budget, grown by the bot threads.
+     * 
+     * @return A free location adjacent to the current player's location.
+     */
+    private Location getBotMonteCarloMove() {
+        int bookCell = getBookMove();
+        if (bookCell >= 0) {
+            return board.getLocationOf(bookCell);
+        }
+        if (monteCarloSearch == null) {
+            if (botThreads > 1 && botPool == null) {
+                botPool = new ForkJoinPool(botThreads - 1);
+            }
+            monteCarloSearch = new MonteCarloSearch(board, botThreads,
+                    botPool);
         }
+        int cell = monteCarloSearch.search(
+                board.getCellIndex(players.get(0).getLocation()),
+                board.getCellIndex(players.get(1).getLocation()),
+                currentPlayerIndex, monteCarloPlayouts, monteCarloMillis);
+        if (cell < 0) {
+            return getBotMove();
+        }
+        return board.getLocationOf(cell);
+    }
 
-        return getBotMove();
+    /**
+     * Get the search used by the tricky bot, for example to read the speed
+     * and depth of its last move.
+     * 
+     * @return The search, or null if the tricky bot has not moved yet.
+     */
+    public SearchEngine getSearchEngine() {
+        return searchEngine;
     }
 
     /**
@@ -490,6 +1146,55 @@ public class Game {
      */
     private void nextPlayer() {
         currentPlayerIndex = (currentPlayerIndex + 1) % players.size();
+        playerKey ^= board.getZobristKeys().getSideToMoveKey();
+    }
+
+    /**
+     * Publish an immutable snapshot of the current state for concurrent
+     * readers.
+     * 
+     * @modifies snapshot
+     */
+    private void publishSnapshot() {
+        if (headless) {
+            return;
+        }
+        Location[] locations = new Location[players.size()];
+        String[] names = new String[players.size()];
+        int winnerIndex = -1;
+        for (int i = 0; i < players.size(); i++) {
+            locations[i] = players.get(i).getLocation();
+            names[i] = players.get(i).getName();
+            if (players.get(i) == winningPlayer) {
+                winnerIndex = i;
+            }
+        }
+        snapshot = new GameSnapshot(board.publishSnapshot(), locations, names,
+                currentPlayerIndex, winnerIndex, getPositionKey());
+    }
+
+    /**
+     * Move a player to a location, keeping the position key up to date.
+     * 
+     * @param playerIndex
+     *            The index of the player in turn order.
+     * @param location
+     *            The player's new location.
+     * @modifies The player's location and playerKey.
+     */
+    private void placePlayer(int playerIndex, Location location) {
+        ZobristKeys keys = board.getZobristKeys();
+        Player player = players.get(playerIndex);
+        if (player.hasLocation()) {
+            Location previous = player.getLocation();
+            playerKey ^= keys.getPlayerKey(playerIndex,
+                    previous.getCoordinate(Location.Coordinate.FIRST),
+                    previous.getCoordinate(Location.Coordinate.SECOND));
+        }
+        player.setLocation(location);
+        playerKey ^= keys.getPlayerKey(playerIndex,
+                location.getCoordinate(Location.Coordinate.FIRST),
+                location.getCoordinate(Location.Coordinate.SECOND));
     }
 
     /******************************************
@@ -567,6 +1272,8 @@ public class Game {
             mode = Game.Mode.ONE_PLAYER;
         } else if (modeString.equals(Game.Mode.BOT_BATTLE.toString())) {
             mode = Game.Mode.BOT_BATTLE;
+        } else if (modeString.equals(Game.Mode.MCTS_BATTLE.toString())) {
+            mode = Game.Mode.MCTS_BATTLE;
         } else {
             throw new InvalidStateException(
                     "Cannot get mode from file " + filename);
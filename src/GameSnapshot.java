@@ -0,0 +1,92 @@
+/**
+ * An immutable view of a Game at one point in time: the board, both
+ * players' locations, whose turn it is and the winner, if any. A Game
+ * publishes a new snapshot after every turn through a single volatile
+ * field, so the GUI, bots, save and metrics threads can read a consistent
+ * state without locking while the game continues.
+ *
+ * @invariant No field changes after construction.
+ */
+public final class GameSnapshot {
+
+    private final BoardSnapshot board;
+    private final Location[]    playerLocations;
+    private final String[]      playerNames;
+    private final int           currentPlayerIndex;
+    private final int           winnerIndex;
+    private final long          positionKey;
+
+    /**
+     * Create a snapshot. Only Game creates snapshots, handing over arrays it
+     * will never modify again.
+     */
+    GameSnapshot(final BoardSnapshot board, final Location[] playerLocations,
+            final String[] playerNames, final int currentPlayerIndex,
+            final int winnerIndex, final long positionKey) {
+        this.board = board;
+        this.playerLocations = playerLocations;
+        this.playerNames = playerNames;
+        this.currentPlayerIndex = currentPlayerIndex;
+        this.winnerIndex = winnerIndex;
+        this.positionKey = positionKey;
+    }
+
+    /**
+     * Get the board at the time of the snapshot.
+     *
+     * @return The board snapshot.
+     */
+    public BoardSnapshot getBoard() {
+        return this.board;
+    }
+
+    /**
+     * Get the location of a player at the time of the snapshot.
+     *
+     * @requires playerIndex is 0 or 1.
+     * @param playerIndex The index of the player in turn order.
+     * @return The player's location.
+     */
+    public Location getPlayerLocation(final int playerIndex) {
+        return this.playerLocations[playerIndex];
+    }
+
+    /**
+     * Get the name of a player.
+     *
+     * @requires playerIndex is 0 or 1.
+     * @param playerIndex The index of the player in turn order.
+     * @return The player's name.
+     */
+    public String getPlayerName(final int playerIndex) {
+        return this.playerNames[playerIndex];
+    }
+
+    /**
+     * Get the index of the player whose turn it was.
+     *
+     * @return The current player's index in turn order.
+     */
+    public int getCurrentPlayerIndex() {
+        return this.currentPlayerIndex;
+    }
+
+    /**
+     * Get the index of the winning player.
+     *
+     * @return The winner's index in turn order, or -1 if the game was not
+     *         finished at the time of the snapshot.
+     */
+    public int getWinnerIndex() {
+        return this.winnerIndex;
+    }
+
+    /**
+     * Get the position key at the time of the snapshot.
+     *
+     * @return The Zobrist key of the position.
+     */
+    public long getPositionKey() {
+        return this.positionKey;
+    }
+}
@@ -0,0 +1,191 @@
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+public class GameTest {
+
+    private static final int DIMENSION = 16;
+
+    private static int cell(int x, int y) {
+        return x + y * DIMENSION;
+    }
+
+    private static Game headlessGame() {
+        Game game = new Game(Game.Mode.TWO_PLAYER, DIMENSION, "P1", "P2");
+        game.setHeadless(true);
+        game.begin(Location.of(0, 0, DIMENSION - 1),
+                Location.of(0, DIMENSION - 1, DIMENSION - 1));
+        return game;
+    }
+
+    @Test
+    public void testHeadlessTurns() {
+        Game game = headlessGame();
+        assertNull(game.getSnapshot());
+
+        assertTrue(game.requestMove(cell(1, 0)));
+        assertFalse(game.requestMove(cell(3, DIMENSION - 1)));
+        assertTrue(game.requestMove(cell(1, DIMENSION - 1)));
+        assertEquals(cell(1, 0), game.getCurrentPlayerCell());
+    }
+
+    @Test
+    public void testTurnsDoNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory
+                .getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        /* Warm up: the first turns size the move log and load classes. */
+        Game game = headlessGame();
+        for (int x = 1; x < 4; x++) {
+            assertTrue(game.requestMove(cell(x, 0)));
+            assertTrue(game.requestMove(cell(x, DIMENSION - 1)));
+        }
+
+        long start = threads.getThreadAllocatedBytes(thread);
+        boolean moved = true;
+        for (int x = 4; x < DIMENSION; x++) {
+            moved &= game.requestMove(cell(x, 0));
+            moved &= game.requestMove(cell(x, DIMENSION - 1));
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        /* 24 turns follow; one 16-byte object per turn would take 384
+         * bytes, so the bound only leaves room for the counter's own
+         * noise. */
+        assertTrue(moved);
+        assertTrue("Turns allocated " + allocated + " bytes",
+                allocated <= 256);
+    }
+
+    @Test
+    public void testListenersSeePublishedSnapshot() {
+        final Game game = new Game(Game.Mode.TWO_PLAYER, DIMENSION, "P1", "P2");
+        game.begin(Location.of(0, 0, DIMENSION - 1),
+                Location.of(0, DIMENSION - 1, DIMENSION - 1));
+        final GameSnapshot[] seen = new GameSnapshot[1];
+        game.addMoveListener(new java.awt.event.ActionListener() {
+
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                seen[0] = game.getSnapshot();
+            }
+        });
+
+        assertTrue(game.requestMove(cell(1, 0)));
+        assertEquals(Location.of(1, 0, DIMENSION - 1),
+                seen[0].getPlayerLocation(0));
+        assertEquals(1, seen[0].getCurrentPlayerIndex());
+        assertEquals(Board.LocationState.UNAVAILABLE,
+                seen[0].getBoard().getStateAt(Location.of(1, 0, DIMENSION - 1)));
+    }
+
+    @Test
+    public void testBotRepliesOffCallerThread() throws InterruptedException {
+        Game game = new Game(Game.Mode.ONE_PLAYER, DIMENSION, "P1", "P2");
+        game.setBotBudget(SearchEngine.MAX_PLY, Long.MAX_VALUE, 2000);
+        game.begin(Location.of(DIMENSION / 2, DIMENSION - 1, DIMENSION - 1),
+                Location.of(DIMENSION / 2, 0, DIMENSION - 1));
+
+        long start = System.nanoTime();
+        assertTrue(game.requestMove(cell(DIMENSION / 2, DIMENSION - 2)));
+        long millis = (System.nanoTime() - start) / 1000000L;
+        assertTrue("requestMove took " + millis + " ms", millis < 500);
+        /* The bot is thinking, so it is not the human's turn. */
+        assertFalse(game.requestMove(cell(DIMENSION / 2, DIMENSION - 3)));
+
+        long deadline = System.currentTimeMillis() + 20000;
+        while (game.getSnapshot().getCurrentPlayerIndex() != 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        GameSnapshot snapshot = game.getSnapshot();
+        assertEquals(0, snapshot.getCurrentPlayerIndex());
+        Location bot = snapshot.getPlayerLocation(1);
+        assertEquals(1, Math.abs(bot.getCoordinate(Location.Coordinate.FIRST)
+                - DIMENSION / 2) + bot.getCoordinate(Location.Coordinate.SECOND));
+    }
+
+    @Test
+    public void testBotThreadsChangeDuringBotMove()
+            throws InterruptedException {
+        Game game = new Game(Game.Mode.ONE_PLAYER, DIMENSION, "P1", "P2");
+        game.setBotThreads(2);
+        game.setBotBudget(SearchEngine.MAX_PLY, Long.MAX_VALUE, 300);
+        game.begin(Location.of(DIMENSION / 2, DIMENSION - 1, DIMENSION - 1),
+                Location.of(DIMENSION / 2, 0, DIMENSION - 1));
+
+        /* Each change waits for the bot's search, so the pool it searches
+         * with is never shut down under it, and the bot keeps playing. */
+        int[] moves = { cell(DIMENSION / 2, DIMENSION - 2),
+                cell(DIMENSION / 2, DIMENSION - 3) };
+        for (int turn = 0; turn < moves.length; turn++) {
+            assertTrue(game.requestMove(moves[turn]));
+            Thread.sleep(50);
+            game.setBotThreads(3 - turn);
+            long deadline = System.currentTimeMillis() + 20000;
+            while (game.getSnapshot().getCurrentPlayerIndex() != 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, game.getSnapshot().getCurrentPlayerIndex());
+        }
+        Location bot = game.getSnapshot().getPlayerLocation(1);
+        assertTrue(bot.getCoordinate(Location.Coordinate.SECOND) > 0
+                || bot.getCoordinate(Location.Coordinate.FIRST)
+                        != DIMENSION / 2);
+    }
+
+    @Test
+    public void testWinDeclaredEarly() {
+        Game game = new Game(Game.Mode.TWO_PLAYER, 5, "P1", "P2");
+        game.setHeadless(true);
+        /* The default budget counts nodes only, so the ply does not depend
+         * on the speed of the machine. About a thousand nodes prove this
+         * game. */
+        game.begin(Location.of(2, 0, 4), Location.of(4, 4, 4));
+
+        /* These moves would separate the players only at the last one, with
+         * P1 walled into nine cells and P2 into three. The proof search
+         * declares P1's win after the first move, while they still share
+         * the whole board. */
+        int[] moves = { 2 + 1 * 5, 4 + 3 * 5, 2 + 2 * 5, 4 + 2 * 5,
+                2 + 3 * 5, 4 + 1 * 5, 2 + 4 * 5, 3 + 1 * 5, 1 + 4 * 5 };
+        assertTrue(game.requestMove(moves[0]));
+        assertFalse(game.requestMove(moves[1]));
+        assertEquals("P1", game.getWinner().getName());
+        assertFalse(game.arePlayersSeparated());
+        assertEquals(22, game.getReachableArea(0));
+        assertEquals(22, game.getReachableArea(1));
+    }
+
+    @Test
+    public void testSeparatedGameEndsWithoutProofSearch() {
+        Game game = new Game(Game.Mode.TWO_PLAYER, 5, "P1", "P2");
+        game.setHeadless(true);
+        game.setProofBudget(0, 0);
+        game.begin(Location.of(2, 0, 4), Location.of(4, 4, 4));
+
+        int[] moves = { 2 + 1 * 5, 4 + 3 * 5, 2 + 2 * 5, 4 + 2 * 5,
+                2 + 3 * 5, 4 + 1 * 5, 2 + 4 * 5, 3 + 1 * 5 };
+        for (int move : moves) {
+            assertTrue(game.requestMove(move));
+        }
+        assertEquals("P1", game.getCurrentPlayer().getName());
+
+        /* P1 walls itself into nine cells; P2 is left with at most three. */
+        assertTrue(game.requestMove(1 + 4 * 5));
+        assertEquals("P1", game.getWinner().getName());
+    }
+
+}
@@ -1,3 +1,4 @@
+import java.util.Arrays;
 
 public class Location {
     /**
@@ -11,6 +12,11 @@ public class Location {
      * Invariant:
      * Both x and y are inside the range [0,max]
      * 
+     * Representation:
+     * x, y and max are packed into one long, COORDINATE_BITS bits each, with
+     * x in the lowest bits. Locations on boards of up to INTERN_LIMIT cells
+     * are interned, so Location.of returns one canonical instance per cell.
+     * 
      */
     enum Coordinate {
         FIRST(0, "First axis of location."),
@@ -36,15 +42,26 @@ public class Location {
     }
     
     private static final int MIN = 0;
-    private final int max;
-    private Integer x;
-    private Integer y;
+    
+    /** Number of bits used for each of x, y and max in the packed form. */
+    public static final int COORDINATE_BITS = 21;
+    /** Largest upper bound a Location can have. */
+    public static final int MAX_BOUND = (1 << COORDINATE_BITS) - 1;
+    /** Largest board, in cells, whose Locations are interned. */
+    public static final int INTERN_LIMIT = 1 << 18;
+    
+    /* internTables[max] holds the canonical Locations for that bound, indexed
+     * by x + y*(max + 1). The outer array is replaced, never modified, once
+     * published. */
+    private static volatile Location[][] internTables = new Location[0][];
+    
+    private final long packed;
     
     /**
      * Create a constrained location. The constraints are square,
      * such that both coordinates are constrained to the same bounds.
      * 
-     * @requires x and y both in [0, max].
+     * @requires x and y both in [0, max], max no greater than MAX_BOUND.
      * @throws OutOfBoundsException (unchecked) if x and y do not meet constraints.
      * @param x The first coordinate of the location.
      * @param y The second coordinate of the location.
@@ -52,22 +69,116 @@ public class Location {
      * @return A constrained location, at the specified coordinates.
      */
     public Location(final int x, final int y, final int max) {
+        if ((x < MIN) || (x > max) || (y < MIN) || (y > max)
+                || (max > MAX_BOUND)) {
+            throw new LocationOutOfBoundsException();
+        }
+        this.packed = pack(x, y, max);
+    }
+    
+    /**
+     * Get the canonical constrained location. Locations on boards of at most
+     * INTERN_LIMIT cells are interned, so this allocates nothing after the
+     * first call for a given bound.
+     * 
+     * @requires x and y both in [0, max], max no greater than MAX_BOUND.
+     * @throws LocationOutOfBoundsException (unchecked) if x and y do not meet
+     *         constraints.
+     * @param x The first coordinate of the location.
+     * @param y The second coordinate of the location.
+     * @param max The maximum value of each coordinate.
+     * @return A constrained location, at the specified coordinates.
+     */
+    public static Location of(final int x, final int y, final int max) {
         if ((x < MIN) || (x > max) || (y < MIN) || (y > max)) {
             throw new LocationOutOfBoundsException();
         }
-        this.x = x;
-        this.y = y;
-        this.max = max;
+        Location[] table = getInternTable(max);
+        if (table == null) {
+            return new Location(x, y, max);
+        }
+        return table[x + y * (max + 1)];
+    }
+    
+    /**
+     * Get the canonical location for a packed representation.
+     * 
+     * @requires packed was produced by pack() or getPacked().
+     * @param packed The packed x, y and max.
+     * @return The location represented by packed.
+     */
+    public static Location fromPacked(final long packed) {
+        return of(unpackX(packed), unpackY(packed), unpackMax(packed));
+    }
+    
+    /**
+     * Pack coordinates and bound into one long without creating a Location.
+     * 
+     * @requires x, y and max all in [0, MAX_BOUND].
+     * @return The packed representation of (x, y, max).
+     */
+    public static long pack(final int x, final int y, final int max) {
+        return ((long) x) | ((long) y << COORDINATE_BITS)
+                | ((long) max << (2 * COORDINATE_BITS));
     }
     
     /**
-     * Create a copy of a Location.
+     * Get the first coordinate of a packed location.
+     * 
+     * @param packed The packed x, y and max.
+     * @return The first coordinate.
+     */
+    public static int unpackX(final long packed) {
+        return (int) (packed & MAX_BOUND);
+    }
+    
+    /**
+     * Get the second coordinate of a packed location.
+     * 
+     * @param packed The packed x, y and max.
+     * @return The second coordinate.
+     */
+    public static int unpackY(final long packed) {
+        return (int) ((packed >>> COORDINATE_BITS) & MAX_BOUND);
+    }
+    
+    /**
+     * Get the upper bound of a packed location.
+     * 
+     * @param packed The packed x, y and max.
+     * @return The upper bound.
+     */
+    public static int unpackMax(final long packed) {
+        return (int) ((packed >>> (2 * COORDINATE_BITS)) & MAX_BOUND);
+    }
+    
+    /**
+     * Create a copy of a Location. Locations are immutable, so the copy is
+     * the canonical instance for the same coordinates and bound.
      * 
      * @param location The Location to be copied.
      * @return A copy of the given Location.
      */
     public Location clone() {
-        return new Location(this.x, this.y, this.max);
+        return of(getX(), getY(), getUpperBound());
+    }
+    
+    /**
+     * Get the packed representation of this location.
+     * 
+     * @return x, y and max packed as by pack().
+     */
+    public long getPacked() {
+        return this.packed;
+    }
+    
+    /**
+     * Get the index of this location on a board of dimension max + 1.
+     * 
+     * @return x + y*(max + 1).
+     */
+    public int getIndex() {
+        return getX() + getY() * (getUpperBound() + 1);
     }
     
     /**
@@ -80,7 +191,7 @@ public class Location {
      * @return A new location offset by some (x,y) distance from this.
      */
     public Location cloneOffset(final int plusX, final int plusY) {
-        return new Location(this.x + plusX, this.y + plusY, this.max);
+        return of(getX() + plusX, getY() + plusY, getUpperBound());
     }
     
     /**
@@ -119,7 +230,7 @@ public class Location {
      *         no bound was given at creation.
      */
     public int getUpperBound() {
-        return this.max;
+        return unpackMax(this.packed);
     }
     
     /**
@@ -130,9 +241,9 @@ public class Location {
      */
     public int getCoordinate(final Location.Coordinate coordinate) {
         if (coordinate == Coordinate.FIRST) {
-            return this.x;
+            return getX();
         } else {
-            return this.y;
+            return getY();
         }
     }
     
@@ -149,24 +260,29 @@ public class Location {
      *         upper bound than this.
      */
     public Direction getDirectionTo(final Location that) {
-        if (this.max != that.max) {
+        if (this.getUpperBound() != that.getUpperBound()) {
             throw new LocationOutOfBoundsException();
         }
         
-        if (this.x != that.x && this.y != that.y) {
+        final int thisX = this.getX();
+        final int thisY = this.getY();
+        final int thatX = that.getX();
+        final int thatY = that.getY();
+        
+        if (thisX != thatX && thisY != thatY) {
             return Direction.NOT_A_DIRECTION;
         }
 
-        if (that.y == this.y + 1) {
+        if (thatY == thisY + 1) {
             return Direction.NORTH;
         }
-        if (that.y == this.y - 1) {
+        if (thatY == thisY - 1) {
             return Direction.SOUTH;
         }
-        if (that.x == this.x + 1) {
+        if (thatX == thisX + 1) {
             return Direction.EAST;
         }
-        if (that.x == this.x - 1) {
+        if (thatX == thisX - 1) {
             return Direction.WEST;
         }
         
@@ -181,11 +297,15 @@ public class Location {
      */
     @Override
     public boolean equals(Object that) {
-        Location location = (Location) that;
-        if ((this.x == location.x) && (this.y == location.y) && (this.max == location.max)) {
-            return true;
+        if (!(that instanceof Location)) {
+            return false;
         }
-        return false;
+        return this.packed == ((Location) that).packed;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.packed);
     }
     
     /**
@@ -196,7 +316,7 @@ public class Location {
     public static Location fromString(String locationString, int max) {
         int x = Integer.valueOf(locationString.substring(1, 2));
         int y = Integer.valueOf(locationString.substring(3, 4));
-        return new Location(x,y,max);
+        return of(x,y,max);
     }
     
     /**
@@ -207,8 +327,49 @@ public class Location {
     @Override
     public String toString() {
         StringBuilder string = new StringBuilder();
-        string.append("[" + this.x.toString() + "," + this.y.toString() + "]");
+        string.append("[" + getX() + "," + getY() + "]");
         return string.toString();
     }
+    
+    private int getX() {
+        return unpackX(this.packed);
+    }
+    
+    private int getY() {
+        return unpackY(this.packed);
+    }
+    
+    /**
+     * Get the intern table for a bound, building it on first use.
+     * 
+     * @return The table for max, or null if boards with that bound are too
+     *         large to intern.
+     */
+    private static Location[] getInternTable(final int max) {
+        Location[][] tables = internTables;
+        if (max < tables.length && tables[max] != null) {
+            return tables[max];
+        }
+        if ((long) (max + 1) * (max + 1) > INTERN_LIMIT) {
+            return null;
+        }
+        synchronized (Location.class) {
+            tables = internTables;
+            if (max < tables.length && tables[max] != null) {
+                return tables[max];
+            }
+            Location[] table = new Location[(max + 1) * (max + 1)];
+            for (int y = 0; y <= max; y++) {
+                for (int x = 0; x <= max; x++) {
+                    table[x + y * (max + 1)] = new Location(x, y, max);
+                }
+            }
+            Location[][] grown = Arrays.copyOf(tables,
+                    Math.max(tables.length, max + 1));
+            grown[max] = table;
+            internTables = grown;
+            return table;
+        }
+    }
 
 }
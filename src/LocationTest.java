@@ -148,5 +148,25 @@ public class LocationTest {
         Location location2 = new Location(x, y, max+1);
         location1.getDirectionTo(location2);
     }
+    
+    @Test
+    public void testOfIsInterned() {
+        Location location1 = Location.of(3, 4, 8);
+        Location location2 = Location.of(3, 4, 8);
+        assertSame(location1, location2);
+        assertSame(location1, location1.cloneOffset(0, 0));
+        assertEquals(new Location(3, 4, 8), location1);
+    }
+    
+    @Test
+    public void testPacked() {
+        Location location = new Location(1000, 2000, 49999);
+        long packed = location.getPacked();
+        assertEquals(1000, Location.unpackX(packed));
+        assertEquals(2000, Location.unpackY(packed));
+        assertEquals(49999, Location.unpackMax(packed));
+        assertEquals(location, Location.fromPacked(packed));
+        assertEquals(1000 + 2000 * 50000, location.getIndex());
+    }
 
 }
@@ -0,0 +1,309 @@
+/**
+ * Computes how many moves a player can still make once it is alone in its
+ * region: the length of the longest self-avoiding walk from its cell through
+ * available cells.
+ *
+ * Cheap bounds come first from a ChamberAnalyzer. Regions of up to
+ * EXACT_LIMIT cells that they do not settle are solved exactly by branch
+ * and bound, pruned by checkerboard parity and memoised on the signature
+ * of the position: the walker's cell and the set of cells it can still
+ * reach, which is all the rest of the walk depends on. Every node of the
+ * search flood fills what the walker can still reach, so a search is
+ * budgeted by the cells its fills visit rather than by its nodes. Larger
+ * regions, and searches that spend their work budget, fall back to the
+ * better of a greedy walk and the chamber bounds.
+ *
+ * The memo is kept between calls, so the positions of one game share work
+ * as the players advance.
+ *
+ * @invariant Memo entries hold exact walk lengths only.
+ */
+public final class LongestPathSolver {
+
+    /** Largest reachable area that is searched exactly. */
+    public static final int EXACT_LIMIT = 300;
+    /** Default number of cells the fills of one solve may visit. */
+    public static final long WORK_BUDGET = 2000000L;
+
+    private static final int MEMO_BITS = 16;
+
+    /**
+     * Proven bounds on the longest walk from a cell.
+     */
+    public static final class Bound {
+
+        private final int lower;
+        private final int upper;
+
+        Bound(final int lower, final int upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        /**
+         * @return A length the player can certainly reach.
+         */
+        public int getLower() {
+            return this.lower;
+        }
+
+        /**
+         * @return A length the player certainly cannot exceed.
+         */
+        public int getUpper() {
+            return this.upper;
+        }
+
+        /**
+         * @return true if the bounds meet, so the length is known exactly.
+         */
+        public boolean isExact() {
+            return this.lower == this.upper;
+        }
+    }
+
+    private final Board board;
+    private final Topology topology;
+    private final ZobristKeys keys;
+    private final ChamberAnalyzer chambers;
+    private final boolean bipartite;
+    private final long workBudget;
+
+    /* visited[c] is true for cells on the current walk. */
+    private final boolean[] visited;
+    /* Flood fill state; a cell is filled when fillMark[c] == fillStamp. */
+    private final int[] fillMark;
+    private final int[] fillQueue;
+    private int fillStamp = 0;
+    private int fillSize;
+    private int fillBound;
+    private long fillSignature;
+
+    private final long[] memoKeys = new long[1 << MEMO_BITS];
+    private final int[] memoValues = new int[1 << MEMO_BITS];
+
+    /* Cells visited by the fills of the current solve. */
+    private long work;
+    private boolean aborted;
+
+    /**
+     * Create a solver for a board with the default work budget. The solver
+     * reads the board's current availability on every call.
+     *
+     * @requires board is DENSE.
+     * @param board The board to solve on.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    public LongestPathSolver(final Board board) {
+        this(board, WORK_BUDGET);
+    }
+
+    /**
+     * Create a solver for a board that gives up on an exact answer once
+     * the flood fills of one solve have visited workBudget cells, which
+     * bounds its time at about workBudget times the degree of a cell.
+     *
+     * @requires board is DENSE, workBudget is greater than 0.
+     * @param board The board to solve on.
+     * @param workBudget The number of cells the fills of one solve may
+     *        visit.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    public LongestPathSolver(final Board board, final long workBudget) {
+        if (board.getStorage() != Board.Storage.DENSE) {
+            throw new InvalidStateException(
+                    "Operation requires a DENSE board.");
+        }
+        this.board = board;
+        this.topology = board.getTopology();
+        this.keys = board.getZobristKeys();
+        this.chambers = new ChamberAnalyzer(board);
+        this.bipartite = ChamberAnalyzer.isBipartite(topology);
+        this.workBudget = workBudget;
+        this.visited = new boolean[topology.getCellCount()];
+        this.fillMark = new int[topology.getCellCount()];
+        this.fillQueue = new int[topology.getCellCount()];
+    }
+
+    /**
+     * Bound the number of moves a player standing on a cell can still make,
+     * ignoring the other player, using only the chamber analysis.
+     *
+     * @requires cell in [0, dimension*dimension - 1].
+     * @param cell The index of the player's cell.
+     * @return Cheap bounds on the longest walk.
+     */
+    public Bound bound(final int cell) {
+        return chambers.analyze(cell);
+    }
+
+    /**
+     * Bound the number of moves a player standing on a cell can still make,
+     * ignoring the other player.
+     *
+     * @requires cell in [0, dimension*dimension - 1].
+     * @param cell The index of the player's cell.
+     * @return Bounds on the longest walk, exact whenever the search
+     *         completed.
+     */
+    public Bound solve(final int cell) {
+        final Bound cheap = chambers.analyze(cell);
+        if (cheap.isExact()) {
+            return cheap;
+        }
+        final int upper = cheap.getUpper();
+        final int greedy = Math.max(cheap.getLower(), greedyWalk(cell));
+        if (greedy >= upper) {
+            return new Bound(upper, upper);
+        }
+        work = 0;
+        aborted = false;
+        fill(cell);
+        if (!aborted && fillSize <= EXACT_LIMIT) {
+            visited[cell] = true;
+            int longest = search(cell);
+            visited[cell] = false;
+            if (!aborted) {
+                return new Bound(longest, longest);
+            }
+        }
+        return new Bound(greedy, upper);
+    }
+
+    /**
+     * Find the longest walk from a cell on the walk, or give up once the
+     * work budget is spent.
+     */
+    private int search(final int cell) {
+        fill(cell);
+        if (aborted) {
+            return 0;
+        }
+        final int area = fillBound;
+        if (area == 0) {
+            return 0;
+        }
+        final long signature = fillSignature;
+        final int slot = (int) (signature >>> (64 - MEMO_BITS));
+        if (memoKeys[slot] == signature && memoValues[slot] > 0) {
+            return memoValues[slot];
+        }
+
+        int best = 0;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end && best < area; e++) {
+            final int next = topology.getNeighbourAt(e);
+            if (isBlocked(next)) {
+                continue;
+            }
+            visited[next] = true;
+            best = Math.max(best, 1 + search(next));
+            visited[next] = false;
+            if (aborted) {
+                return best;
+            }
+        }
+        memoKeys[slot] = signature;
+        memoValues[slot] = best;
+        return best;
+    }
+
+    /**
+     * Walk from a cell, always stepping to the free neighbour with the
+     * fewest free neighbours of its own.
+     *
+     * @return The length of the walk.
+     */
+    private int greedyWalk(final int start) {
+        int length = 0;
+        int cell = start;
+        while (true) {
+            int choice = -1;
+            int fewest = Integer.MAX_VALUE;
+            final int end = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < end; e++) {
+                final int next = topology.getNeighbourAt(e);
+                if (isBlocked(next)) {
+                    continue;
+                }
+                int onward = countFree(next);
+                if (onward < fewest) {
+                    fewest = onward;
+                    choice = next;
+                }
+            }
+            if (choice < 0) {
+                break;
+            }
+            visited[choice] = true;
+            fillQueue[length++] = choice;
+            cell = choice;
+        }
+        for (int i = 0; i < length; i++) {
+            visited[fillQueue[i]] = false;
+        }
+        return length;
+    }
+
+    private int countFree(final int cell) {
+        int free = 0;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            if (!isBlocked(topology.getNeighbourAt(e))) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Flood fill the cells reachable from a cell, setting fillSize,
+     * fillBound, its parity bound, and fillSignature, a Zobrist hash of the
+     * cell and the reachable set. Charges the cells visited to the work
+     * budget, and sets aborted instead, leaving the results partial, as
+     * soon as the budget would be exceeded.
+     */
+    private void fill(final int start) {
+        if (++fillStamp == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(fillMark, 0);
+            fillStamp = 1;
+        }
+        final int dimension = topology.getDimension();
+        final int colour = (start % dimension + start / dimension) & 1;
+        int same = 0;
+        int head = 0;
+        int tail = 0;
+        long signature = keys.getPlayerKey(0, start);
+        fillMark[start] = fillStamp;
+        fillQueue[tail++] = start;
+        while (head < tail) {
+            if (work + head >= workBudget) {
+                aborted = true;
+                return;
+            }
+            final int cell = fillQueue[head++];
+            final int end = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < end; e++) {
+                final int next = topology.getNeighbourAt(e);
+                if (fillMark[next] != fillStamp && !isBlocked(next)) {
+                    fillMark[next] = fillStamp;
+                    fillQueue[tail++] = next;
+                    signature ^= keys.getUnavailableKey(next);
+                    if (((next % dimension + next / dimension) & 1) == colour) {
+                        same++;
+                    }
+                }
+            }
+        }
+        work += tail;
+        fillSize = tail - 1;
+        fillBound = ChamberAnalyzer.parityBound(fillSize - same, same,
+                bipartite);
+        fillSignature = signature;
+    }
+
+    private boolean isBlocked(final int cell) {
+        return visited[cell] || board.getStateAt(cell)
+                == Board.LocationState.UNAVAILABLE;
+    }
+}
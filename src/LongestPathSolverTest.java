@@ -0,0 +1,82 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongestPathSolverTest {
+
+    @Test
+    public void testOpenBoardIsHamiltonian() {
+        Board board = new Board(4);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        LongestPathSolver.Bound walk = new LongestPathSolver(board).solve(0);
+        assertTrue(walk.isExact());
+        assertEquals(15, walk.getLower());
+    }
+
+    @Test
+    public void testChoosesLongerBranch() {
+        /* A T-junction: two steps west or three steps east of (2,1). */
+        BitBoard obstacles = new BitBoard(6);
+        for (int cell = 0; cell < 36; cell++) {
+            obstacles.set(cell);
+        }
+        int[] open = { 1 + 6, 2 + 6, 3 + 6, 4 + 6, 5 + 6, 2 + 12, 2 + 18 };
+        for (int cell : open) {
+            obstacles.clear(cell);
+        }
+        obstacles.clear(0 + 6);
+        Board board = new Board(Topology.masked(obstacles));
+        board.setStateAt(2 + 18, Board.LocationState.UNAVAILABLE);
+
+        LongestPathSolver.Bound walk = new LongestPathSolver(board)
+                .solve(2 + 18);
+        assertTrue(walk.isExact());
+        assertEquals(5, walk.getLower());
+    }
+
+    @Test
+    public void testLargeRegionFallsBackToBounds() {
+        Board board = new Board(24);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(25, Board.LocationState.UNAVAILABLE);
+        LongestPathSolver.Bound walk = new LongestPathSolver(board).solve(0);
+        assertTrue(walk.getLower() > 0);
+        assertTrue(walk.getLower() <= walk.getUpper());
+        /* 286 free cells share the start's colour, so at most 2*286 + 1. */
+        assertEquals(573, walk.getUpper());
+    }
+
+    @Test
+    public void testWorkBudgetKeepsBoundsSound() {
+        Random random = new Random(5);
+        for (int round = 0; round < 10; round++) {
+            Board board = new Board(12);
+            for (int cell = 1; cell < 144; cell++) {
+                if (random.nextDouble() < 0.2) {
+                    board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+                }
+            }
+            board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+            LongestPathSolver.Bound exact = new LongestPathSolver(board)
+                    .solve(0);
+            LongestPathSolver.Bound cheap = new LongestPathSolver(board, 50)
+                    .solve(0);
+            assertTrue(cheap.getLower() <= exact.getLower());
+            assertTrue(cheap.getUpper() >= exact.getUpper());
+        }
+    }
+
+    @Test
+    public void testStuck() {
+        Board board = new Board(3);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(1, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(3, Board.LocationState.UNAVAILABLE);
+        LongestPathSolver.Bound walk = new LongestPathSolver(board).solve(0);
+        assertTrue(walk.isExact());
+        assertEquals(0, walk.getUpper());
+    }
+
+}
@@ -0,0 +1,390 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Monte Carlo tree search with UCT selection, as an alternative to
+ * SearchEngine for choosing a move.
+ *
+ * Each playout walks down the tree, picking at every node the child with
+ * the best upper confidence bound, expands the first node it reaches for
+ * the second time, and then plays random moves to the end of the game on a
+ * private BitBoard of the availability. A random move into a cell with no
+ * way out is drawn again once. The winner is credited to every node on the
+ * walk whose move they made.
+ *
+ * Several threads grow one tree at once. Visit and win counts are atomic
+ * counters, and a thread counts its visit to a node on the way down, before
+ * the playout is finished: until the result arrives the visit scores as a
+ * loss, which steers the other threads to other lines. Children are
+ * published with a single compare-and-set, so the tree needs no locks.
+ *
+ * The search stops when its playout budget or its time runs out and plays
+ * the most visited move.
+ */
+public final class MonteCarloSearch {
+
+    /* Weight of the exploration term of the upper confidence bound. */
+    private static final double EXPLORATION = Math.sqrt(2);
+    /* Playouts between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 64;
+
+    private static final class Node {
+
+        static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        static final AtomicIntegerFieldUpdater<Node> WINS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "wins");
+        static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class,
+                        Node[].class, "children");
+
+        /* The cell moved to, and the player who moved there. */
+        final int cell;
+        final int mover;
+        volatile int visits = 0;
+        volatile int wins = 0;
+        /* Null until the node is expanded. */
+        volatile Node[] children = null;
+
+        Node(final int cell, final int mover) {
+            this.cell = cell;
+            this.mover = mover;
+        }
+    }
+
+    private final Board board;
+    private final Topology topology;
+    private final ExecutorService executor;
+    private final Worker[] workers;
+    private final BitBoard rootBlocked;
+
+    /* The position searched, shared with the workers. */
+    private final int[] rootCells = new int[2];
+    private int rootToMove;
+    private Node root;
+    private final AtomicLong playoutCounter = new AtomicLong();
+    private long playoutBudget;
+    private long deadline;
+
+    private long playouts;
+    private long elapsedNanos;
+    private double winRate;
+
+    /**
+     * Create a search for a board.
+     *
+     * @requires board is DENSE and threads is greater than 0. If threads is
+     *           greater than 1, executor can run threads - 1 tasks at once.
+     * @param board The board to search on; it is only read.
+     * @param threads The number of threads growing the tree, counting the
+     *        calling thread.
+     * @param executor Runs the other threads, or null if threads is 1.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE,
+     *         threads is not positive, or executor is missing.
+     */
+    public MonteCarloSearch(final Board board, final int threads,
+            final ExecutorService executor) {
+        if (board.getStorage() != Board.Storage.DENSE) {
+            throw new InvalidStateException(
+                    "Operation requires a DENSE board.");
+        }
+        if (threads <= 0 || (threads > 1 && executor == null)) {
+            throw new InvalidStateException(
+                    "A search needs at least one thread and an executor "
+                            + "for the others.");
+        }
+        this.board = board;
+        this.topology = board.getTopology();
+        this.executor = executor;
+        this.rootBlocked = new BitBoard(board.getDimension());
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Search the board's current position and choose a move for the player
+     * to move.
+     *
+     * @requires Both player cells are unavailable on the board.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @param playoutBudget The number of playouts to run at most.
+     * @param timeBudgetMillis The time to spend at most.
+     * @throws InvalidStateException (unchecked) if a search thread fails.
+     * @return The cell to move to, or -1 if the player has no move.
+     */
+    public int search(final int firstCell, final int secondCell,
+            final int playerToMove, final long playoutBudget,
+            final long timeBudgetMillis) {
+        final long start = System.nanoTime();
+        board.copyUnavailableCells(rootBlocked);
+        rootCells[0] = firstCell;
+        rootCells[1] = secondCell;
+        rootToMove = playerToMove;
+        root = new Node(-1, 1 - playerToMove);
+        playoutCounter.set(0);
+        this.playoutBudget = playoutBudget;
+        this.deadline = start + timeBudgetMillis * 1000000L;
+
+        final List<Future<Void>> helpers = new ArrayList<Future<Void>>();
+        for (int i = 1; i < workers.length; i++) {
+            helpers.add(executor.submit(workers[i]));
+        }
+        workers[0].call();
+        try {
+            for (Future<Void> helper : helpers) {
+                helper.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new InvalidStateException("A search thread failed.");
+        }
+
+        playouts = 0;
+        for (Worker worker : workers) {
+            playouts += worker.completed;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        final Node[] children = root.children;
+        Node best = null;
+        if (children != null) {
+            for (Node child : children) {
+                if (best == null || child.visits > best.visits) {
+                    best = child;
+                }
+            }
+        }
+        if (best == null) {
+            winRate = 0;
+            return firstMove(firstCell, secondCell, playerToMove);
+        }
+        winRate = best.visits == 0 ? 0 : (double) best.wins / best.visits;
+        return best.cell;
+    }
+
+    /**
+     * Get the share of the playouts through the chosen move that the player
+     * to move won in the last search.
+     *
+     * @return The win rate in [0, 1].
+     */
+    public double getWinRate() {
+        return this.winRate;
+    }
+
+    /**
+     * Get the number of playouts run by the last search.
+     *
+     * @return The playout count.
+     */
+    public long getPlayoutCount() {
+        return this.playouts;
+    }
+
+    /**
+     * Get the combined speed of every thread in the last search.
+     *
+     * @return Playouts per second of wall-clock time.
+     */
+    public long getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Get the number of threads growing the tree.
+     *
+     * @return The thread count, counting the calling thread.
+     */
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    private int firstMove(final int firstCell, final int secondCell,
+            final int playerToMove) {
+        final int from = playerToMove == 0 ? firstCell : secondCell;
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            final int next = topology.getNeighbourAt(e);
+            if (!rootBlocked.get(next)) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One thread's share of the search, with its own board and random
+     * numbers.
+     */
+    private final class Worker implements Callable<Void> {
+
+        private final BitBoard blocked;
+        private final int[] cells = new int[2];
+        private int toMove;
+        private final SplittableRandom random;
+        private final int[] moves;
+        private Node[] path;
+        private long completed;
+
+        Worker(final int index) {
+            this.blocked = new BitBoard(board.getDimension());
+            this.random = new SplittableRandom(index * 0x9E3779B97F4A7C15L);
+            this.moves = new int[Math.max(1, topology.getMaxDegree())];
+            this.path = new Node[64];
+        }
+
+        /**
+         * Run playouts until the budget or the time runs out.
+         */
+        public Void call() {
+            completed = 0;
+            while (playoutCounter.incrementAndGet() <= playoutBudget) {
+                if (completed % CLOCK_INTERVAL == 0
+                        && System.nanoTime() > deadline) {
+                    break;
+                }
+                playout();
+                completed++;
+            }
+            return null;
+        }
+
+        private void playout() {
+            blocked.copyFrom(rootBlocked);
+            cells[0] = rootCells[0];
+            cells[1] = rootCells[1];
+            toMove = rootToMove;
+
+            Node node = root;
+            Node.VISITS.incrementAndGet(node);
+            int depth = 0;
+            path[depth++] = node;
+            while (true) {
+                Node[] children = node.children;
+                if (children == null) {
+                    /* A leaf is expanded on its second visit. */
+                    if (node != root && node.visits <= 1) {
+                        break;
+                    }
+                    children = expand(node);
+                }
+                if (children.length == 0) {
+                    break;
+                }
+                node = select(node, children);
+                Node.VISITS.incrementAndGet(node);
+                play(node.cell);
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                }
+                path[depth++] = node;
+            }
+
+            final int winner = rollout();
+            for (int i = 0; i < depth; i++) {
+                if (path[i].mover == winner) {
+                    Node.WINS.incrementAndGet(path[i]);
+                }
+            }
+        }
+
+        /**
+         * Give a node its children, unless another thread got there first.
+         */
+        private Node[] expand(final Node node) {
+            final int count = generateMoves();
+            final Node[] children = new Node[count];
+            for (int i = 0; i < count; i++) {
+                children[i] = new Node(moves[i], toMove);
+            }
+            Node.CHILDREN.compareAndSet(node, null, children);
+            return node.children;
+        }
+
+        /**
+         * Pick the child with the best upper confidence bound; unvisited
+         * children come first.
+         */
+        private Node select(final Node parent, final Node[] children) {
+            final double logVisits = Math.log(Math.max(1, parent.visits));
+            Node best = children[0];
+            double bestValue = Double.NEGATIVE_INFINITY;
+            final int offset = random.nextInt(children.length);
+            for (int i = 0; i < children.length; i++) {
+                final Node child = children[(i + offset) % children.length];
+                final int visits = child.visits;
+                if (visits == 0) {
+                    return child;
+                }
+                final double value = (double) child.wins / visits
+                        + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Play random moves to the end of the game.
+         *
+         * @return The index of the winner.
+         */
+        private int rollout() {
+            while (true) {
+                final int count = generateMoves();
+                if (count == 0) {
+                    return 1 - toMove;
+                }
+                int move = moves[random.nextInt(count)];
+                if (count > 1 && isDeadEnd(move)) {
+                    /* Try once more before walking into a dead end. */
+                    move = moves[random.nextInt(count)];
+                }
+                play(move);
+            }
+        }
+
+        private boolean isDeadEnd(final int cell) {
+            final int end = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < end; e++) {
+                if (!blocked.get(topology.getNeighbourAt(e))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int generateMoves() {
+            int count = 0;
+            final int from = cells[toMove];
+            final int end = topology.getEdgeEnd(from);
+            for (int e = topology.getEdgeStart(from); e < end; e++) {
+                final int next = topology.getNeighbourAt(e);
+                if (!blocked.get(next)) {
+                    moves[count++] = next;
+                }
+            }
+            return count;
+        }
+
+        private void play(final int cell) {
+            blocked.set(cell);
+            cells[toMove] = cell;
+            toMove = 1 - toMove;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class MonteCarloSearchTest {
+
+    @Test
+    public void testAvoidsDeadEnd() {
+        /* Player 1 at (0, 2) can step north into the dead end (0, 3) or
+         * south into the open board; player 2 sits far away. */
+        Board board = new Board(7);
+        board.setStateAt(1 + 3 * 7, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(0 + 4 * 7, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(1 + 2 * 7, Board.LocationState.UNAVAILABLE);
+        int first = 0 + 2 * 7;
+        int second = 6 + 6 * 7;
+        board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+        MonteCarloSearch search = new MonteCarloSearch(board, 1, null);
+        int move = search.search(first, second, 0, 5000, 10000);
+        assertEquals(0 + 1 * 7, move);
+        assertEquals(5000, search.getPlayoutCount());
+        assertTrue(search.getWinRate() > 0);
+    }
+
+    @Test
+    public void testWonPositionScoresOne() {
+        /* Player 2 is boxed in, so every move of player 1 wins, even the
+         * one into the dead end at (2, 0). */
+        Board board = new Board(5);
+        int first = 1;
+        int second = 4 + 4 * 5;
+        board.setStateAt(3 + 4 * 5, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(4 + 3 * 5, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(3, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(2 + 5, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+        MonteCarloSearch search = new MonteCarloSearch(board, 1, null);
+        int move = search.search(first, second, 0, 2000, 10000);
+        assertTrue(board.isMoveLegal(first, move));
+        assertEquals(1.0, search.getWinRate(), 0.0);
+    }
+
+    @Test
+    public void testThreadsShareOneTree() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Board board = new Board(11);
+            int first = 5;
+            int second = 5 + 10 * 11;
+            board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+            board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+            long key = board.getZobristKey();
+            MonteCarloSearch search = new MonteCarloSearch(board, 4, pool);
+            assertEquals(4, search.getThreadCount());
+            int move = search.search(first, second, 1, 20000, 10000);
+            assertTrue(board.isMoveLegal(second, move));
+            assertEquals(20000, search.getPlayoutCount());
+            assertTrue(search.getPlayoutsPerSecond() > 0);
+            assertEquals(key, board.getZobristKey());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDeadlineStopsSearch() {
+        Board board = new Board(31);
+        board.setStateAt(15, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(15 + 30 * 31, Board.LocationState.UNAVAILABLE);
+        MonteCarloSearch search = new MonteCarloSearch(board, 1, null);
+        long start = System.nanoTime();
+        int move = search.search(15, 15 + 30 * 31, 0, Long.MAX_VALUE, 100);
+        assertTrue((System.nanoTime() - start) / 1000000L < 5000);
+        assertTrue(board.isMoveLegal(15, move));
+        assertTrue(search.getPlayoutCount() > 0);
+    }
+}
@@ -0,0 +1,425 @@
+import java.util.Arrays;
+
+/**
+ * A compact, append-only record of a game's moves. The first two entries are
+ * the start cells of player 1 and player 2; after that the players
+ * alternate, player 1 first. Each later entry is stored as a 2-bit
+ * Direction from the mover's previous cell, 32 moves to a long word. Entries
+ * that are not a single cardinal step (wrap-around or hexagonal moves, or
+ * cells set out of turn) are kept as exceptions with their full position.
+ *
+ * Abstraction function:
+ * Entry k (k >= 2) belongs to player k % 2 and is the cell reached from
+ * that player's previous cell by the Direction in bits 2*(k % 32) of
+ * codes[k / 32], unless k is in exceptionIndices, in which case it is the
+ * matching entry of exceptionPositions. Positions are packed as by
+ * Location.pack. The matching entry of exceptionPrevious is the mover's
+ * position before the exception, so that removing it needs no replay.
+ *
+ * Invariant:
+ * checkpoints[p] is player p's start position, for p < size.
+ * checkpoints[2*c + p] is player p's position after entry c*CHECKPOINT - 1,
+ * for every c with c*CHECKPOINT <= size and c >= 1.
+ * exceptionIndices is sorted and its first exceptionCount entries are used.
+ *
+ */
+public class MoveLog {
+
+    /** Number of entries between stored position checkpoints. */
+    public static final int CHECKPOINT = 64;
+
+    private static final int MOVES_PER_WORD = 32;
+    private static final int[] DX = { 0, 0, 1, -1 };
+    private static final int[] DY = { 1, -1, 0, 0 };
+
+    private final int max;
+
+    private long[] codes;
+    private long[] checkpoints;
+    private int[]  exceptionIndices = new int[4];
+    private long[] exceptionPositions = new long[4];
+    private long[] exceptionPrevious = new long[4];
+    private int    exceptionCount = 0;
+    private int    size = 0;
+
+    /* Latest position of each player, packed; valid once they have started. */
+    private final long[] current = new long[2];
+
+    /**
+     * Create an empty log for a board of a dimension.
+     *
+     * @requires dimension in [1, Location.MAX_BOUND + 1].
+     * @param dimension The dimension of the board along one edge.
+     */
+    public MoveLog(final int dimension) {
+        this(dimension, 0);
+    }
+
+    /**
+     * Create an empty log for a board of a dimension, sized so that the
+     * first expectedSize entries are appended without allocating.
+     *
+     * @requires dimension in [1, Location.MAX_BOUND + 1], expectedSize is
+     *           non-negative.
+     * @param dimension The dimension of the board along one edge.
+     * @param expectedSize The number of entries to reserve room for.
+     */
+    public MoveLog(final int dimension, final int expectedSize) {
+        this.max = dimension - 1;
+        this.codes = new long[Math.max(4, expectedSize / MOVES_PER_WORD + 1)];
+        this.checkpoints = new long[Math.max(8, 2 * (expectedSize / CHECKPOINT + 2))];
+    }
+
+    /**
+     * Create a copy of a MoveLog.
+     *
+     * @return A log with the same entries.
+     */
+    @Override
+    public MoveLog clone() {
+        MoveLog copy = new MoveLog(max + 1);
+        copy.codes = codes.clone();
+        copy.checkpoints = checkpoints.clone();
+        copy.exceptionIndices = exceptionIndices.clone();
+        copy.exceptionPositions = exceptionPositions.clone();
+        copy.exceptionPrevious = exceptionPrevious.clone();
+        copy.exceptionCount = exceptionCount;
+        copy.size = size;
+        copy.current[0] = current[0];
+        copy.current[1] = current[1];
+        return copy;
+    }
+
+    /**
+     * Get the number of entries, including both start cells.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Append the next entry.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @modifies this
+     */
+    public void append(final int x, final int y) {
+        final long position = Location.pack(x, y, max);
+        final int player = size & 1;
+        if (size >= 2) {
+            int code = getCode(current[player], x, y);
+            if (code < 0) {
+                addException(size, position, current[player]);
+                code = 0;
+            }
+            final int word = size / MOVES_PER_WORD;
+            if (word == codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            final int shift = 2 * (size % MOVES_PER_WORD);
+            codes[word] = (codes[word] & ~(3L << shift)) | ((long) code << shift);
+        } else {
+            checkpoints[player] = position;
+        }
+        current[player] = position;
+        size++;
+        if (size % CHECKPOINT == 0) {
+            final int checkpoint = 2 * (size / CHECKPOINT);
+            if (checkpoint + 1 >= checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+            }
+            checkpoints[checkpoint] = current[0];
+            checkpoints[checkpoint + 1] = current[1];
+        }
+    }
+
+    /**
+     * Remove the last entry in O(1) time, without allocating. The mover's
+     * previous position is found by stepping back along the entry's
+     * Direction.
+     *
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if the log is empty.
+     */
+    public void removeLast() {
+        if (size == 0) {
+            throw new InvalidStateException("Move log is empty.");
+        }
+        size--;
+        if (size < 2) {
+            return;
+        }
+        final int player = size & 1;
+        if (exceptionCount > 0 && exceptionIndices[exceptionCount - 1] == size) {
+            exceptionCount--;
+            current[player] = exceptionPrevious[exceptionCount];
+            return;
+        }
+        final int code = (int) (codes[size / MOVES_PER_WORD]
+                >>> (2 * (size % MOVES_PER_WORD))) & 3;
+        final long position = current[player];
+        current[player] = Location.pack(Location.unpackX(position) - DX[code],
+                Location.unpackY(position) - DY[code], max);
+    }
+
+    /**
+     * Get the position reached by an entry, in O(CHECKPOINT) time.
+     *
+     * @requires k in [0, size() - 1].
+     * @param k The index of the entry.
+     * @return The packed position of entry k.
+     * @throws InvalidStateException (unchecked) if k is out of range.
+     */
+    public long getPosition(final int k) {
+        if (k < 0 || k >= size) {
+            throw new InvalidStateException("No such move.");
+        }
+        if (k == size - 1 || k == size - 2) {
+            return current[k & 1];
+        }
+        return replay(k);
+    }
+
+    /**
+     * Decode entry k from the nearest checkpoint at or before it. Only the
+     * mover's own entries are decoded, so nothing is allocated.
+     */
+    private long replay(final int k) {
+        if (k < 2) {
+            return getPositionFromStart(k);
+        }
+        final int checkpoint = k / CHECKPOINT;
+        final int player = k & 1;
+        long position;
+        int entry;
+        if (checkpoint == 0) {
+            position = getPositionFromStart(player);
+            entry = 2 + player;
+        } else {
+            position = checkpoints[2 * checkpoint + player];
+            entry = checkpoint * CHECKPOINT + player;
+        }
+        for (; entry <= k; entry += 2) {
+            position = decode(entry, position);
+        }
+        return position;
+    }
+
+    /**
+     * Get the player who made an entry.
+     *
+     * @requires k is non-negative.
+     * @param k The index of the entry.
+     * @return 0 for player 1, 1 for player 2.
+     */
+    public int getPlayer(final int k) {
+        return k & 1;
+    }
+
+    /**
+     * Get the number of entries made by a player, including its start.
+     *
+     * @requires player is 0 or 1.
+     * @param player The index of the player in turn order.
+     * @return The number of entries for that player.
+     */
+    public int getMoveCount(final int player) {
+        return (size + 1 - player) / 2;
+    }
+
+    /**
+     * Get the position of a player's n-th entry, where entry 0 is its start.
+     *
+     * @requires player is 0 or 1, n in [0, getMoveCount(player) - 1].
+     * @param player The index of the player in turn order.
+     * @param n The index of the entry among that player's entries.
+     * @return The packed position.
+     */
+    public long getPlayerPosition(final int player, final int n) {
+        return getPosition(2 * n + player);
+    }
+
+    /**
+     * Get a cursor over all entries in order.
+     *
+     * @return A cursor positioned before the first entry.
+     */
+    public Cursor cursor() {
+        return new Cursor(-1);
+    }
+
+    /**
+     * Get a cursor over one player's entries in order.
+     *
+     * @requires player is 0 or 1.
+     * @param player The index of the player in turn order.
+     * @return A cursor positioned before that player's start.
+     */
+    public Cursor cursor(final int player) {
+        return new Cursor(player);
+    }
+
+    /**
+     * Append the board blocks of the game file format for this log: one
+     * START_BOARD block for every entry after player 1's start, holding both
+     * players' latest positions.
+     *
+     * @param serialized The builder to append to.
+     * @modifies serialized
+     */
+    public void appendBoards(final StringBuilder serialized) {
+        long[] positions = new long[2];
+        Cursor cursor = cursor();
+        while (cursor.hasNext()) {
+            long position = cursor.next();
+            positions[cursor.getPlayer()] = position;
+            if (cursor.getIndex() == 0) {
+                continue;
+            }
+            serialized.append("START_BOARD\n");
+            serialized.append("\tP1_LOCATION: ");
+            appendPosition(serialized, positions[0]);
+            serialized.append("\n\tP2_LOCATION: ");
+            appendPosition(serialized, positions[1]);
+            serialized.append("\nEND_BOARD\n\n");
+        }
+    }
+
+    /**
+     * Get the approximate heap used by the log's arrays.
+     *
+     * @return The size of the backing arrays in bytes.
+     */
+    public long getFootprintBytes() {
+        return 8L * (codes.length + checkpoints.length
+                + exceptionPositions.length + exceptionPrevious.length)
+                + 4L * exceptionIndices.length;
+    }
+
+    /**
+     * A forward-only cursor over the entries of the log, decoding each in
+     * O(1).
+     */
+    public final class Cursor {
+
+        private final int   player;
+        private final long[] positions = new long[2];
+        private int index = -1;
+
+        private Cursor(final int player) {
+            this.player = player;
+        }
+
+        /**
+         * Check if another entry remains.
+         *
+         * @return true if next() will return an entry.
+         */
+        public boolean hasNext() {
+            return nextIndex() < size;
+        }
+
+        /**
+         * Advance to the next entry.
+         *
+         * @requires hasNext().
+         * @modifies this
+         * @return The packed position of the entry.
+         */
+        public long next() {
+            final int target = nextIndex();
+            while (index < target) {
+                index++;
+                if (index < 2) {
+                    positions[index] = getPositionFromStart(index);
+                } else {
+                    positions[index & 1] = decode(index, positions[index & 1]);
+                }
+            }
+            return positions[index & 1];
+        }
+
+        /**
+         * @return The index of the current entry in the whole log.
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
+        /**
+         * @return The player who made the current entry.
+         */
+        public int getPlayer() {
+            return this.index & 1;
+        }
+
+        int nextIndex() {
+            if (player < 0) {
+                return index + 1;
+            }
+            return index < 0 ? player : index + 2;
+        }
+    }
+
+    /**
+     * Get a player's start position, kept in checkpoint slot 0.
+     */
+    private long getPositionFromStart(final int player) {
+        return checkpoints[player];
+    }
+
+    /**
+     * Decode entry k from the mover's previous position.
+     */
+    private long decode(final int k, final long previous) {
+        if (exceptionCount > 0) {
+            int found = Arrays.binarySearch(exceptionIndices, 0, exceptionCount, k);
+            if (found >= 0) {
+                return exceptionPositions[found];
+            }
+        }
+        final int code = (int) (codes[k / MOVES_PER_WORD]
+                >>> (2 * (k % MOVES_PER_WORD))) & 3;
+        return Location.pack(Location.unpackX(previous) + DX[code],
+                Location.unpackY(previous) + DY[code], max);
+    }
+
+    /**
+     * Get the Direction ordinal of a single cardinal step.
+     *
+     * @return The code, or -1 if (x,y) is not one step from previous.
+     */
+    private static int getCode(final long previous, final int x, final int y) {
+        final int dx = x - Location.unpackX(previous);
+        final int dy = y - Location.unpackY(previous);
+        for (int code = 0; code < 4; code++) {
+            if (DX[code] == dx && DY[code] == dy) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    private void addException(final int k, final long position,
+            final long previous) {
+        if (exceptionCount == exceptionIndices.length) {
+            exceptionIndices = Arrays.copyOf(exceptionIndices, exceptionCount * 2);
+            exceptionPositions = Arrays.copyOf(exceptionPositions, exceptionCount * 2);
+            exceptionPrevious = Arrays.copyOf(exceptionPrevious, exceptionCount * 2);
+        }
+        exceptionIndices[exceptionCount] = k;
+        exceptionPositions[exceptionCount] = position;
+        exceptionPrevious[exceptionCount] = previous;
+        exceptionCount++;
+    }
+
+    private static void appendPosition(final StringBuilder serialized,
+            final long position) {
+        serialized.append('[').append(Location.unpackX(position)).append(',')
+                .append(Location.unpackY(position)).append(']');
+    }
+}
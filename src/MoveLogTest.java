@@ -0,0 +1,149 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MoveLogTest {
+
+    private static long at(int x, int y, int max) {
+        return Location.pack(x, y, max);
+    }
+
+    @Test
+    public void testRandomAccess() {
+        MoveLog log = new MoveLog(10);
+        log.append(0, 0);
+        log.append(9, 9);
+        for (int i = 1; i < 9; i++) {
+            log.append(i, 0);
+            log.append(9, 9 - i);
+        }
+        for (int i = 1; i < 9; i++) {
+            log.append(8, i);
+            log.append(9 - i, 1);
+        }
+
+        assertEquals(34, log.size());
+        assertEquals(at(0, 0, 9), log.getPosition(0));
+        assertEquals(at(9, 9, 9), log.getPosition(1));
+        assertEquals(at(3, 0, 9), log.getPosition(6));
+        assertEquals(at(9, 6, 9), log.getPosition(7));
+        assertEquals(at(8, 5, 9), log.getPosition(26));
+        assertEquals(at(1, 1, 9), log.getPosition(33));
+        assertEquals(at(8, 0, 9), log.getPlayerPosition(0, 8));
+        assertEquals(17, log.getMoveCount(0));
+        assertEquals(17, log.getMoveCount(1));
+    }
+
+    @Test
+    public void testAcrossCheckpoints() {
+        int dimension = 200;
+        MoveLog log = new MoveLog(dimension);
+        log.append(0, 0);
+        log.append(0, 199);
+        for (int i = 1; i < dimension; i++) {
+            log.append(i, 0);
+            log.append(i, 199);
+        }
+
+        for (int k = 0; k < log.size(); k++) {
+            int y = (k & 1) == 0 ? 0 : 199;
+            assertEquals(at(k / 2, y, dimension - 1), log.getPosition(k));
+        }
+
+        MoveLog.Cursor cursor = log.cursor(1);
+        int n = 0;
+        while (cursor.hasNext()) {
+            assertEquals(at(n, 199, dimension - 1), cursor.next());
+            assertEquals(1, cursor.getPlayer());
+            n++;
+        }
+        assertEquals(dimension, n);
+    }
+
+    @Test
+    public void testExceptions() {
+        MoveLog log = new MoveLog(5);
+        log.append(0, 2);
+        log.append(2, 2);
+        log.append(4, 2);
+        log.append(2, 3);
+        log.append(4, 3);
+
+        assertEquals(at(4, 2, 4), log.getPosition(2));
+        assertEquals(at(4, 3, 4), log.getPosition(4));
+
+        log.removeLast();
+        log.removeLast();
+        assertEquals(at(4, 2, 4), log.getPosition(2));
+        log.removeLast();
+        log.append(1, 2);
+        assertEquals(at(1, 2, 4), log.getPosition(2));
+        assertEquals(3, log.size());
+    }
+
+    @Test
+    public void testRemoveLastRestoresTail() {
+        MoveLog log = new MoveLog(4);
+        log.append(0, 0);
+        log.append(3, 3);
+        log.append(1, 0);
+        log.append(3, 2);
+        log.removeLast();
+        log.removeLast();
+        log.append(0, 1);
+        log.append(2, 3);
+        assertEquals(at(0, 1, 3), log.getPosition(2));
+        assertEquals(at(2, 3, 3), log.getPosition(3));
+    }
+
+    @Test
+    public void testRemoveLastAcrossCheckpointsAndExceptions() {
+        int dimension = 50;
+        int max = dimension - 1;
+        MoveLog log = new MoveLog(dimension);
+        long[] expected = new long[200];
+        log.append(0, 0);
+        log.append(0, max);
+        expected[0] = at(0, 0, max);
+        expected[1] = at(0, max, max);
+        for (int k = 2; k < expected.length; k++) {
+            int step = k / 2;
+            /* Every tenth move of player 1 jumps two cells. */
+            int x = (k & 1) == 0 && step % 10 == 0 ? step + 1 : step;
+            int y = (k & 1) == 0 ? 0 : max;
+            log.append(x % dimension, y);
+            expected[k] = at(x % dimension, y, max);
+        }
+        while (log.size() > 2) {
+            log.removeLast();
+            int size = log.size();
+            assertEquals(expected[size - 1], log.getPosition(size - 1));
+            assertEquals(expected[size - 2], log.getPosition(size - 2));
+        }
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testRemoveFromEmpty() {
+        new MoveLog(3).removeLast();
+    }
+
+    @Test
+    public void testAppendBoards() {
+        MoveLog log = new MoveLog(3);
+        log.append(0, 0);
+        log.append(2, 2);
+        log.append(0, 1);
+
+        StringBuilder boards = new StringBuilder();
+        log.appendBoards(boards);
+        assertEquals("START_BOARD\n"
+                + "\tP1_LOCATION: [0,0]\n"
+                + "\tP2_LOCATION: [2,2]\n"
+                + "END_BOARD\n\n"
+                + "START_BOARD\n"
+                + "\tP1_LOCATION: [0,1]\n"
+                + "\tP2_LOCATION: [2,2]\n"
+                + "END_BOARD\n\n", boards.toString());
+    }
+
+}
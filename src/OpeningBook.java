@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped opening book for one board dimension, written by
+ * OpeningBookBuilder. It holds the best move and its score for positions
+ * near the standard start, keyed by the same position key as
+ * Game.getPositionKey.
+ *
+ * File layout, big-endian:
+ * MAGIC (int), dimension (int), entry count (int), plies covered (int),
+ * then entry count records of key (long), move cell (int) and score (int),
+ * sorted by key as signed longs. A lookup is a binary search over the
+ * mapped records, so it touches about log2(entry count) records and
+ * allocates nothing.
+ */
+public final class OpeningBook {
+
+    /** Identifies opening book files. */
+    public static final int MAGIC = 0x4F424B31;
+
+    /** The result of a probe that found nothing. */
+    public static final long MISS = -1;
+
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int dimension;
+    private final int entryCount;
+    private final int plies;
+
+    private OpeningBook(final MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES
+                || buffer.getInt(0) != MAGIC) {
+            throw new InvalidStateException("Not an opening book file.");
+        }
+        this.dimension = buffer.getInt(4);
+        this.entryCount = buffer.getInt(8);
+        this.plies = buffer.getInt(12);
+        if ((long) HEADER_BYTES + (long) entryCount * RECORD_BYTES
+                > buffer.capacity()) {
+            throw new InvalidStateException("Opening book file is truncated.");
+        }
+    }
+
+    /**
+     * Map an opening book file into memory.
+     *
+     * @param path The file written by OpeningBookBuilder.
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidStateException (unchecked) if the file is not an
+     *         opening book.
+     * @return The opening book.
+     */
+    public static OpeningBook open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new OpeningBook(buffer);
+        }
+    }
+
+    /**
+     * Get the dimension of the boards this book covers.
+     *
+     * @return The board dimension.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Get the number of positions stored.
+     *
+     * @return The entry count.
+     */
+    public int getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Get the number of plies from the start the book was built for.
+     *
+     * @return The ply count.
+     */
+    public int getPlies() {
+        return this.plies;
+    }
+
+    /**
+     * Look up a position by binary search.
+     *
+     * @param key The position key, as from Game.getPositionKey.
+     * @return The entry for the key, to be read with getMove and getScore,
+     *         or MISS if the book does not hold the position.
+     */
+    public long probe(final long key) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int offset = HEADER_BYTES + middle * RECORD_BYTES;
+            final long stored = buffer.getLong(offset);
+            if (stored < key) {
+                low = middle + 1;
+            } else if (stored > key) {
+                high = middle - 1;
+            } else {
+                return buffer.getLong(offset + 8);
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Get the best move of an entry.
+     *
+     * @param entry An entry returned by probe, other than MISS.
+     * @return The cell to move to.
+     */
+    public static int getMove(final long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Get the score of an entry's move, from the side to move.
+     *
+     * @param entry An entry returned by probe, other than MISS.
+     * @return The score, as from SearchEngine.getScore.
+     */
+    public static int getScore(final long entry) {
+        return (int) entry;
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Offline builder of OpeningBook files.
+ *
+ * Every position reachable within a number of plies of the standard start,
+ * with player 1 at the centre of the top row and player 2 at the centre of
+ * the bottom row and player 1 to move, is searched by SearchEngine to a
+ * fixed depth, and its best move and score are recorded. Positions reached
+ * by several move orders are searched once. All searches share one
+ * transposition table, so each one starts from the results of the last.
+ *
+ * Usage: java OpeningBookBuilder dimension plies depth file
+ */
+public final class OpeningBookBuilder {
+
+    private static final int TABLE_MEGABYTES = 64;
+    /* Long enough never to cut a search short. */
+    private static final long TIME_LIMIT_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final Board board;
+    private final Topology topology;
+    private final ZobristKeys keys;
+    private final SearchEngine engine;
+    private final int depth;
+
+    /* Entries by position key, kept sorted for writing. */
+    private final Map<Long, Long> entries = new TreeMap<Long, Long>();
+    private final int[] cells = new int[2];
+    private int plies = 0;
+
+    /**
+     * Create a builder for one board dimension.
+     *
+     * @requires dimension is at least 2, depth is greater than 0.
+     * @param dimension The dimension of the boards the book covers.
+     * @param depth The depth to search each position to, in plies.
+     */
+    public OpeningBookBuilder(final int dimension, final int depth) {
+        this.board = new Board(dimension);
+        this.topology = board.getTopology();
+        this.keys = board.getZobristKeys();
+        this.engine = new SearchEngine(board);
+        engine.setTranspositionTable(new TranspositionTable(TABLE_MEGABYTES));
+        this.depth = depth;
+        cells[0] = getStartCell(dimension, 0);
+        cells[1] = getStartCell(dimension, 1);
+        board.setStateAt(cells[0], Board.LocationState.UNAVAILABLE);
+        board.setStateAt(cells[1], Board.LocationState.UNAVAILABLE);
+    }
+
+    /**
+     * Get a player's cell in the standard start position, as placed by
+     * BoardFrame.
+     *
+     * @param dimension The board dimension.
+     * @param player The index of the player.
+     * @return The start cell.
+     */
+    public static int getStartCell(final int dimension, final int player) {
+        return dimension / 2 + (player == 0 ? (dimension - 1) * dimension : 0);
+    }
+
+    /**
+     * Search every position within a number of plies of the start.
+     *
+     * @requires plies is at least 0.
+     * @param plies The number of moves from the start to cover.
+     * @modifies this
+     */
+    public void build(final int plies) {
+        this.plies = plies;
+        expand(plies, 0);
+    }
+
+    /**
+     * Get the number of positions searched.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the book in the format read by OpeningBook.
+     *
+     * @param path The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(board.getDimension());
+            out.writeInt(entries.size());
+            out.writeInt(plies);
+            for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Record the current position and everything within pliesLeft of it.
+     */
+    private void expand(final int pliesLeft, final int toMove) {
+        final long key = board.getZobristKey()
+                ^ keys.getPlayerKey(0, cells[0])
+                ^ keys.getPlayerKey(1, cells[1])
+                ^ (toMove == 1 ? keys.getSideToMoveKey() : 0);
+        if (entries.containsKey(key)) {
+            return;
+        }
+        final int move = engine.search(cells[0], cells[1], toMove, depth,
+                Long.MAX_VALUE, TIME_LIMIT_MILLIS);
+        if (move < 0) {
+            return;
+        }
+        entries.put(key, ((long) move << 32)
+                | (engine.getScore() & 0xFFFFFFFFL));
+        if (pliesLeft == 0) {
+            return;
+        }
+
+        final int from = cells[toMove];
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            final int next = topology.getNeighbourAt(e);
+            if (board.getStateAt(next) != Board.LocationState.AVAILABLE) {
+                continue;
+            }
+            board.makeMove(next);
+            cells[toMove] = next;
+            expand(pliesLeft - 1, 1 - toMove);
+            cells[toMove] = from;
+            board.unmakeMove();
+        }
+    }
+
+    /**
+     * Build an opening book file from the command line.
+     *
+     * @param args dimension, plies from the start, search depth and output
+     *        file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println(
+                    "Usage: OpeningBookBuilder dimension plies depth file");
+            return;
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(
+                Integer.parseInt(args[0]), Integer.parseInt(args[2]));
+        builder.build(Integer.parseInt(args[1]));
+        builder.write(Paths.get(args[3]));
+        System.out.println(builder.size() + " positions written to "
+                + args[3]);
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class OpeningBookTest {
+
+    private static final int DIMENSION = 7;
+
+    private static OpeningBook buildBook(Path path) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(DIMENSION, 3);
+        builder.build(3);
+        builder.write(path);
+        OpeningBook book = OpeningBook.open(path);
+        assertEquals(builder.size(), book.getEntryCount());
+        return book;
+    }
+
+    @Test
+    public void testStartPositionIsInBook() throws IOException {
+        Path path = Files.createTempFile("book", ".obk");
+        try {
+            OpeningBook book = buildBook(path);
+            assertEquals(DIMENSION, book.getDimension());
+            assertEquals(3, book.getPlies());
+            /* 1 start position, 3 replies for each side, some of which
+             * meet again. */
+            assertTrue(book.getEntryCount() > 1 + 3 + 9);
+
+            Game game = new Game(Game.Mode.TWO_PLAYER, DIMENSION, "P1", "P2");
+            game.setHeadless(true);
+            game.begin(new Location(DIMENSION / 2, DIMENSION - 1,
+                    DIMENSION - 1), new Location(DIMENSION / 2, 0,
+                            DIMENSION - 1));
+            long entry = book.probe(game.getPositionKey());
+            assertTrue(entry != OpeningBook.MISS);
+            int start = OpeningBookBuilder.getStartCell(DIMENSION, 0);
+            Board board = new Board(DIMENSION);
+            assertTrue(board.isMoveLegal(start, OpeningBook.getMove(entry)));
+
+            /* After one move each, the position is still in the book. */
+            assertTrue(game.requestMove(OpeningBook.getMove(entry)));
+            entry = book.probe(game.getPositionKey());
+            assertTrue(entry != OpeningBook.MISS);
+            assertTrue(game.requestMove(OpeningBook.getMove(entry)));
+            assertTrue(book.probe(game.getPositionKey()) != OpeningBook.MISS);
+
+            assertEquals(OpeningBook.MISS, book.probe(12345L));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testRecordsAreSorted() throws IOException {
+        Path path = Files.createTempFile("book", ".obk");
+        try {
+            OpeningBook book = buildBook(path);
+            byte[] bytes = Files.readAllBytes(path);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long previous = Long.MIN_VALUE;
+            for (int i = 0; i < book.getEntryCount(); i++) {
+                int offset = OpeningBook.HEADER_BYTES
+                        + i * OpeningBook.RECORD_BYTES;
+                long key = buffer.getLong(offset);
+                assertTrue(i == 0 || key > previous);
+                previous = key;
+                assertEquals(buffer.getLong(offset + 8), book.probe(key));
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path path = Files.createTempFile("book", ".obk");
+        try {
+            Files.write(path, new byte[32]);
+            OpeningBook.open(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lazy SMP: several SearchEngines search the same root at once and share
+ * their results through one TranspositionTable.
+ *
+ * The main search runs on the calling thread and each helper on the
+ * executor. Every engine copies the board's unavailable cells into its own
+ * state when its search starts, so the board is only read and the helpers
+ * need no copies of it. Helpers start
+ * their iterative deepening at depths 2 to 4 in turn, and a helper skips
+ * any depth that half the threads are already searching, so that the
+ * threads spread over neighbouring depths rather than repeat one
+ * iteration. Results one thread leaves in the table let the others skip
+ * whole subtrees. When the main search ends, the helpers are stopped, and
+ * the move of whichever search finished the deepest iteration is played,
+ * the main search winning ties.
+ */
+public final class ParallelSearch {
+
+    private final TranspositionTable table;
+    private final ExecutorService executor;
+    private final int threads;
+    private final SearchEngine main;
+    private final SearchEngine[] engines;
+    private final AtomicBoolean stop = new AtomicBoolean(false);
+    /* The number of threads in each iteration depth. */
+    private final AtomicIntegerArray depthSearchers =
+            new AtomicIntegerArray(SearchEngine.MAX_PLY);
+
+    private int bestScore;
+    private int completedDepth;
+    private long nodes;
+    private long elapsedNanos;
+
+    /**
+     * Create a parallel search for a board.
+     *
+     * @requires board is DENSE, threads is greater than 0, and executor can
+     *           run threads - 1 tasks at once.
+     * @param board The board to search.
+     * @param table The table shared by every thread.
+     * @param threads The number of searches to run at once, counting the
+     *        one on the calling thread.
+     * @param executor Runs the helper searches, for example a ForkJoinPool
+     *        or a fixed pool of platform threads.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE
+     *         or threads is not positive.
+     */
+    public ParallelSearch(final Board board, final TranspositionTable table,
+            final int threads, final ExecutorService executor) {
+        if (threads <= 0) {
+            throw new InvalidStateException(
+                    "A search needs at least one thread.");
+        }
+        this.table = table;
+        this.threads = threads;
+        this.executor = executor;
+        this.main = new SearchEngine(board);
+        main.setTranspositionTable(table);
+        main.setStartsTableSearch(false);
+        /* The main search counts its depths but never skips one. */
+        main.setDepthSharing(depthSearchers, 0);
+        this.engines = new SearchEngine[threads];
+        engines[0] = main;
+        final int skipThreshold = Math.max(1, threads / 2);
+        for (int i = 1; i < threads; i++) {
+            final SearchEngine helper = new SearchEngine(board);
+            helper.setTranspositionTable(table);
+            helper.setStartsTableSearch(false);
+            helper.setStartDepth(2 + (i - 1) % 3);
+            helper.setStopSignal(stop);
+            helper.setDepthSharing(depthSearchers, skipThreshold);
+            engines[i] = helper;
+        }
+    }
+
+    /**
+     * Search the board's current position on every thread and choose a
+     * move for the player to move.
+     *
+     * @requires As for SearchEngine.search.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @param maxDepth The deepest iteration to run.
+     * @param nodeBudget The number of nodes each thread searches at most.
+     * @param timeBudgetMillis The time to spend at most.
+     * @modifies this, the table
+     * @throws InvalidStateException (unchecked) if a helper search fails.
+     * @return The cell to move to, or -1 if the player has no move.
+     */
+    public int search(final int firstCell, final int secondCell,
+            final int playerToMove, final int maxDepth, final long nodeBudget,
+            final long timeBudgetMillis) {
+        final long start = System.nanoTime();
+        /* One generation per root search, however many threads store. */
+        table.newSearch();
+        stop.set(false);
+        final List<Future<Integer>> helpers = new ArrayList<Future<Integer>>();
+        for (int i = 1; i < threads; i++) {
+            final SearchEngine helper = engines[i];
+            helpers.add(executor.submit(new Callable<Integer>() {
+
+                public Integer call() {
+                    return helper.search(firstCell, secondCell, playerToMove,
+                            maxDepth, nodeBudget, timeBudgetMillis);
+                }
+            }));
+        }
+
+        int move = main.search(firstCell, secondCell, playerToMove, maxDepth,
+                nodeBudget, timeBudgetMillis);
+        stop.set(true);
+        bestScore = main.getScore();
+        completedDepth = main.getCompletedDepth();
+        nodes = main.getNodeCount();
+        /* Every helper is waited for, even when this thread is interrupted
+         * or another helper failed, so that none is still searching with
+         * this object's engines once search returns. The stop flag is
+         * already raised, so the wait is short. */
+        boolean interrupted = false;
+        boolean failed = false;
+        for (int i = 1; i < threads; i++) {
+            int helperMove = -1;
+            while (true) {
+                try {
+                    helperMove = helpers.get(i - 1).get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    failed = true;
+                    break;
+                }
+            }
+            final SearchEngine helper = engines[i];
+            nodes += helper.getNodeCount();
+            if (helperMove >= 0
+                    && helper.getCompletedDepth() > completedDepth) {
+                move = helperMove;
+                bestScore = helper.getScore();
+                completedDepth = helper.getCompletedDepth();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failed) {
+            throw new InvalidStateException("A helper search failed.");
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return move;
+    }
+
+    /**
+     * Get the number of searches run at once.
+     *
+     * @return The thread count, counting the calling thread.
+     */
+    public int getThreadCount() {
+        return this.threads;
+    }
+
+    /**
+     * Get the score of the last search's chosen move, from the side to move.
+     *
+     * @return The score, as for SearchEngine.getScore.
+     */
+    public int getScore() {
+        return this.bestScore;
+    }
+
+    /**
+     * Get the depth of the deepest iteration any thread finished in the
+     * last search.
+     *
+     * @return The depth in plies, or 0 if no iteration finished.
+     */
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    /**
+     * Get the number of nodes visited by every thread in the last search.
+     *
+     * @return The node count.
+     */
+    public long getNodeCount() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the wall-clock time of the last search.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    /**
+     * Get the combined speed of every thread in the last search.
+     *
+     * @return Nodes visited per second of wall-clock time.
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+}
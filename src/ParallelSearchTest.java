@@ -0,0 +1,157 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class ParallelSearchTest {
+
+    private static Board randomBoard(int dimension, int first, int second,
+            double density, long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(dimension);
+        for (int cell = 0; cell < dimension * dimension; cell++) {
+            if (cell != first && cell != second
+                    && random.nextDouble() < density) {
+                board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+            }
+        }
+        board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+        return board;
+    }
+
+    @Test
+    public void testCopyMatchesBoard() {
+        Board board = randomBoard(11, 5, 115, 0.3, 3);
+        Board copy = board.copy();
+        assertEquals(board.getZobristKey(), copy.getZobristKey());
+        assertEquals(board.countAvailable(), copy.countAvailable());
+        assertEquals(board.getRegions().getRegionCount(),
+                copy.getRegions().getRegionCount());
+        int cell = 0;
+        while (board.getStateAt(cell) != Board.LocationState.AVAILABLE) {
+            cell++;
+        }
+        long key = board.getZobristKey();
+        copy.makeMove(cell);
+        assertEquals(Board.LocationState.AVAILABLE, board.getStateAt(cell));
+        assertEquals(key, board.getZobristKey());
+    }
+
+    @Test
+    public void testCopyFollowsBoard() {
+        Board board = randomBoard(11, 5, 115, 0.3, 4);
+        Board copy = board.copy();
+        int cell = 0;
+        while (board.getStateAt(cell) != Board.LocationState.AVAILABLE) {
+            cell++;
+        }
+        board.makeMove(cell);
+        board.setStateAt(60, Board.LocationState.UNAVAILABLE);
+        copy.copyUnavailableCellsFrom(board);
+        assertEquals(board.getZobristKey(), copy.getZobristKey());
+        assertEquals(board.countAvailable(), copy.countAvailable());
+        assertEquals(board.getRegions().getRegionCount(),
+                copy.getRegions().getRegionCount());
+
+        /* Cells can become available again, as after an undone move. */
+        board.unmakeMove();
+        copy.copyUnavailableCellsFrom(board);
+        assertEquals(board.getZobristKey(), copy.getZobristKey());
+        assertEquals(Board.LocationState.AVAILABLE, copy.getStateAt(cell));
+    }
+
+    @Test
+    public void testHelpersFollowBoardBetweenSearches() {
+        ForkJoinPool pool = new ForkJoinPool(7);
+        try {
+            Board board = randomBoard(9, 4, 76, 0.15, 2);
+            ParallelSearch search = new ParallelSearch(board,
+                    new TranspositionTable(2), 8, pool);
+            int[] cells = { 4, 76 };
+            for (int turn = 0; turn < 6; turn++) {
+                int player = turn & 1;
+                int move = search.search(cells[0], cells[1], player,
+                        SearchEngine.MAX_PLY, 200000, 10000);
+                if (move < 0) {
+                    break;
+                }
+                assertTrue(board.isMoveLegal(cells[player], move));
+                assertEquals(0, board.getUndoDepth());
+                board.setStateAt(move, Board.LocationState.UNAVAILABLE);
+                cells[player] = move;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testAgreesWithSingleThreadOnSolvedBoards() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int seed = 0; seed < 10; seed++) {
+                Board board = randomBoard(5, 2, 22, 0.2, seed);
+                SearchEngine single = new SearchEngine(board);
+                single.search(2, 22, 0, SearchEngine.MAX_PLY, Long.MAX_VALUE,
+                        10000);
+                ParallelSearch search = new ParallelSearch(board,
+                        new TranspositionTable(1), 4, pool);
+                int move = search.search(2, 22, 0, SearchEngine.MAX_PLY,
+                        Long.MAX_VALUE, 10000);
+                assertEquals(single.getScore() > 0, search.getScore() > 0);
+                assertTrue(move < 0 || board.isMoveLegal(2, move));
+                assertEquals(0, board.getUndoDepth());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testOneTableGenerationPerRootSearch() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Board board = randomBoard(7, 3, 45, 0.1, 1);
+            TranspositionTable table = new TranspositionTable(1);
+            ParallelSearch search = new ParallelSearch(board, table, 4, pool);
+            for (int i = 1; i <= 3; i++) {
+                search.search(3, 45, 0, 4, Long.MAX_VALUE, 10000);
+                assertEquals(i, table.getGeneration());
+            }
+
+            SearchEngine single = new SearchEngine(board);
+            single.setTranspositionTable(table);
+            single.search(3, 45, 0, 4, Long.MAX_VALUE, 10000);
+            assertEquals(4, table.getGeneration());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testHelpersStopWithMainSearch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Board board = new Board(21);
+            board.setStateAt(10, Board.LocationState.UNAVAILABLE);
+            board.setStateAt(10 + 20 * 21, Board.LocationState.UNAVAILABLE);
+            ParallelSearch search = new ParallelSearch(board,
+                    new TranspositionTable(4), 3, executor);
+            long start = System.nanoTime();
+            int move = search.search(10, 10 + 20 * 21, 0,
+                    SearchEngine.MAX_PLY, Long.MAX_VALUE, 200);
+            long millis = (System.nanoTime() - start) / 1000000L;
+            assertTrue(board.isMoveLegal(10, move));
+            assertTrue(millis < 5000);
+            assertTrue(search.getCompletedDepth() > 0);
+            assertTrue(search.getNodesPerSecond() > 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
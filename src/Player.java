@@ -23,7 +23,8 @@ public class Player {
 	public enum Type {
 	    HUMAN(0, "Human player."),
         BOT(1, "Bot with no intelligence."),
-        BOT_HARD(2, "Bot with more intelligence.");
+        BOT_HARD(2, "Bot with more intelligence."),
+        BOT_MCTS(3, "Bot using Monte Carlo tree search.");
         
 
         private final int ID;
@@ -106,14 +107,24 @@ public class Player {
 	 * 
 	 * @throws InvalidStateException (unchecked) if the Player's location
 	 *         has not yet been set.
-	 * @return The current location of the Player on the board.
+	 * @return The current location of the Player on the board. Locations are
+	 *         immutable, so it is shared rather than copied.
 	 */
 	public Location getLocation() { 
 	    if (this.location == null) {
 	        throw new InvalidStateException("Player's location has not been set.");
 	    }
 
-	    return location.clone();
+	    return location;
+	}
+	
+	/**
+	 * Check whether the Player has been placed on the board.
+	 * 
+	 * @return true if the Player's location has been set. false otherwise.
+	 */
+	public boolean hasLocation() {
+	    return this.location != null;
 	}
 	
 	/**
@@ -127,7 +138,7 @@ public class Player {
 	 * @modifies Player's location.
 	 */
 	public void setLocation(final Location location) {
-	    this.location = location.clone();
+	    this.location = location;
 	}
 	
 	/**
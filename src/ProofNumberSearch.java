@@ -0,0 +1,291 @@
+import java.util.Arrays;
+
+/**
+ * Depth-first proof-number (df-pn) search that proves or disproves a
+ * forced win for the side to move, while the players still share a region.
+ *
+ * Every node is seen from the player to move: its proof number is the
+ * least number of leaves that must be proven to show that player wins, and
+ * its disproof number the least number to show it loses. A player with no
+ * move loses. Moves are played on a private copy of the board's
+ * availability, so the board itself is never touched.
+ *
+ * Proof and disproof numbers are kept in a transposition table keyed by the
+ * same Zobrist position key as Game.getPositionKey, and the table survives
+ * between calls, so a position that was proven once is answered at once.
+ */
+public final class ProofNumberSearch {
+
+    public enum Result {
+
+        WIN(0, "The side to move wins with best play."),
+        LOSS(1, "The side to move loses with best play."),
+        UNKNOWN(2, "The budget ran out before the position was decided.");
+
+        private final int ID;
+        private final String text;
+
+        private Result(final int ID, final String text) {
+            this.ID = ID;
+            this.text = text;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Enum#toString()
+         */
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+
+    /** Deepest line searched; deeper lines abandon the search. */
+    public static final int MAX_DEPTH = 1024;
+
+    private static final int INFINITY = 1 << 28;
+    private static final int TABLE_BITS = 18;
+
+    private final Topology topology;
+    private final ZobristKeys keys;
+    private final Board board;
+
+    private final long[] tableKeys = new long[1 << TABLE_BITS];
+    private final int[] tableProof = new int[1 << TABLE_BITS];
+    private final int[] tableDisproof = new int[1 << TABLE_BITS];
+
+    /* Search state: availability, both player cells, side to move and the
+     * position key, updated by play and undo. */
+    private final BitBoard blocked;
+    private final int[] cells = new int[2];
+    private int toMove;
+    private long key;
+    private final int[][] children;
+
+    private long nodes;
+    private long nodeBudget;
+    /* deadline applies only when timed. */
+    private boolean timed;
+    private long deadline;
+    private boolean aborted;
+
+    /**
+     * Create a search for a board.
+     *
+     * @requires board is DENSE.
+     * @param board The board to search on.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    public ProofNumberSearch(final Board board) {
+        if (board.getStorage() != Board.Storage.DENSE) {
+            throw new InvalidStateException(
+                    "Operation requires a DENSE board.");
+        }
+        this.board = board;
+        this.topology = board.getTopology();
+        this.keys = board.getZobristKeys();
+        this.blocked = new BitBoard(board.getDimension());
+        this.children = new int[MAX_DEPTH + 1][Math.max(1,
+                topology.getMaxDegree())];
+    }
+
+    /**
+     * Try to decide the board's current position.
+     *
+     * @requires Both player cells are unavailable on the board.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @param nodeBudget The number of nodes to expand at most.
+     * @param timeBudgetMillis The time to spend at most.
+     * @return WIN or LOSS for the player to move, or UNKNOWN if the
+     *         budget ran out first.
+     */
+    public Result prove(final int firstCell, final int secondCell,
+            final int playerToMove, final long nodeBudget,
+            final long timeBudgetMillis) {
+        return prove(firstCell, secondCell, playerToMove, nodeBudget, true,
+                timeBudgetMillis);
+    }
+
+    /**
+     * Try to decide the board's current position within a node budget
+     * alone, so that the result does not depend on the speed of the
+     * machine.
+     *
+     * @requires Both player cells are unavailable on the board.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @param nodeBudget The number of nodes to expand at most.
+     * @return WIN or LOSS for the player to move, or UNKNOWN if the
+     *         budget ran out first.
+     */
+    public Result prove(final int firstCell, final int secondCell,
+            final int playerToMove, final long nodeBudget) {
+        return prove(firstCell, secondCell, playerToMove, nodeBudget, false,
+                0);
+    }
+
+    private Result prove(final int firstCell, final int secondCell,
+            final int playerToMove, final long nodeBudget,
+            final boolean timed, final long timeBudgetMillis) {
+        board.copyUnavailableCells(blocked);
+        cells[0] = firstCell;
+        cells[1] = secondCell;
+        toMove = playerToMove;
+        key = board.getZobristKey() ^ keys.getPlayerKey(0, firstCell)
+                ^ keys.getPlayerKey(1, secondCell)
+                ^ (playerToMove == 1 ? keys.getSideToMoveKey() : 0);
+
+        nodes = 0;
+        this.nodeBudget = nodeBudget;
+        this.timed = timed;
+        this.deadline = System.nanoTime() + timeBudgetMillis * 1000000L;
+        aborted = false;
+        search(INFINITY, INFINITY, 0);
+
+        final int slot = getSlot(key);
+        if (tableKeys[slot] == key) {
+            if (tableProof[slot] == 0) {
+                return Result.WIN;
+            }
+            if (tableDisproof[slot] == 0) {
+                return Result.LOSS;
+            }
+        }
+        return Result.UNKNOWN;
+    }
+
+    /**
+     * Get the number of nodes expanded by the last call to prove.
+     *
+     * @return The node count.
+     */
+    public long getNodeCount() {
+        return this.nodes;
+    }
+
+    /**
+     * Expand the current position until its proof number reaches
+     * proofLimit or its disproof number reaches disproofLimit.
+     */
+    private void search(final int proofLimit, final int disproofLimit,
+            final int depth) {
+        final int slot = getSlot(key);
+        if (tableKeys[slot] == key && (tableProof[slot] >= proofLimit
+                || tableDisproof[slot] >= disproofLimit)) {
+            return;
+        }
+        if (++nodes > nodeBudget || depth == MAX_DEPTH
+                || (timed && (nodes & 1023) == 0
+                        && System.nanoTime() > deadline)) {
+            aborted = true;
+            return;
+        }
+
+        final int[] moves = children[depth];
+        int count = 0;
+        final int from = cells[toMove];
+        final int end = topology.getEdgeEnd(from);
+        for (int e = topology.getEdgeStart(from); e < end; e++) {
+            final int next = topology.getNeighbourAt(e);
+            if (!blocked.get(next)) {
+                moves[count++] = next;
+            }
+        }
+        if (count == 0) {
+            store(slot, INFINITY, 0);
+            return;
+        }
+
+        while (true) {
+            /* Children are seen from the opponent: our proof number is the
+             * least child disproof number, our disproof number the sum of
+             * the child proof numbers. */
+            int proof = INFINITY;
+            int disproof = 0;
+            int best = -1;
+            int bestChildProof = 0;
+            int secondDisproof = INFINITY;
+            for (int i = 0; i < count; i++) {
+                play(moves[i]);
+                final int childSlot = getSlot(key);
+                int childProof = 1;
+                int childDisproof = 1;
+                if (tableKeys[childSlot] == key) {
+                    childProof = tableProof[childSlot];
+                    childDisproof = tableDisproof[childSlot];
+                }
+                undo(moves[i], from);
+                disproof = Math.min(INFINITY, disproof + childProof);
+                if (childDisproof < proof) {
+                    secondDisproof = proof;
+                    proof = childDisproof;
+                    best = i;
+                    bestChildProof = childProof;
+                } else if (childDisproof < secondDisproof) {
+                    secondDisproof = childDisproof;
+                }
+            }
+            store(getSlot(key), proof, disproof);
+            if (proof >= proofLimit || disproof >= disproofLimit || aborted) {
+                return;
+            }
+
+            final int childProofLimit = Math.min(INFINITY,
+                    disproofLimit - disproof + bestChildProof);
+            final int childDisproofLimit = Math.min(proofLimit,
+                    secondDisproof == INFINITY ? INFINITY : secondDisproof + 1);
+            play(moves[best]);
+            search(childProofLimit, childDisproofLimit, depth + 1);
+            undo(moves[best], from);
+        }
+    }
+
+    private void play(final int cell) {
+        blocked.set(cell);
+        key ^= keys.getUnavailableKey(cell)
+                ^ keys.getPlayerKey(toMove, cells[toMove])
+                ^ keys.getPlayerKey(toMove, cell)
+                ^ keys.getSideToMoveKey();
+        cells[toMove] = cell;
+        toMove = 1 - toMove;
+    }
+
+    private void undo(final int cell, final int from) {
+        toMove = 1 - toMove;
+        cells[toMove] = from;
+        key ^= keys.getUnavailableKey(cell)
+                ^ keys.getPlayerKey(toMove, from)
+                ^ keys.getPlayerKey(toMove, cell)
+                ^ keys.getSideToMoveKey();
+        blocked.clear(cell);
+    }
+
+    private void store(final int slot, final int proof, final int disproof) {
+        /* Keep decided positions over undecided ones. */
+        if (tableKeys[slot] != key && tableKeys[slot] != 0
+                && (tableProof[slot] == 0 || tableDisproof[slot] == 0)
+                && proof != 0 && disproof != 0) {
+            return;
+        }
+        tableKeys[slot] = key;
+        tableProof[slot] = proof;
+        tableDisproof[slot] = disproof;
+    }
+
+    private static int getSlot(final long key) {
+        return (int) (key >>> (64 - TABLE_BITS));
+    }
+
+    /**
+     * Forget every stored result.
+     *
+     * @modifies this
+     */
+    public void clear() {
+        Arrays.fill(tableKeys, 0);
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ProofNumberSearchTest {
+
+    /**
+     * Decide a position by plain minimax.
+     *
+     * @return true if the player to move wins.
+     */
+    private static boolean wins(boolean[] blocked, int[] cells, int toMove,
+            Topology topology) {
+        int from = cells[toMove];
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            int next = topology.getNeighbourAt(e);
+            if (blocked[next]) {
+                continue;
+            }
+            blocked[next] = true;
+            cells[toMove] = next;
+            boolean opponentWins = wins(blocked, cells, 1 - toMove, topology);
+            cells[toMove] = from;
+            blocked[next] = false;
+            if (!opponentWins) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testStuckPlayerLoses() {
+        Board board = new Board(3);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(1, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(3, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(8, Board.LocationState.UNAVAILABLE);
+        ProofNumberSearch search = new ProofNumberSearch(board);
+        assertEquals(ProofNumberSearch.Result.LOSS,
+                search.prove(0, 8, 0, 1000, 1000));
+        assertEquals(ProofNumberSearch.Result.WIN,
+                search.prove(0, 8, 1, 1000, 1000));
+    }
+
+    @Test
+    public void testAgreesWithMinimax() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 30; trial++) {
+            Board board = new Board(4);
+            boolean[] blocked = new boolean[16];
+            for (int i = 0; i < 4; i++) {
+                int cell = random.nextInt(16);
+                board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+                blocked[cell] = true;
+            }
+            int first = random.nextInt(16);
+            int second = random.nextInt(16);
+            if (first == second) {
+                continue;
+            }
+            board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+            board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+            blocked[first] = true;
+            blocked[second] = true;
+            int toMove = random.nextInt(2);
+
+            boolean expected = wins(blocked, new int[] { first, second },
+                    toMove, board.getTopology());
+            ProofNumberSearch.Result result = new ProofNumberSearch(board)
+                    .prove(first, second, toMove, 1000000);
+            assertEquals(expected ? ProofNumberSearch.Result.WIN
+                    : ProofNumberSearch.Result.LOSS, result);
+        }
+    }
+
+    @Test
+    public void testProvenPositionsAreCached() {
+        Board board = new Board(4);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(15, Board.LocationState.UNAVAILABLE);
+        ProofNumberSearch search = new ProofNumberSearch(board);
+        ProofNumberSearch.Result first = search.prove(0, 15, 0, 1000000, 10000);
+        assertTrue(first != ProofNumberSearch.Result.UNKNOWN);
+        assertEquals(first, search.prove(0, 15, 0, 1000000, 10000));
+        assertEquals(0L, search.getNodeCount());
+    }
+
+    @Test
+    public void testBudgetExhausted() {
+        Board board = new Board(12);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(143, Board.LocationState.UNAVAILABLE);
+        assertEquals(ProofNumberSearch.Result.UNKNOWN,
+                new ProofNumberSearch(board).prove(0, 143, 0, 100, 1000));
+    }
+
+}
@@ -0,0 +1,802 @@
+import java.util.Arrays;
+
+/**
+ * A coarse summary of a square-grid board for queries on boards far too
+ * large to flood fill per move.
+ *
+ * The board is cut into tiles of TILE_SIZE by TILE_SIZE cells. Each tile
+ * records the components its available cells form inside the tile, with
+ * the number of cells of each colour in every component, and the component
+ * of every cell on its four edges. Components of neighbouring tiles that
+ * share an edge between two available cells are joined, which gives a
+ * coarse graph whose connected components are exactly the board's regions.
+ * Region sizes, reachability and parity bounds walk this graph instead of
+ * the cells; territory is estimated on it too, and refined cell by cell
+ * only in the tiles around the players.
+ *
+ * Tiles without unavailable cells are not stored: each is one component
+ * spanning the whole tile. A cell change only marks its tile dirty, and
+ * dirty tiles are labelled again by the next query.
+ *
+ * Colours follow the checkerboard: a cell is even when x + y is even.
+ */
+public final class RegionSummary {
+
+    /** Edge length of a tile in cells. */
+    public static final int TILE_SIZE = 16;
+    /** Largest number of tiles a summary covers. */
+    public static final int MAX_TILES = 1 << 24;
+    /** Tiles within this many tiles of a player are evaluated exactly. */
+    public static final int REFINE_RADIUS = 1;
+
+    private static final int CELLS = TILE_SIZE * TILE_SIZE;
+    private static final int COMPONENT_BITS = 8;
+    /* Territory owners. */
+    private static final int FIRST = 1;
+    private static final int SECOND = 2;
+    private static final int NEUTRAL = FIRST | SECOND;
+    /* Sides of a tile, in Direction order. */
+    private static final int NORTH = 0;
+    private static final int SOUTH = 1;
+    private static final int EAST = 2;
+    private static final int WEST = 3;
+
+    /**
+     * The components of one tile that holds unavailable cells.
+     */
+    private static final class Tile {
+
+        final int count;
+        final int[] size;
+        final int[] even;
+        /* side[s][i] is the component of the i-th cell along side s, or -1
+         * if that cell is unavailable. */
+        final byte[][] side = new byte[4][];
+        final int[] mark;
+        final int[] info;
+
+        Tile(final int count) {
+            this.count = count;
+            this.size = new int[count];
+            this.even = new int[count];
+            this.mark = new int[count];
+            this.info = new int[count];
+        }
+    }
+
+    private final Board board;
+    private final int dimension;
+    private final int tilesPerSide;
+    /* tiles[t] is null while tile t has no unavailable cells. */
+    private final Tile[] tiles;
+    private final boolean[] dirty;
+    private int[] dirtyTiles = new int[64];
+    private int dirtyCount = 0;
+
+    /* Search marks of the components of stored tiles live in the tiles;
+     * these hold them for the single component of each clean tile. A
+     * component is visited when its mark equals stamp, and its info is
+     * then hop << 2 | owner. */
+    private final int[] tileMark;
+    private final int[] tileInfo;
+    private int stamp = 0;
+    private long[] queue = new long[256];
+    private long visitedSize;
+    private long visitedEven;
+
+    /* Scratch space for labelling a tile and for exact territory. */
+    private final int[] labels = new int[CELLS];
+    private final int[] fill = new int[CELLS];
+    private final int[] window = new int[2 * (2 * REFINE_RADIUS + 1)
+            * (2 * REFINE_RADIUS + 1)];
+    private final int[] cellInfo = new int[window.length * CELLS];
+    private final int[] cellQueue = new int[window.length * CELLS];
+
+    /**
+     * Create a summary of a board with every tile clean. The board marks
+     * the tiles of its unavailable cells dirty before handing it out.
+     *
+     * @param board A board on a square grid without wrap-around.
+     * @throws InvalidStateException (unchecked) if the board needs more
+     *         than MAX_TILES tiles.
+     */
+    RegionSummary(final Board board) {
+        this.board = board;
+        this.dimension = board.getDimension();
+        this.tilesPerSide = (dimension + TILE_SIZE - 1) / TILE_SIZE;
+        if ((long) tilesPerSide * tilesPerSide > MAX_TILES) {
+            throw new InvalidStateException(
+                    "Board is too large to summarise.");
+        }
+        final int tileCount = tilesPerSide * tilesPerSide;
+        this.tiles = new Tile[tileCount];
+        this.dirty = new boolean[tileCount];
+        this.tileMark = new int[tileCount];
+        this.tileInfo = new int[tileCount];
+    }
+
+    /**
+     * Note that a cell changed availability.
+     *
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @modifies this
+     */
+    void update(final int x, final int y) {
+        final int tile = x / TILE_SIZE + (y / TILE_SIZE) * tilesPerSide;
+        if (!dirty[tile]) {
+            dirty[tile] = true;
+            if (dirtyCount == dirtyTiles.length) {
+                dirtyTiles = Arrays.copyOf(dirtyTiles, dirtyCount * 2);
+            }
+            dirtyTiles[dirtyCount++] = tile;
+        }
+    }
+
+    /**
+     * Get the number of tiles along one edge of the board.
+     *
+     * @return The number of tile columns, which equals the number of rows.
+     */
+    public int getTilesPerSide() {
+        return this.tilesPerSide;
+    }
+
+    /**
+     * Get the number of available cells in a tile.
+     *
+     * @requires tileX and tileY in [0, getTilesPerSide() - 1].
+     * @param tileX The column of the tile.
+     * @param tileY The row of the tile.
+     * @return The number of available cells.
+     */
+    public int getFreeCount(final int tileX, final int tileY) {
+        final Tile summary = getTile(tileX + tileY * tilesPerSide);
+        if (summary == null) {
+            return getWidth(tileX) * getWidth(tileY);
+        }
+        int free = 0;
+        for (int c = 0; c < summary.count; c++) {
+            free += summary.size[c];
+        }
+        return free;
+    }
+
+    /**
+     * Get the number of components the available cells of a tile form
+     * within the tile.
+     *
+     * @requires tileX and tileY in [0, getTilesPerSide() - 1].
+     * @param tileX The column of the tile.
+     * @param tileY The row of the tile.
+     * @return The number of components.
+     */
+    public int getComponentCount(final int tileX, final int tileY) {
+        final Tile summary = getTile(tileX + tileY * tilesPerSide);
+        return summary == null ? 1 : summary.count;
+    }
+
+    /**
+     * Get the number of available cells a player on a cell could still
+     * reach: the size of the cell's region if it is available, or of the
+     * largest region next to it otherwise, since a player that enters one
+     * region can never leave it.
+     *
+     * @requires x and y in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @return The number of reachable available cells.
+     */
+    public long getReachableSize(final int x, final int y) {
+        return measure(x, y, false);
+    }
+
+    /**
+     * Bound the number of moves a player on a cell can still make, by the
+     * colours of the cells it can reach: every move alternates colour, so
+     * it can use at most one more cell of the opposite colour than of its
+     * own.
+     *
+     * @requires x and y in [0, dimension - 1].
+     * @param x The first coordinate of the player's cell.
+     * @param y The second coordinate of the player's cell.
+     * @return An upper bound on the length of any walk from the cell.
+     */
+    public long getParityBound(final int x, final int y) {
+        return measure(x, y, true);
+    }
+
+    /**
+     * Measure the best region open to a player on a cell, by size or by
+     * parity bound.
+     */
+    private long measure(final int x, final int y, final boolean parity) {
+        flush();
+        if (!board.isUnavailable(x, y)) {
+            return measureRegion(x, y, x, y, parity);
+        }
+        long best = 0;
+        if (y + 1 < dimension && !board.isUnavailable(x, y + 1)) {
+            best = Math.max(best, measureRegion(x, y + 1, x, y, parity));
+        }
+        if (y > 0 && !board.isUnavailable(x, y - 1)) {
+            best = Math.max(best, measureRegion(x, y - 1, x, y, parity));
+        }
+        if (x + 1 < dimension && !board.isUnavailable(x + 1, y)) {
+            best = Math.max(best, measureRegion(x + 1, y, x, y, parity));
+        }
+        if (x > 0 && !board.isUnavailable(x - 1, y)) {
+            best = Math.max(best, measureRegion(x - 1, y, x, y, parity));
+        }
+        return best;
+    }
+
+    /**
+     * Measure the region holding an available cell, by size or by the
+     * parity bound of a walk from a start cell into it.
+     */
+    private long measureRegion(final int x, final int y, final int startX,
+            final int startY, final boolean parity) {
+        search(x, y);
+        if (!parity) {
+            return visitedSize;
+        }
+        final long odd = visitedSize - visitedEven;
+        final long same = ((startX + startY) & 1) == 0 ? visitedEven : odd;
+        final long opposite = visitedSize - same;
+        return Math.min(2 * opposite, 2 * same + 1);
+    }
+
+    /**
+     * Check whether two cells can reach each other, treating each
+     * unavailable cell as its available neighbours, as for a player.
+     *
+     * @requires all coordinates in [0, dimension - 1].
+     * @param x1 The first coordinate of one cell.
+     * @param y1 The second coordinate of one cell.
+     * @param x2 The first coordinate of the other cell.
+     * @param y2 The second coordinate of the other cell.
+     * @return true if a walk through available cells joins them.
+     */
+    public boolean isConnected(final int x1, final int y1, final int x2,
+            final int y2) {
+        search(x1, y1);
+        final int tail = seed(x2, y2, 0, 0);
+        for (int i = 0; i < tail; i++) {
+            if (isVisited(queue[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Estimate the territory of two players: the available cells each
+     * reaches strictly before the other. Distances are counted in tile
+     * hops across the coarse graph, except in the tiles within
+     * REFINE_RADIUS of either player, whose cells are counted by an exact
+     * breadth-first search inside those tiles.
+     *
+     * @requires Both players' cells are unavailable.
+     * @param x1 The first coordinate of the first player's cell.
+     * @param y1 The second coordinate of the first player's cell.
+     * @param x2 The first coordinate of the second player's cell.
+     * @param y2 The second coordinate of the second player's cell.
+     * @return The estimated territory of the first and second player.
+     */
+    public long[] estimateTerritory(final int x1, final int y1, final int x2,
+            final int y2) {
+        flush();
+        nextStamp();
+        int tail = seed(x1, y1, 0, FIRST);
+        tail = seed(x2, y2, tail, SECOND);
+        tail = claim(0, tail);
+        breadthFirst(tail, true);
+
+        long[] territory = new long[2];
+        final int windowSize = buildWindow(x1, y1, x2, y2);
+        for (int tile = 0; tile < tiles.length; tile++) {
+            if (inWindow(tile, windowSize) >= 0) {
+                continue;
+            }
+            final Tile summary = tiles[tile];
+            if (summary == null) {
+                if (tileMark[tile] == stamp) {
+                    credit(territory, tileInfo[tile],
+                            getWidth(tile % tilesPerSide)
+                                    * getWidth(tile / tilesPerSide));
+                }
+                continue;
+            }
+            for (int c = 0; c < summary.count; c++) {
+                if (summary.mark[c] == stamp) {
+                    credit(territory, summary.info[c], summary.size[c]);
+                }
+            }
+        }
+        refine(territory, x1, y1, x2, y2, windowSize);
+        return territory;
+    }
+
+    /**
+     * Visit every component reachable from a cell, setting visitedSize and
+     * visitedEven.
+     */
+    private void search(final int x, final int y) {
+        flush();
+        nextStamp();
+        int tail = seed(x, y, 0, 0);
+        tail = claim(0, tail);
+        breadthFirst(tail, false);
+    }
+
+    /**
+     * Queue the components holding a cell, or next to it if it is
+     * unavailable, starting at position tail.
+     *
+     * @return The new tail.
+     */
+    private int seed(final int x, final int y, int tail, final int owner) {
+        if (!board.isUnavailable(x, y)) {
+            return push(tail, getNode(x, y), owner);
+        }
+        if (y + 1 < dimension && !board.isUnavailable(x, y + 1)) {
+            tail = push(tail, getNode(x, y + 1), owner);
+        }
+        if (y > 0 && !board.isUnavailable(x, y - 1)) {
+            tail = push(tail, getNode(x, y - 1), owner);
+        }
+        if (x + 1 < dimension && !board.isUnavailable(x + 1, y)) {
+            tail = push(tail, getNode(x + 1, y), owner);
+        }
+        if (x > 0 && !board.isUnavailable(x - 1, y)) {
+            tail = push(tail, getNode(x - 1, y), owner);
+        }
+        return tail;
+    }
+
+    private int push(final int tail, final long node, final int owner) {
+        if (tail == queue.length) {
+            queue = Arrays.copyOf(queue, tail * 2);
+        }
+        /* The owner rides in the top bits until the node is claimed. */
+        queue[tail] = node | ((long) owner << 62);
+        return tail + 1;
+    }
+
+    /**
+     * Mark the seeds between head and tail visited at hop 0, merging the
+     * owners of seeds that share a component and dropping duplicates.
+     *
+     * @return The new tail.
+     */
+    private int claim(final int head, final int tail) {
+        int kept = head;
+        for (int i = head; i < tail; i++) {
+            final long node = queue[i] & ~(3L << 62);
+            final int owner = (int) (queue[i] >>> 62);
+            if (isVisited(node)) {
+                setInfo(node, getInfo(node) | owner);
+                continue;
+            }
+            visit(node, owner);
+            queue[kept++] = node;
+        }
+        return kept;
+    }
+
+    /**
+     * Visit the coarse graph breadth first from the claimed nodes at the
+     * front of the queue, summing visitedSize and visitedEven. With owners,
+     * a component first reached at the same hop by both players is
+     * neutral.
+     */
+    private void breadthFirst(int tail, final boolean owners) {
+        visitedSize = 0;
+        visitedEven = 0;
+        int head = 0;
+        while (head < tail) {
+            final long node = queue[head++];
+            final int tile = (int) (node >>> COMPONENT_BITS);
+            final int component = (int) node & ((1 << COMPONENT_BITS) - 1);
+            final Tile summary = tiles[tile];
+            final int info = getInfo(node);
+            final int tileX = tile % tilesPerSide;
+            final int tileY = tile / tilesPerSide;
+            if (summary == null) {
+                visitedSize += getWidth(tileX) * getWidth(tileY);
+                visitedEven += countEven(tileX, tileY);
+            } else {
+                visitedSize += summary.size[component];
+                visitedEven += summary.even[component];
+            }
+            for (int side = NORTH; side <= WEST; side++) {
+                final int neighbourX = tileX + (side == EAST ? 1
+                        : side == WEST ? -1 : 0);
+                final int neighbourY = tileY + (side == NORTH ? 1
+                        : side == SOUTH ? -1 : 0);
+                if (neighbourX < 0 || neighbourY < 0
+                        || neighbourX >= tilesPerSide
+                        || neighbourY >= tilesPerSide) {
+                    continue;
+                }
+                final int neighbour = neighbourX + neighbourY * tilesPerSide;
+                final Tile other = tiles[neighbour];
+                final int length = side == NORTH || side == SOUTH
+                        ? getWidth(tileX) : getWidth(tileY);
+                final int facing = side ^ 1;
+                for (int i = 0; i < length; i++) {
+                    final int mine = summary == null ? 0
+                            : summary.side[side][i];
+                    final int theirs = other == null ? 0
+                            : other.side[facing][i];
+                    if (mine != component || theirs < 0) {
+                        continue;
+                    }
+                    final long next = ((long) neighbour << COMPONENT_BITS)
+                            | theirs;
+                    final int hop = (info >>> 2) + 1;
+                    if (!isVisited(next)) {
+                        visit(next, (hop << 2) | (info & NEUTRAL));
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail * 2);
+                        }
+                        queue[tail++] = next;
+                    } else if (owners && getInfo(next) >>> 2 == hop) {
+                        setInfo(next, getInfo(next) | (info & NEUTRAL));
+                    }
+                    if (other == null) {
+                        /* A clean tile has one component. */
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Count the window tiles exactly: cells reached inside the window by a
+     * simultaneous breadth-first search go to the nearer player, and the
+     * rest to the coarse owner of their component.
+     */
+    private void refine(final long[] territory, final int x1, final int y1,
+            final int x2, final int y2, final int windowSize) {
+        Arrays.fill(cellInfo, 0, windowSize * CELLS, 0);
+        int head = 0;
+        int tail = 0;
+        /* cellInfo holds (distance + 1) << 2 | owner for reached cells. */
+        final int first = getWindowCell(x1, y1, windowSize);
+        final int second = getWindowCell(x2, y2, windowSize);
+        cellInfo[first] = (1 << 2) | FIRST;
+        cellQueue[tail++] = first;
+        if (second == first) {
+            cellInfo[first] |= SECOND;
+        } else {
+            cellInfo[second] = (1 << 2) | SECOND;
+            cellQueue[tail++] = second;
+        }
+        while (head < tail) {
+            final int cell = cellQueue[head++];
+            final int info = cellInfo[cell];
+            final int tile = window[cell / CELLS];
+            final int local = cell % CELLS;
+            final int x = (tile % tilesPerSide) * TILE_SIZE + local % TILE_SIZE;
+            final int y = (tile / tilesPerSide) * TILE_SIZE + local / TILE_SIZE;
+            for (int side = NORTH; side <= WEST; side++) {
+                final int nx = x + (side == EAST ? 1 : side == WEST ? -1 : 0);
+                final int ny = y + (side == NORTH ? 1 : side == SOUTH ? -1 : 0);
+                if (nx < 0 || ny < 0 || nx >= dimension || ny >= dimension
+                        || board.isUnavailable(nx, ny)) {
+                    continue;
+                }
+                final int next = getWindowCell(nx, ny, windowSize);
+                if (next < 0) {
+                    continue;
+                }
+                final int reached = (info & ~NEUTRAL) + (1 << 2);
+                if (cellInfo[next] == 0) {
+                    cellInfo[next] = reached | (info & NEUTRAL);
+                    cellQueue[tail++] = next;
+                } else if ((cellInfo[next] & ~NEUTRAL) == reached) {
+                    cellInfo[next] |= info & NEUTRAL;
+                }
+            }
+        }
+
+        for (int slot = 0; slot < windowSize; slot++) {
+            final int tile = window[slot];
+            final int tileX = tile % tilesPerSide;
+            final int tileY = tile / tilesPerSide;
+            final int width = getWidth(tileX);
+            final int height = getWidth(tileY);
+            final Tile summary = tiles[tile];
+            if (summary != null) {
+                label(tile);
+            }
+            for (int local = 0; local < CELLS; local++) {
+                final int lx = local % TILE_SIZE;
+                final int ly = local / TILE_SIZE;
+                if (lx >= width || ly >= height || board.isUnavailable(
+                        tileX * TILE_SIZE + lx, tileY * TILE_SIZE + ly)) {
+                    continue;
+                }
+                final int info = cellInfo[slot * CELLS + local];
+                if (info != 0) {
+                    credit(territory, info, 1);
+                    continue;
+                }
+                if (summary == null) {
+                    if (tileMark[tile] == stamp) {
+                        credit(territory, tileInfo[tile], 1);
+                    }
+                } else if (summary.mark[labels[local]] == stamp) {
+                    credit(territory, summary.info[labels[local]], 1);
+                }
+            }
+        }
+    }
+
+    private static void credit(final long[] territory, final int info,
+            final long cells) {
+        final int owner = info & NEUTRAL;
+        if (owner == FIRST) {
+            territory[0] += cells;
+        } else if (owner == SECOND) {
+            territory[1] += cells;
+        }
+    }
+
+    /**
+     * Collect the distinct tiles within REFINE_RADIUS of either player.
+     *
+     * @return The number of window tiles.
+     */
+    private int buildWindow(final int x1, final int y1, final int x2,
+            final int y2) {
+        int size = 0;
+        for (int player = 0; player < 2; player++) {
+            final int tileX = (player == 0 ? x1 : x2) / TILE_SIZE;
+            final int tileY = (player == 0 ? y1 : y2) / TILE_SIZE;
+            for (int dy = -REFINE_RADIUS; dy <= REFINE_RADIUS; dy++) {
+                for (int dx = -REFINE_RADIUS; dx <= REFINE_RADIUS; dx++) {
+                    final int tx = tileX + dx;
+                    final int ty = tileY + dy;
+                    if (tx < 0 || ty < 0 || tx >= tilesPerSide
+                            || ty >= tilesPerSide) {
+                        continue;
+                    }
+                    final int tile = tx + ty * tilesPerSide;
+                    if (inWindow(tile, size) < 0) {
+                        window[size++] = tile;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private int inWindow(final int tile, final int windowSize) {
+        for (int slot = 0; slot < windowSize; slot++) {
+            if (window[slot] == tile) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of a cell in the window scratch arrays, or -1 if
+     *         its tile is outside the window.
+     */
+    private int getWindowCell(final int x, final int y, final int windowSize) {
+        final int slot = inWindow(x / TILE_SIZE + (y / TILE_SIZE)
+                * tilesPerSide, windowSize);
+        if (slot < 0) {
+            return -1;
+        }
+        return slot * CELLS + (x % TILE_SIZE) + (y % TILE_SIZE) * TILE_SIZE;
+    }
+
+    private long getNode(final int x, final int y) {
+        final int tile = x / TILE_SIZE + (y / TILE_SIZE) * tilesPerSide;
+        if (tiles[tile] == null) {
+            return (long) tile << COMPONENT_BITS;
+        }
+        label(tile);
+        return ((long) tile << COMPONENT_BITS)
+                | labels[(x % TILE_SIZE) + (y % TILE_SIZE) * TILE_SIZE];
+    }
+
+    private boolean isVisited(final long node) {
+        final int tile = (int) (node >>> COMPONENT_BITS);
+        final Tile summary = tiles[tile];
+        return summary == null ? tileMark[tile] == stamp
+                : summary.mark[(int) node & ((1 << COMPONENT_BITS) - 1)]
+                        == stamp;
+    }
+
+    private void visit(final long node, final int info) {
+        final int tile = (int) (node >>> COMPONENT_BITS);
+        final Tile summary = tiles[tile];
+        if (summary == null) {
+            tileMark[tile] = stamp;
+            tileInfo[tile] = info;
+        } else {
+            final int component = (int) node & ((1 << COMPONENT_BITS) - 1);
+            summary.mark[component] = stamp;
+            summary.info[component] = info;
+        }
+    }
+
+    private int getInfo(final long node) {
+        final int tile = (int) (node >>> COMPONENT_BITS);
+        final Tile summary = tiles[tile];
+        return summary == null ? tileInfo[tile]
+                : summary.info[(int) node & ((1 << COMPONENT_BITS) - 1)];
+    }
+
+    private void setInfo(final long node, final int info) {
+        final int tile = (int) (node >>> COMPONENT_BITS);
+        final Tile summary = tiles[tile];
+        if (summary == null) {
+            tileInfo[tile] = info;
+        } else {
+            summary.info[(int) node & ((1 << COMPONENT_BITS) - 1)] = info;
+        }
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(tileMark, 0);
+            for (Tile summary : tiles) {
+                if (summary != null) {
+                    Arrays.fill(summary.mark, 0);
+                }
+            }
+            stamp = 1;
+        }
+    }
+
+    private Tile getTile(final int tile) {
+        flush();
+        return tiles[tile];
+    }
+
+    /**
+     * @return The number of cells along a tile row or column, which is
+     *         TILE_SIZE except for the last, clipped by the board edge.
+     */
+    private int getWidth(final int tileCoordinate) {
+        return Math.min(TILE_SIZE, dimension - tileCoordinate * TILE_SIZE);
+    }
+
+    private int countEven(final int tileX, final int tileY) {
+        final int width = getWidth(tileX);
+        int even = 0;
+        for (int row = 0; row < getWidth(tileY); row++) {
+            final int colour = (tileX * TILE_SIZE + tileY * TILE_SIZE + row)
+                    & 1;
+            even += (width + 1 - colour) / 2;
+        }
+        return even;
+    }
+
+    /**
+     * Summarise every dirty tile again.
+     */
+    private void flush() {
+        while (dirtyCount > 0) {
+            final int tile = dirtyTiles[--dirtyCount];
+            dirty[tile] = false;
+            summarise(tile);
+        }
+    }
+
+    /**
+     * Label a tile and store its components, or drop its summary if none
+     * of its cells is unavailable.
+     */
+    private void summarise(final int tile) {
+        final int count = label(tile);
+        final int tileX = tile % tilesPerSide;
+        final int tileY = tile / tilesPerSide;
+        final int width = getWidth(tileX);
+        final int height = getWidth(tileY);
+        boolean full = count == 1;
+        for (int local = 0; full && local < CELLS; local++) {
+            if (local % TILE_SIZE < width && local / TILE_SIZE < height
+                    && labels[local] < 0) {
+                full = false;
+            }
+        }
+        if (full) {
+            tiles[tile] = null;
+            return;
+        }
+
+        Tile summary = new Tile(count);
+        for (int local = 0; local < CELLS; local++) {
+            final int component = labels[local];
+            if (component >= 0) {
+                summary.size[component]++;
+                if (((tileX * TILE_SIZE + local % TILE_SIZE
+                        + tileY * TILE_SIZE + local / TILE_SIZE) & 1) == 0) {
+                    summary.even[component]++;
+                }
+            }
+        }
+        summary.side[NORTH] = new byte[width];
+        summary.side[SOUTH] = new byte[width];
+        summary.side[EAST] = new byte[height];
+        summary.side[WEST] = new byte[height];
+        for (int i = 0; i < width; i++) {
+            summary.side[NORTH][i] = (byte) labels[i + (height - 1) * TILE_SIZE];
+            summary.side[SOUTH][i] = (byte) labels[i];
+        }
+        for (int i = 0; i < height; i++) {
+            summary.side[EAST][i] = (byte) labels[width - 1 + i * TILE_SIZE];
+            summary.side[WEST][i] = (byte) labels[i * TILE_SIZE];
+        }
+        tiles[tile] = summary;
+    }
+
+    /**
+     * Label the components of a tile into labels, in row-major order of
+     * their first cells; cells that are unavailable or off the board get
+     * -1.
+     *
+     * @return The number of components.
+     */
+    private int label(final int tile) {
+        final int originX = (tile % tilesPerSide) * TILE_SIZE;
+        final int originY = (tile / tilesPerSide) * TILE_SIZE;
+        final int width = getWidth(tile % tilesPerSide);
+        final int height = getWidth(tile / tilesPerSide);
+        final int unlabelled = -2;
+        for (int local = 0; local < CELLS; local++) {
+            final int lx = local % TILE_SIZE;
+            final int ly = local / TILE_SIZE;
+            labels[local] = lx < width && ly < height
+                    && !board.isUnavailable(originX + lx, originY + ly)
+                    ? unlabelled : -1;
+        }
+        int count = 0;
+        for (int start = 0; start < CELLS; start++) {
+            if (labels[start] != unlabelled) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            labels[start] = count;
+            fill[tail++] = start;
+            while (head < tail) {
+                final int local = fill[head++];
+                final int lx = local % TILE_SIZE;
+                final int ly = local / TILE_SIZE;
+                if (ly + 1 < TILE_SIZE) {
+                    tail = spread(local + TILE_SIZE, count, tail);
+                }
+                if (ly > 0) {
+                    tail = spread(local - TILE_SIZE, count, tail);
+                }
+                if (lx + 1 < TILE_SIZE) {
+                    tail = spread(local + 1, count, tail);
+                }
+                if (lx > 0) {
+                    tail = spread(local - 1, count, tail);
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private int spread(final int local, final int component, final int tail) {
+        if (labels[local] == -2) {
+            labels[local] = component;
+            fill[tail] = local;
+            return tail + 1;
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,174 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RegionSummaryTest {
+
+    /**
+     * Breadth-first distances from an unavailable player cell through
+     * available cells.
+     */
+    private static int[] distances(Board board, int source) {
+        Topology topology = board.getTopology();
+        int cells = topology.getCellCount();
+        int[] distance = new int[cells];
+        java.util.Arrays.fill(distance, -1);
+        int[] queue = new int[cells];
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int e = topology.getEdgeStart(cell); e < topology.getEdgeEnd(cell); e++) {
+                int next = topology.getNeighbourAt(e);
+                if (distance[next] < 0 && board.getStateAt(next)
+                        == Board.LocationState.AVAILABLE) {
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static Board randomBoard(int dimension, int blocked, long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(Topology.square(dimension));
+        for (int i = 0; i < blocked; i++) {
+            board.setStateAt(random.nextInt(dimension * dimension),
+                    Board.LocationState.UNAVAILABLE);
+        }
+        return board;
+    }
+
+    @Test
+    public void testTileCounts() {
+        Board board = new Board(20);
+        RegionSummary summary = board.getRegionSummary();
+        assertEquals(2, summary.getTilesPerSide());
+        assertEquals(256, summary.getFreeCount(0, 0));
+        assertEquals(16, summary.getFreeCount(1, 1));
+
+        board.setStateAt(1, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(20, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(16, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(16 + 20, Board.LocationState.UNAVAILABLE);
+        assertEquals(254, summary.getFreeCount(0, 0));
+        assertEquals(62, summary.getFreeCount(1, 0));
+        /* Cell (0, 0) is cut off from the rest of its tile. */
+        assertEquals(2, summary.getComponentCount(0, 0));
+        assertEquals(1, summary.getComponentCount(1, 0));
+    }
+
+    @Test
+    public void testRegionsMatchTracker() {
+        for (int seed = 0; seed < 4; seed++) {
+            Board board = randomBoard(37, 500, seed);
+            RegionSummary summary = board.getRegionSummary();
+            RegionTracker regions = board.getRegions();
+            Random random = new Random(seed);
+            for (int i = 0; i < 200; i++) {
+                int cell = random.nextInt(37 * 37);
+                int x = cell % 37;
+                int y = cell / 37;
+                if (board.getStateAt(cell) == Board.LocationState.AVAILABLE) {
+                    assertEquals(regions.getRegionSize(regions.getRegion(cell)),
+                            summary.getReachableSize(x, y));
+                } else {
+                    assertEquals(regions.getReachableSize(cell),
+                            summary.getReachableSize(x, y));
+                }
+                int other = random.nextInt(37 * 37);
+                boolean connected = false;
+                int[] distance = distances(board, cell);
+                int ox = other % 37;
+                int oy = other / 37;
+                int[] around = { other, oy + 1 < 37 ? other + 37 : -1,
+                        oy > 0 ? other - 37 : -1, ox + 1 < 37 ? other + 1 : -1,
+                        ox > 0 ? other - 1 : -1 };
+                boolean otherFree = board.getStateAt(other)
+                        == Board.LocationState.AVAILABLE;
+                for (int k = otherFree ? 0 : 1; k < (otherFree ? 1 : 5); k++) {
+                    connected |= around[k] >= 0 && distance[around[k]] > 0;
+                }
+                connected |= other == cell;
+                assertEquals(connected, summary.isConnected(x, y, ox, oy));
+                board.setStateAt(cell, random.nextBoolean()
+                        ? Board.LocationState.AVAILABLE
+                        : Board.LocationState.UNAVAILABLE);
+            }
+        }
+    }
+
+    @Test
+    public void testParityBound() {
+        Board board = new Board(18);
+        board.setStateAt(0, Board.LocationState.UNAVAILABLE);
+        RegionSummary summary = board.getRegionSummary();
+        /* 323 free cells: 161 even, the colour of the corner, 162 odd. */
+        assertEquals(323, summary.getParityBound(0, 0));
+        board.setStateAt(1, Board.LocationState.UNAVAILABLE);
+        /* From (1, 0): 161 even cells to enter first, 161 odd. */
+        assertEquals(322, summary.getParityBound(1, 0));
+    }
+
+    @Test
+    public void testTerritoryExactNearPlayers() {
+        /* With REFINE_RADIUS 1, every tile of a two-tile board is refined. */
+        Board board = randomBoard(30, 150, 7);
+        board.setStateAt(3 + 4 * 30, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(25 + 26 * 30, Board.LocationState.UNAVAILABLE);
+        int[] first = distances(board, 3 + 4 * 30);
+        int[] second = distances(board, 25 + 26 * 30);
+        long[] expected = new long[2];
+        for (int cell = 0; cell < 900; cell++) {
+            if (board.getStateAt(cell) == Board.LocationState.UNAVAILABLE) {
+                continue;
+            }
+            int a = first[cell] < 0 ? Integer.MAX_VALUE : first[cell];
+            int b = second[cell] < 0 ? Integer.MAX_VALUE : second[cell];
+            if (a < b) {
+                expected[0]++;
+            } else if (b < a) {
+                expected[1]++;
+            }
+        }
+        long[] territory = board.getRegionSummary().estimateTerritory(3, 4,
+                25, 26);
+        assertEquals(expected[0], territory[0]);
+        assertEquals(expected[1], territory[1]);
+    }
+
+    @Test
+    public void testTerritoryOnHugeBoard() {
+        final int dimension = 4096;
+        Board board = new Board(dimension, Board.Storage.TILED);
+        board.setStateAt(Location.of(0, 0, dimension - 1),
+                Board.LocationState.UNAVAILABLE);
+        board.setStateAt(Location.of(dimension - 1, dimension - 1,
+                dimension - 1), Board.LocationState.UNAVAILABLE);
+        RegionSummary summary = board.getRegionSummary();
+        long free = (long) dimension * dimension - 2;
+        assertEquals(free, summary.getReachableSize(0, 0));
+
+        long[] territory = summary.estimateTerritory(0, 0, dimension - 1,
+                dimension - 1);
+        assertEquals(territory[0], territory[1]);
+        assertTrue(territory[0] + territory[1] < free);
+        assertTrue(territory[0] > free / 3);
+
+        /* A wall across the board splits it. */
+        for (int x = 0; x < dimension; x++) {
+            board.setStateAt(Location.of(x, 100, dimension - 1),
+                    Board.LocationState.UNAVAILABLE);
+        }
+        assertEquals(100L * dimension - 1, summary.getReachableSize(0, 0));
+        assertFalse(summary.isConnected(0, 0, dimension - 1, dimension - 1));
+        territory = summary.estimateTerritory(0, 0, dimension - 1,
+                dimension - 1);
+        assertEquals(100L * dimension - 1, territory[0]);
+    }
+}
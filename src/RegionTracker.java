@@ -0,0 +1,376 @@
+import java.util.Arrays;
+
+/**
+ * The connected regions of available cells on a board, maintained as cells
+ * change availability so that connectivity queries never flood fill the
+ * board.
+ *
+ * When a cell is removed, its available neighbours are searched in lockstep,
+ * one cell per search per round, and searches that meet are merged. The
+ * search stops as soon as at most one group is still growing, so the cost is
+ * bounded by the size of the smaller sides of a split, not by the board.
+ * Every completed group becomes a new region; the last keeps the old label.
+ * When a cell becomes available again, the regions it touches are merged by
+ * relabelling all but the largest.
+ *
+ * Abstraction function:
+ * Cell c is unavailable iff regionOf[c] == -1; otherwise it lies in region
+ * regionOf[c], which holds regionSize[regionOf[c]] cells.
+ * regionVersion[r] changes whenever the cells of region r change.
+ *
+ * @invariant Two available cells share a label iff they are connected
+ *            through available cells.
+ * @invariant Labels of empty regions are on the free stack and are reused.
+ */
+public final class RegionTracker {
+
+    private final Topology topology;
+    private final int[] regionOf;
+    private final int[] regionSize;
+    private final int[] regionVersion;
+    private final int[] freeRegions;
+    private int freeCount;
+    private int regionCount = 0;
+
+    /* Lockstep search state, one slot per neighbour of the removed cell.
+     * mark[c] - stampBase is the search that reached c during the current
+     * split, if it lies in [0, maxDegree). */
+    private final int[][] queues;
+    private final int[] heads;
+    private final int[] tails;
+    private final int[] parent;
+    private final boolean[] finished;
+    private final int[] starts;
+    private final int[] mark;
+    private int stampBase = 1;
+
+    /**
+     * Label the available cells of a board.
+     *
+     * @requires unavailable has the dimension of topology, and every
+     *           blocked cell of topology is set in it.
+     * @param topology The cell graph of the board.
+     * @param unavailable The cells that are currently unavailable.
+     */
+    RegionTracker(final Topology topology, final BitBoard unavailable) {
+        this.topology = topology;
+        final int cells = topology.getCellCount();
+        final int searches = Math.max(1, topology.getMaxDegree());
+        this.regionOf = new int[cells];
+        this.regionSize = new int[cells + 1];
+        this.regionVersion = new int[cells + 1];
+        this.freeRegions = new int[cells + 1];
+        this.mark = new int[cells];
+        this.queues = new int[searches][];
+        for (int i = 0; i < searches; i++) {
+            this.queues[i] = new int[16];
+        }
+        this.heads = new int[searches];
+        this.tails = new int[searches];
+        this.parent = new int[searches];
+        this.finished = new boolean[searches];
+        this.starts = new int[searches];
+
+        for (int region = cells; region >= 0; region--) {
+            freeRegions[freeCount++] = region;
+        }
+        final int unlabelled = -2;
+        for (int cell = 0; cell < cells; cell++) {
+            regionOf[cell] = unavailable.get(cell) ? -1 : unlabelled;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (regionOf[cell] == unlabelled) {
+                int region = allocateRegion();
+                regionOf[cell] = region;
+                regionSize[region] = 1 + relabel(cell, unlabelled, region);
+            }
+        }
+    }
+
+    /**
+     * Get the region of a cell.
+     *
+     * @requires cell in [0, getCellCount() - 1] of the topology.
+     * @param cell The index of the cell.
+     * @return The label of the region holding the cell, or -1 if the cell is
+     *         unavailable.
+     */
+    public int getRegion(final int cell) {
+        return regionOf[cell];
+    }
+
+    /**
+     * Get the number of cells in a region.
+     *
+     * @param region The label of a region.
+     * @return The number of available cells with that label.
+     */
+    public int getRegionSize(final int region) {
+        return regionSize[region];
+    }
+
+    /**
+     * Get the version of a region. Results computed from the cells of a
+     * region stay valid while its version is unchanged.
+     *
+     * @param region The label of a region.
+     * @return A counter that changes whenever the region's cells change.
+     */
+    public int getRegionVersion(final int region) {
+        return regionVersion[region];
+    }
+
+    /**
+     * Get the number of regions.
+     *
+     * @return The number of non-empty regions.
+     */
+    public int getRegionCount() {
+        return this.regionCount;
+    }
+
+    /**
+     * Get the number of cells a player standing on a cell could still reach:
+     * the size of the largest region next to it. A player that enters one
+     * region can never leave it, so this bounds the player's remaining moves.
+     *
+     * @requires cell in [0, getCellCount() - 1] of the topology.
+     * @param cell The index of the player's cell.
+     * @return The size of the largest adjacent region, or 0 if there is none.
+     */
+    public int getReachableSize(final int cell) {
+        int largest = 0;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int region = regionOf[topology.getNeighbourAt(e)];
+            if (region >= 0 && regionSize[region] > largest) {
+                largest = regionSize[region];
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Check whether players standing on two cells can still meet, meaning
+     * that some region is next to both.
+     *
+     * @requires first and second in [0, getCellCount() - 1] of the topology.
+     * @param first The index of one player's cell.
+     * @param second The index of the other player's cell.
+     * @return true if a region is adjacent to both cells. false otherwise.
+     */
+    public boolean isConnected(final int first, final int second) {
+        final int firstEnd = topology.getEdgeEnd(first);
+        final int secondEnd = topology.getEdgeEnd(second);
+        for (int e = topology.getEdgeStart(first); e < firstEnd; e++) {
+            final int region = regionOf[topology.getNeighbourAt(e)];
+            if (region < 0) {
+                continue;
+            }
+            for (int f = topology.getEdgeStart(second); f < secondEnd; f++) {
+                if (regionOf[topology.getNeighbourAt(f)] == region) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record that a cell became unavailable, splitting its region if the
+     * cell was the only connection between parts of it.
+     *
+     * @requires cell is available.
+     * @param cell The index of the cell.
+     * @modifies this
+     */
+    void remove(final int cell) {
+        final int region = regionOf[cell];
+        regionOf[cell] = -1;
+        regionVersion[region]++;
+        if (--regionSize[region] == 0) {
+            releaseRegion(region);
+            return;
+        }
+
+        int count = 0;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int neighbour = topology.getNeighbourAt(e);
+            if (regionOf[neighbour] == region) {
+                starts[count++] = neighbour;
+            }
+        }
+        if (count > 1) {
+            split(region, count);
+        }
+    }
+
+    /**
+     * Record that a cell became available, merging the regions it joins.
+     *
+     * @requires cell is unavailable.
+     * @param cell The index of the cell.
+     * @modifies this
+     */
+    void restore(final int cell) {
+        int largest = -1;
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int region = regionOf[topology.getNeighbourAt(e)];
+            if (region >= 0 && (largest < 0
+                    || regionSize[region] > regionSize[largest])) {
+                largest = region;
+            }
+        }
+        if (largest < 0) {
+            largest = allocateRegion();
+        }
+        regionOf[cell] = largest;
+        regionSize[largest]++;
+        regionVersion[largest]++;
+
+        for (int e = topology.getEdgeStart(cell); e < end; e++) {
+            final int neighbour = topology.getNeighbourAt(e);
+            final int region = regionOf[neighbour];
+            if (region >= 0 && region != largest) {
+                regionOf[neighbour] = largest;
+                regionSize[largest] += 1 + relabel(neighbour, region, largest);
+                regionSize[region] = 0;
+                releaseRegion(region);
+            }
+        }
+    }
+
+    /**
+     * Search outwards from starts[0, count) in lockstep until at most one
+     * group of searches is still growing, and give every completed group
+     * but the last a new label.
+     */
+    private void split(final int region, final int count) {
+        if (stampBase > Integer.MAX_VALUE - 2 * queues.length) {
+            Arrays.fill(mark, 0);
+            stampBase = 1;
+        }
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+            finished[i] = false;
+            heads[i] = 0;
+            tails[i] = 1;
+            queues[i][0] = starts[i];
+            mark[starts[i]] = stampBase + i;
+        }
+        int growing = count;
+
+        while (growing > 1) {
+            for (int i = 0; i < count; i++) {
+                if (heads[i] == tails[i]) {
+                    continue;
+                }
+                final int current = queues[i][heads[i]++];
+                final int end = topology.getEdgeEnd(current);
+                for (int e = topology.getEdgeStart(current); e < end; e++) {
+                    final int neighbour = topology.getNeighbourAt(e);
+                    if (regionOf[neighbour] != region) {
+                        continue;
+                    }
+                    final int owner = mark[neighbour] - stampBase;
+                    if (owner >= 0 && owner < count) {
+                        final int a = find(i);
+                        final int b = find(owner);
+                        if (a != b) {
+                            parent[b] = a;
+                            growing--;
+                        }
+                    } else {
+                        mark[neighbour] = stampBase + i;
+                        push(i, neighbour);
+                    }
+                }
+            }
+
+            for (int root = 0; root < count && growing > 1; root++) {
+                if (find(root) != root || finished[root] || isGrowing(root, count)) {
+                    continue;
+                }
+                final int split = allocateRegion();
+                int size = 0;
+                for (int i = 0; i < count; i++) {
+                    if (find(i) == root) {
+                        for (int t = 0; t < tails[i]; t++) {
+                            regionOf[queues[i][t]] = split;
+                        }
+                        size += tails[i];
+                    }
+                }
+                regionSize[split] = size;
+                regionSize[region] -= size;
+                finished[root] = true;
+                growing--;
+            }
+        }
+        stampBase += queues.length;
+    }
+
+    private boolean isGrowing(final int root, final int count) {
+        for (int i = 0; i < count; i++) {
+            if (heads[i] < tails[i] && find(i) == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int find(int search) {
+        while (parent[search] != search) {
+            search = parent[search];
+        }
+        return search;
+    }
+
+    private void push(final int search, final int cell) {
+        if (tails[search] == queues[search].length) {
+            queues[search] = Arrays.copyOf(queues[search], tails[search] * 2);
+        }
+        queues[search][tails[search]++] = cell;
+    }
+
+    /**
+     * Relabel every cell connected to start through cells labelled from,
+     * excluding start itself.
+     *
+     * @return The number of cells relabelled.
+     */
+    private int relabel(final int start, final int from, final int to) {
+        heads[0] = 0;
+        tails[0] = 0;
+        push(0, start);
+        int relabelled = 0;
+        while (heads[0] < tails[0]) {
+            final int current = queues[0][heads[0]++];
+            final int end = topology.getEdgeEnd(current);
+            for (int e = topology.getEdgeStart(current); e < end; e++) {
+                final int neighbour = topology.getNeighbourAt(e);
+                if (regionOf[neighbour] == from) {
+                    regionOf[neighbour] = to;
+                    relabelled++;
+                    push(0, neighbour);
+                }
+            }
+        }
+        return relabelled;
+    }
+
+    private int allocateRegion() {
+        regionCount++;
+        final int region = freeRegions[--freeCount];
+        regionVersion[region]++;
+        return region;
+    }
+
+    private void releaseRegion(final int region) {
+        regionCount--;
+        regionVersion[region]++;
+        freeRegions[freeCount++] = region;
+    }
+}
@@ -0,0 +1,141 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RegionTrackerTest {
+
+    /**
+     * Check the tracker against a flood fill of the board.
+     */
+    private static void assertMatchesFloodFill(Board board) {
+        RegionTracker regions = board.getRegions();
+        Topology topology = board.getTopology();
+        int cells = topology.getCellCount();
+        int[] label = new int[cells];
+        java.util.Arrays.fill(label, -1);
+        int[] queue = new int[cells];
+        int count = 0;
+        for (int start = 0; start < cells; start++) {
+            if (label[start] >= 0
+                    || board.getStateAt(start) == Board.LocationState.UNAVAILABLE) {
+                assertTrue(label[start] >= 0 || regions.getRegion(start) == -1);
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            label[start] = count;
+            queue[tail++] = start;
+            int region = regions.getRegion(start);
+            while (head < tail) {
+                int cell = queue[head++];
+                assertEquals(region, regions.getRegion(cell));
+                for (int e = topology.getEdgeStart(cell); e < topology.getEdgeEnd(cell); e++) {
+                    int next = topology.getNeighbourAt(e);
+                    if (label[next] < 0 && board.getStateAt(next)
+                            == Board.LocationState.AVAILABLE) {
+                        label[next] = count;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            assertEquals(tail, regions.getRegionSize(region));
+            count++;
+        }
+        assertEquals(count, regions.getRegionCount());
+    }
+
+    @Test
+    public void testWallSplitsBoard() {
+        Board board = new Board(5);
+        for (int y = 0; y < 5; y++) {
+            board.setStateAt(2 + y * 5, Board.LocationState.UNAVAILABLE);
+        }
+        RegionTracker regions = board.getRegions();
+        assertEquals(2, regions.getRegionCount());
+        assertEquals(10, regions.getRegionSize(regions.getRegion(0)));
+        assertEquals(10, regions.getRegionSize(regions.getRegion(4)));
+        assertFalse(regions.isConnected(0, 4));
+        assertFalse(regions.isConnected(1, 3));
+        assertTrue(regions.isConnected(2, 3));
+        assertMatchesFloodFill(board);
+    }
+
+    @Test
+    public void testUnmakeMerges() {
+        Board board = new Board(4);
+        for (int y = 0; y < 3; y++) {
+            board.setStateAt(1 + y * 4, Board.LocationState.UNAVAILABLE);
+        }
+        board.makeMove(13);
+        assertEquals(2, board.getRegions().getRegionCount());
+        assertMatchesFloodFill(board);
+        board.unmakeMove();
+        assertEquals(1, board.getRegions().getRegionCount());
+        assertMatchesFloodFill(board);
+    }
+
+    @Test
+    public void testRandomMovesMatchFloodFill() {
+        Random random = new Random(7);
+        Topology[] topologies = { Topology.square(9), Topology.torus(8),
+                Topology.hexagonal(9) };
+        for (Topology topology : topologies) {
+            Board board = new Board(topology);
+            for (int move = 0; move < 50; move++) {
+                int cell = random.nextInt(topology.getCellCount());
+                board.makeMove(cell);
+                assertMatchesFloodFill(board);
+            }
+            while (board.getUndoDepth() > 0) {
+                board.unmakeMove();
+                assertMatchesFloodFill(board);
+            }
+            assertEquals(1, board.getRegions().getRegionCount());
+        }
+    }
+
+    @Test
+    public void testGameSeparation() {
+        Game game = new Game(Game.Mode.TWO_PLAYER, 5, "P1", "P2");
+        game.setHeadless(true);
+        /* Without the proof search, the game runs on until they separate. */
+        game.setProofBudget(0, 0);
+        game.begin(Location.of(2, 0, 4), Location.of(4, 4, 4));
+        assertFalse(game.arePlayersSeparated());
+
+        int[] moves = { 2 + 1 * 5, 4 + 3 * 5, 2 + 2 * 5, 4 + 2 * 5,
+                2 + 3 * 5, 4 + 1 * 5, 2 + 4 * 5, 3 + 1 * 5 };
+        for (int move : moves) {
+            assertTrue(game.requestMove(move));
+        }
+        assertFalse(game.arePlayersSeparated());
+
+        assertTrue(game.requestMove(1 + 4 * 5));
+        assertTrue(game.arePlayersSeparated());
+        assertEquals(9, game.getReachableArea(0));
+        assertEquals(3, game.getReachableArea(1));
+    }
+
+    @Test
+    public void testPlayersSeparate() {
+        Board board = new Board(5);
+        board.setStateAt(2, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(4 + 4 * 5, Board.LocationState.UNAVAILABLE);
+        int[] moves = { 2 + 1 * 5, 4 + 3 * 5, 2 + 2 * 5, 4 + 2 * 5,
+                2 + 3 * 5, 4 + 1 * 5, 2 + 4 * 5, 3 + 1 * 5 };
+        for (int move : moves) {
+            board.setStateAt(move, Board.LocationState.UNAVAILABLE);
+        }
+        RegionTracker regions = board.getRegions();
+        assertTrue(regions.isConnected(2 + 4 * 5, 3 + 1 * 5));
+
+        board.setStateAt(1 + 4 * 5, Board.LocationState.UNAVAILABLE);
+        assertFalse(regions.isConnected(1 + 4 * 5, 3 + 1 * 5));
+        assertEquals(9, regions.getReachableSize(1 + 4 * 5));
+        assertEquals(3, regions.getReachableSize(3 + 1 * 5));
+        assertMatchesFloodFill(board);
+    }
+
+}
@@ -0,0 +1,84 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how ParallelSearch scales: the time to search the standard
+ * start position to a fixed depth, for 1, 2, 4, ... threads up to a
+ * maximum. Each run starts from an empty table on a ForkJoinPool of its
+ * own, after one untimed run to warm up the JIT.
+ *
+ * Usage: java SearchBenchmark [dimension depth maxThreads megabytes]
+ * The defaults are a 15 by 15 board, depth 10, every available core and
+ * a 64 MB table.
+ */
+public final class SearchBenchmark {
+
+    /* Long enough never to cut a run short. */
+    private static final long TIME_LIMIT_MILLIS = 24L * 60 * 60 * 1000;
+
+    private SearchBenchmark() {
+    }
+
+    /**
+     * Run the benchmark from the command line and print one line per
+     * thread count.
+     *
+     * @param args Optionally the dimension, depth, largest thread count and
+     *        table size in megabytes.
+     */
+    public static void main(final String[] args) {
+        if (args.length != 0 && args.length != 4) {
+            System.err.println(
+                    "Usage: SearchBenchmark [dimension depth maxThreads megabytes]");
+            return;
+        }
+        final int dimension = args.length == 4 ? Integer.parseInt(args[0]) : 15;
+        final int depth = args.length == 4 ? Integer.parseInt(args[1]) : 10;
+        final int maxThreads = args.length == 4 ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        final int megabytes = args.length == 4 ? Integer.parseInt(args[3])
+                : 64;
+
+        run(dimension, depth, 1, megabytes);
+        System.out.println("threads\tmillis\tspeedup\tdepth\tnodes\tnodes/s");
+        long baseline = 0;
+        for (int count = 1; ; count *= 2) {
+            final int threads = Math.min(count, maxThreads);
+            final ParallelSearch search = run(dimension, depth, threads,
+                    megabytes);
+            final long millis = Math.max(1, search.getElapsedMillis());
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.println(threads + "\t" + millis + "\t"
+                    + String.format("%.2f", (double) baseline / millis) + "\t"
+                    + search.getCompletedDepth() + "\t"
+                    + search.getNodeCount() + "\t"
+                    + search.getNodesPerSecond());
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Search the start position once with a given number of threads.
+     */
+    private static ParallelSearch run(final int dimension, final int depth,
+            final int threads, final int megabytes) {
+        final Board board = new Board(dimension);
+        final int first = dimension / 2 + (dimension - 1) * dimension;
+        final int second = dimension / 2;
+        board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads - 1));
+        try {
+            final ParallelSearch search = new ParallelSearch(board,
+                    new TranspositionTable(megabytes), threads, pool);
+            search.search(first, second, 0, depth, Long.MAX_VALUE,
+                    TIME_LIMIT_MILLIS);
+            return search;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
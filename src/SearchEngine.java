@@ -0,0 +1,541 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Negamax alpha-beta search with iterative deepening for choosing a move.
+ *
+ * Every node is scored from the side to move. A player with no move loses,
+ * scored LOSS plus the ply so that quicker wins and slower losses are
+ * preferred; other leaves are scored by VoronoiEvaluator. The board's
+ * unavailable cells are copied into a private BitBoard when a search
+ * starts, and moves set and clear bits there, so the board itself is only
+ * read and never changes during a search.
+ *
+ * Each iteration searches the principal variation of the previous one
+ * first. Other moves are ordered by two killer moves per ply, the quiet
+ * moves that last caused a cutoff there, and then by a history score per
+ * player and cell that grows with the depth of every cutoff.
+ *
+ * Results can be kept in a TranspositionTable keyed by the same position
+ * key as Game, so that positions reached by different move orders, in
+ * later iterations or by other searches sharing the table are not searched
+ * again. A stored result cuts the search off when it is deep enough, and
+ * its best move is otherwise tried right after the principal variation.
+ *
+ * The strength of the search is set by its node and time budget: it stops
+ * when either runs out and plays the best move of the deepest iteration it
+ * finished.
+ */
+public final class SearchEngine {
+
+    /** Deepest line searched, in plies. */
+    public static final int MAX_PLY = 128;
+
+    /** Score of a lost position at the root; a loss at ply p is LOSS + p. */
+    public static final int LOSS = -(1 << 20);
+
+    private final Board board;
+    private final Topology topology;
+    private final ZobristKeys keys;
+    private final VoronoiEvaluator evaluator;
+    private TranspositionTable table = null;
+
+    /* Search state: the unavailable cells and their key, both player
+     * cells, the side to move, and the keys of both player cells and the
+     * side to move. The position key is blockedKey XOR playerKey. */
+    private final BitBoard blocked;
+    private long blockedKey;
+    private final int[] cells = new int[2];
+    private int toMove;
+    private long playerKey;
+
+    /* moves[ply] holds the moves generated at that ply. */
+    private final int[][] moves;
+    private final int[][] orderScores;
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history;
+
+    /* Triangular principal variation table. */
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+
+    private long nodes;
+    private long nodeBudget;
+    private long deadline;
+    private boolean aborted;
+    /* Set by ParallelSearch: the first iteration, a flag that stops the
+     * search when raised, the number of threads in each iteration depth,
+     * and how many of them make this search skip that depth (0 never). */
+    private int startDepth = 1;
+    private AtomicBoolean stopSignal = null;
+    private boolean startsTableSearch = true;
+    private AtomicIntegerArray depthSearchers = null;
+    private int skipThreshold = 0;
+
+    private int bestScore;
+    private int completedDepth;
+    private long elapsedNanos;
+
+    /**
+     * Create a search for a board.
+     *
+     * @requires board is DENSE.
+     * @param board The board to search.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    public SearchEngine(final Board board) {
+        if (board.getStorage() != Board.Storage.DENSE) {
+            throw new InvalidStateException(
+                    "Operation requires a DENSE board.");
+        }
+        this.board = board;
+        this.topology = board.getTopology();
+        this.keys = board.getZobristKeys();
+        this.blocked = new BitBoard(board.getDimension());
+        this.evaluator = new VoronoiEvaluator(board, blocked);
+        final int degree = Math.max(1, topology.getMaxDegree());
+        this.moves = new int[MAX_PLY][degree];
+        this.orderScores = new int[MAX_PLY][degree];
+        this.history = new int[2][topology.getCellCount()];
+    }
+
+    /**
+     * Keep results in a transposition table, which may be shared with
+     * other searches on any thread.
+     *
+     * @param table The table, or null to keep no results between nodes.
+     * @modifies this
+     */
+    public void setTranspositionTable(final TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Start later searches at a given iteration rather than at depth 1, so
+     * that helpers of a parallel search work at staggered depths.
+     *
+     * @requires depth is greater than 0.
+     * @param depth The depth of the first iteration.
+     * @modifies this
+     */
+    void setStartDepth(final int depth) {
+        this.startDepth = depth;
+    }
+
+    /**
+     * Choose whether each search starts a new generation of the table. A
+     * parallel search turns this off on all of its engines and starts the
+     * generation once itself, so that results its threads store during one
+     * root search are never aged against each other.
+     *
+     * @param starts true to call newSearch on the table at every search.
+     * @modifies this
+     */
+    void setStartsTableSearch(final boolean starts) {
+        this.startsTableSearch = starts;
+    }
+
+    /**
+     * Count this search's iterations in counters shared with other
+     * searches of the same root, and skip any depth that skipThreshold or
+     * more of them are already searching.
+     *
+     * @requires searchers has MAX_PLY counters, skipThreshold is not
+     *           negative.
+     * @param searchers The number of searches in each depth, or null to
+     *        count nothing.
+     * @param skipThreshold The count at which a depth is skipped, or 0 to
+     *        skip none.
+     * @modifies this
+     */
+    void setDepthSharing(final AtomicIntegerArray searchers,
+            final int skipThreshold) {
+        this.depthSearchers = searchers;
+        this.skipThreshold = skipThreshold;
+    }
+
+    /**
+     * Stop later searches as soon as a flag is raised, from any thread.
+     * The search then ends as if its budget had run out.
+     *
+     * @param signal The flag, or null to stop only on the budget.
+     * @modifies this
+     */
+    void setStopSignal(final AtomicBoolean signal) {
+        this.stopSignal = signal;
+    }
+
+    /**
+     * Search the board's current position and choose a move for the player
+     * to move.
+     *
+     * @requires Both player cells are unavailable on the board, and the
+     *           board does not change until search returns.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @param maxDepth The deepest iteration to run, at most MAX_PLY.
+     * @param nodeBudget The number of nodes to search at most.
+     * @param timeBudgetMillis The time to spend at most.
+     * @modifies this
+     * @return The cell to move to, or -1 if the player has no move.
+     */
+    public int search(final int firstCell, final int secondCell,
+            final int playerToMove, final int maxDepth, final long nodeBudget,
+            final long timeBudgetMillis) {
+        final long start = System.nanoTime();
+        cells[0] = firstCell;
+        cells[1] = secondCell;
+        toMove = playerToMove;
+        board.copyUnavailableCells(blocked);
+        blockedKey = board.getZobristKey();
+        playerKey = keys.getPlayerKey(0, firstCell)
+                ^ keys.getPlayerKey(1, secondCell)
+                ^ (playerToMove == 1 ? keys.getSideToMoveKey() : 0);
+        if (table != null && startsTableSearch) {
+            table.newSearch();
+        }
+        nodes = 0;
+        this.nodeBudget = nodeBudget;
+        this.deadline = start + timeBudgetMillis * 1000000L;
+        aborted = false;
+        completedDepth = 0;
+        bestScore = 0;
+        previousPv = new int[0];
+        for (int[] row : killers) {
+            Arrays.fill(row, -1);
+        }
+        for (int[] row : history) {
+            Arrays.fill(row, 0);
+        }
+
+        int bestMove = -1;
+        final int depthLimit = Math.min(maxDepth, MAX_PLY - 1);
+        for (int depth = Math.min(startDepth, depthLimit);
+                depth <= depthLimit; depth++) {
+            if (depthSearchers != null) {
+                while (skipThreshold > 0 && depth < depthLimit
+                        && depthSearchers.get(depth) >= skipThreshold) {
+                    depth++;
+                }
+                depthSearchers.incrementAndGet(depth);
+            }
+            followPv = true;
+            final int score = negamax(depth, 0, LOSS - 1, -(LOSS - 1));
+            if (depthSearchers != null) {
+                depthSearchers.decrementAndGet(depth);
+            }
+            if (aborted) {
+                /* A partial iteration searched the previous best move first,
+                 * so its best finished root move is at least as good. */
+                if (pvLength[0] > 0) {
+                    bestMove = pv[0][0];
+                    bestScore = score;
+                }
+                break;
+            }
+            if (pvLength[0] == 0) {
+                /* The player to move has no move. */
+                bestScore = score;
+                break;
+            }
+            bestMove = pv[0][0];
+            bestScore = score;
+            completedDepth = depth;
+            previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+            /* Stop once the result is a forced win or loss. */
+            if (Math.abs(score) >= -LOSS - MAX_PLY) {
+                break;
+            }
+        }
+        if (bestMove < 0) {
+            bestMove = firstMove();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    /**
+     * Get the score of the last search's chosen move, from the side to move.
+     *
+     * @return The score; values within MAX_PLY of LOSS or -LOSS are forced
+     *         losses or wins.
+     */
+    public int getScore() {
+        return this.bestScore;
+    }
+
+    /**
+     * Get the depth of the deepest iteration the last search finished.
+     *
+     * @return The depth in plies, or 0 if no iteration finished.
+     */
+    public int getCompletedDepth() {
+        return this.completedDepth;
+    }
+
+    /**
+     * Get the principal variation of the deepest finished iteration.
+     *
+     * @return A copy of the cells moved to, starting with the chosen move.
+     */
+    public int[] getPrincipalVariation() {
+        return previousPv.clone();
+    }
+
+    /**
+     * Get the number of nodes visited by the last search.
+     *
+     * @return The node count.
+     */
+    public long getNodeCount() {
+        return this.nodes;
+    }
+
+    /**
+     * Get the speed of the last search.
+     *
+     * @return Nodes visited per second of wall-clock time.
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Score the current position from the side to move, searching depth
+     * more plies.
+     */
+    private int negamax(final int depth, final int ply, int alpha,
+            final int beta) {
+        pvLength[ply] = 0;
+        if (++nodes > nodeBudget
+                || ((nodes & 1023) == 0 && (System.nanoTime() > deadline
+                        || (stopSignal != null && stopSignal.get())))) {
+            aborted = true;
+            return 0;
+        }
+
+        final int count = generateMoves(ply);
+        if (count == 0) {
+            followPv = false;
+            return LOSS + ply;
+        }
+        if (depth == 0 || ply == MAX_PLY - 1) {
+            followPv = false;
+            return evaluator.evaluate(cells[toMove], cells[1 - toMove]);
+        }
+
+        final int from = cells[toMove];
+        final long key = blockedKey ^ playerKey;
+        int tableMove = -1;
+        if (table != null) {
+            final long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                tableMove = getNeighbour(from,
+                        TranspositionTable.getMoveIndex(entry));
+                if (ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                    final int score = fromTable(
+                            TranspositionTable.getScore(entry), ply);
+                    final TranspositionTable.Bound bound =
+                            TranspositionTable.getBound(entry);
+                    if (bound == TranspositionTable.Bound.EXACT
+                            || (bound == TranspositionTable.Bound.LOWER
+                                    && score >= beta)
+                            || (bound == TranspositionTable.Bound.UPPER
+                                    && score <= alpha)) {
+                        followPv = false;
+                        return score;
+                    }
+                }
+            }
+        }
+        orderMoves(ply, count, tableMove);
+
+        final int[] list = moves[ply];
+        final int originalAlpha = alpha;
+        int best = LOSS - 1;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            pickMove(ply, i, count);
+            final int move = list[i];
+            play(move);
+            final int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            undo(from);
+            if (aborted) {
+                return best > LOSS - 1 ? best : 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                pv[ply][0] = move;
+                System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                pvLength[ply] = pvLength[ply + 1] + 1;
+            }
+            if (alpha >= beta) {
+                if (killers[ply][0] != move) {
+                    killers[ply][1] = killers[ply][0];
+                    killers[ply][0] = move;
+                }
+                history[toMove][move] += depth * depth;
+                break;
+            }
+        }
+        if (table != null) {
+            final TranspositionTable.Bound bound = best <= originalAlpha
+                    ? TranspositionTable.Bound.UPPER
+                    : best >= beta ? TranspositionTable.Bound.LOWER
+                            : TranspositionTable.Bound.EXACT;
+            table.store(key, Math.min(depth, TranspositionTable.MAX_DEPTH),
+                    bound, toTable(best, ply), getNeighbourIndex(from,
+                            bestMove));
+        }
+        return best;
+    }
+
+    /**
+     * Convert a score to the form stored in the table: forced results
+     * count plies from the stored position rather than from the root.
+     */
+    private static int toTable(final int score, final int ply) {
+        if (score <= LOSS + MAX_PLY) {
+            return score - ply;
+        }
+        if (score >= -LOSS - MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(final int score, final int ply) {
+        if (score <= LOSS + MAX_PLY) {
+            return score + ply;
+        }
+        if (score >= -LOSS - MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * @return The neighbour of cell at an index in its edge list, or -1 if
+     *         the index is out of range.
+     */
+    private int getNeighbour(final int cell, final int index) {
+        final int edge = topology.getEdgeStart(cell) + index;
+        if (index < 0 || edge >= topology.getEdgeEnd(cell)) {
+            return -1;
+        }
+        return topology.getNeighbourAt(edge);
+    }
+
+    /**
+     * @return The index of neighbour in the edge list of cell, or -1.
+     */
+    private int getNeighbourIndex(final int cell, final int neighbour) {
+        final int start = topology.getEdgeStart(cell);
+        final int end = topology.getEdgeEnd(cell);
+        for (int e = start; e < end; e++) {
+            if (topology.getNeighbourAt(e) == neighbour) {
+                return Math.min(e - start, TranspositionTable.MAX_MOVE_INDEX);
+            }
+        }
+        return -1;
+    }
+
+    private int generateMoves(final int ply) {
+        final int[] list = moves[ply];
+        int count = 0;
+        final int from = cells[toMove];
+        final int end = topology.getEdgeEnd(from);
+        for (int e = topology.getEdgeStart(from); e < end; e++) {
+            final int next = topology.getNeighbourAt(e);
+            if (!blocked.get(next)) {
+                list[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Give each move an ordering score: the principal variation move
+     * first, then the table move, then the killers, then by history.
+     */
+    private void orderMoves(final int ply, final int count,
+            final int tableMove) {
+        final int[] list = moves[ply];
+        final int[] scores = orderScores[ply];
+        final boolean onPv = followPv && ply < previousPv.length;
+        if (!onPv) {
+            followPv = false;
+        }
+        for (int i = 0; i < count; i++) {
+            final int move = list[i];
+            if (onPv && move == previousPv[ply]) {
+                scores[i] = Integer.MAX_VALUE;
+            } else if (move == tableMove) {
+                scores[i] = Integer.MAX_VALUE - 1;
+            } else if (move == killers[ply][0]) {
+                scores[i] = Integer.MAX_VALUE - 2;
+            } else if (move == killers[ply][1]) {
+                scores[i] = Integer.MAX_VALUE - 3;
+            } else {
+                scores[i] = Math.min(history[toMove][move],
+                        Integer.MAX_VALUE - 4);
+            }
+        }
+    }
+
+    /**
+     * Swap the best-ordered of the remaining moves into position i. Only the
+     * first move of a node at ply keeps following the principal variation.
+     */
+    private void pickMove(final int ply, final int i, final int count) {
+        final int[] list = moves[ply];
+        final int[] scores = orderScores[ply];
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            final int move = list[i];
+            list[i] = list[best];
+            list[best] = move;
+            final int score = scores[i];
+            scores[i] = scores[best];
+            scores[best] = score;
+        }
+        if (i > 0) {
+            followPv = false;
+        }
+    }
+
+    private int firstMove() {
+        return generateMoves(0) == 0 ? -1 : moves[0][0];
+    }
+
+    private void play(final int cell) {
+        blocked.set(cell);
+        blockedKey ^= keys.getUnavailableKey(cell);
+        playerKey ^= keys.getPlayerKey(toMove, cells[toMove])
+                ^ keys.getPlayerKey(toMove, cell) ^ keys.getSideToMoveKey();
+        cells[toMove] = cell;
+        toMove = 1 - toMove;
+    }
+
+    private void undo(final int from) {
+        toMove = 1 - toMove;
+        blocked.clear(cells[toMove]);
+        blockedKey ^= keys.getUnavailableKey(cells[toMove]);
+        playerKey ^= keys.getPlayerKey(toMove, cells[toMove])
+                ^ keys.getPlayerKey(toMove, from) ^ keys.getSideToMoveKey();
+        cells[toMove] = from;
+    }
+}
@@ -0,0 +1,144 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SearchEngineTest {
+
+    /**
+     * Whether the player to move wins with best play, by exhaustive search.
+     */
+    private static boolean wins(Board board, int[] cells, int toMove) {
+        Topology topology = board.getTopology();
+        int from = cells[toMove];
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            int next = topology.getNeighbourAt(e);
+            if (board.getStateAt(next) != Board.LocationState.AVAILABLE) {
+                continue;
+            }
+            board.makeMove(next);
+            cells[toMove] = next;
+            boolean opponentWins = wins(board, cells, 1 - toMove);
+            cells[toMove] = from;
+            board.unmakeMove();
+            if (!opponentWins) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Board randomBoard(int dimension, int first, int second,
+            double density, long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(dimension);
+        for (int cell = 0; cell < dimension * dimension; cell++) {
+            if (cell != first && cell != second
+                    && random.nextDouble() < density) {
+                board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+            }
+        }
+        board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+        return board;
+    }
+
+    @Test
+    public void testSolvesSmallBoards() {
+        for (int seed = 0; seed < 30; seed++) {
+            Board board = randomBoard(4, 0, 15, 0.2, seed);
+            boolean expected = wins(board, new int[] { 0, 15 }, 0);
+            SearchEngine engine = new SearchEngine(board);
+            int move = engine.search(0, 15, 0, SearchEngine.MAX_PLY,
+                    Long.MAX_VALUE, 10000);
+            int score = engine.getScore();
+            assertTrue(Math.abs(score) >= -SearchEngine.LOSS
+                    - SearchEngine.MAX_PLY);
+            assertEquals("seed " + seed, expected, score > 0);
+            if (move >= 0) {
+                /* The chosen move keeps the result. */
+                board.makeMove(move);
+                assertEquals(expected, !wins(board, new int[] { move, 15 }, 1));
+                board.unmakeMove();
+            }
+        }
+    }
+
+    @Test
+    public void testSolvesSmallBoardsWithSharedTable() {
+        TranspositionTable table = new TranspositionTable(1);
+        for (int seed = 0; seed < 30; seed++) {
+            Board board = randomBoard(4, 3, 12, 0.15, seed);
+            boolean expected = wins(board, new int[] { 3, 12 }, 1);
+            SearchEngine engine = new SearchEngine(board);
+            engine.setTranspositionTable(table);
+            int move = engine.search(3, 12, 1, SearchEngine.MAX_PLY,
+                    Long.MAX_VALUE, 10000);
+            assertEquals("seed " + seed, expected, engine.getScore() > 0);
+            /* A second search is answered from the table. */
+            long nodes = engine.getNodeCount();
+            assertEquals(move, engine.search(3, 12, 1, SearchEngine.MAX_PLY,
+                    Long.MAX_VALUE, 10000));
+            assertEquals(expected, engine.getScore() > 0);
+            assertTrue(engine.getNodeCount() <= nodes);
+        }
+    }
+
+    @Test
+    public void testRestoresBoard() {
+        Board board = randomBoard(9, 4, 76, 0.15, 1);
+        long key = board.getZobristKey();
+        int logSize = board.getMoveLog().size();
+        SearchEngine engine = new SearchEngine(board);
+        int move = engine.search(4, 76, 1, 6, Long.MAX_VALUE, 10000);
+        assertTrue(board.isMoveLegal(76, move));
+        assertEquals(key, board.getZobristKey());
+        assertEquals(logSize, board.getMoveLog().size());
+        assertEquals(0, board.getUndoDepth());
+        assertEquals(6, engine.getCompletedDepth());
+        int[] line = engine.getPrincipalVariation();
+        assertEquals(move, line[0]);
+        assertTrue(line.length <= 6);
+    }
+
+    @Test
+    public void testBoardNeverChangesDuringSearch() throws Exception {
+        final Board board = randomBoard(15, 7, 217, 0.1, 2);
+        final long key = board.getZobristKey();
+        final long available = board.countAvailable();
+        final int logSize = board.getMoveLog().size();
+        final SearchEngine engine = new SearchEngine(board);
+        Thread searcher = new Thread() {
+
+            public void run() {
+                engine.search(7, 217, 0, SearchEngine.MAX_PLY, Long.MAX_VALUE,
+                        300);
+            }
+        };
+        searcher.start();
+        while (searcher.isAlive()) {
+            assertEquals(key, board.getZobristKey());
+            assertEquals(available, board.countAvailable());
+            assertEquals(0, board.getUndoDepth());
+        }
+        searcher.join();
+        assertTrue(engine.getNodeCount() > 0);
+        assertEquals(logSize, board.getMoveLog().size());
+    }
+
+    @Test
+    public void testNodeBudgetLimitsSearch() {
+        Board board = new Board(15);
+        board.setStateAt(7, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(7 + 14 * 15, Board.LocationState.UNAVAILABLE);
+        SearchEngine engine = new SearchEngine(board);
+        int move = engine.search(7, 7 + 14 * 15, 0, SearchEngine.MAX_PLY,
+                500, 10000);
+        assertTrue(board.isMoveLegal(7, move));
+        assertTrue(engine.getNodeCount() <= 501);
+        assertTrue(engine.getCompletedDepth() > 0);
+        assertTrue(engine.getNodesPerSecond() > 0);
+        assertEquals(0, board.getUndoDepth());
+    }
+}
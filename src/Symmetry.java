@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The eight symmetries of a square board: rotations and reflections. A
+ * position and its image under any symmetry play identically, so caches,
+ * opening books and tablebases can store one canonical representative and
+ * map moves back through the inverse symmetry.
+ *
+ * Each symmetry maps (x, y) on a board with maximum coordinate m = dimension
+ * - 1 to (a*x + b*y + c*m, d*x + e*y + f*m) for fixed integer coefficients,
+ * so the same formulas with m = 0 map direction vectors.
+ */
+public enum Symmetry {
+
+    IDENTITY(0, "Identity"),
+    ROTATE_90(1, "Rotate a quarter turn"),
+    ROTATE_180(2, "Rotate a half turn"),
+    ROTATE_270(3, "Rotate three quarter turns"),
+    MIRROR_X(4, "Mirror East/West"),
+    MIRROR_Y(5, "Mirror North/South"),
+    TRANSPOSE(6, "Reflect in the main diagonal"),
+    ANTI_TRANSPOSE(7, "Reflect in the anti-diagonal");
+
+    private final int ID;
+    private final String text;
+
+    private static final List<Symmetry> ALL =
+            Collections.unmodifiableList(new ArrayList<Symmetry>(
+                    Arrays.asList(values())));
+    private static final List<Symmetry> IDENTITY_ONLY =
+            Collections.singletonList(IDENTITY);
+
+    private Symmetry(final int ID, final String text) {
+        this.ID = ID;
+        this.text = text;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Enum#toString()
+     */
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    /**
+     * Get the first coordinate of the image of a point.
+     *
+     * @param x The first coordinate.
+     * @param y The second coordinate.
+     * @param max The largest coordinate on the board, dimension - 1.
+     * @return The first coordinate of the image.
+     */
+    public int applyX(final int x, final int y, final int max) {
+        switch (this) {
+        case ROTATE_90:
+        case ANTI_TRANSPOSE:
+            return max - y;
+        case ROTATE_180:
+        case MIRROR_X:
+            return max - x;
+        case ROTATE_270:
+        case TRANSPOSE:
+            return y;
+        default:
+            return x;
+        }
+    }
+
+    /**
+     * Get the second coordinate of the image of a point.
+     *
+     * @param x The first coordinate.
+     * @param y The second coordinate.
+     * @param max The largest coordinate on the board, dimension - 1.
+     * @return The second coordinate of the image.
+     */
+    public int applyY(final int x, final int y, final int max) {
+        switch (this) {
+        case ROTATE_90:
+        case TRANSPOSE:
+            return x;
+        case ROTATE_180:
+        case MIRROR_Y:
+            return max - y;
+        case ROTATE_270:
+        case ANTI_TRANSPOSE:
+            return max - x;
+        default:
+            return y;
+        }
+    }
+
+    /**
+     * Get the image of a cell.
+     *
+     * @requires cell in [0, dimension*dimension - 1].
+     * @param cell The index x + y*dimension of the cell.
+     * @param dimension The dimension of the board.
+     * @return The index of the image cell.
+     */
+    public int apply(final int cell, final int dimension) {
+        final int x = cell % dimension;
+        final int y = cell / dimension;
+        return applyX(x, y, dimension - 1)
+                + applyY(x, y, dimension - 1) * dimension;
+    }
+
+    /**
+     * Get the image of a location.
+     *
+     * @param location A location bounded by dimension - 1.
+     * @return The image location, with the same bound.
+     */
+    public Location apply(final Location location) {
+        final int max = location.getUpperBound();
+        final int x = location.getCoordinate(Location.Coordinate.FIRST);
+        final int y = location.getCoordinate(Location.Coordinate.SECOND);
+        return Location.of(applyX(x, y, max), applyY(x, y, max), max);
+    }
+
+    /**
+     * Get the image of a direction.
+     *
+     * @param direction A direction.
+     * @return The direction a step in the given direction maps to.
+     */
+    public Direction apply(final Direction direction) {
+        int dx = 0;
+        int dy = 0;
+        switch (direction) {
+        case NORTH:
+            dy = 1;
+            break;
+        case SOUTH:
+            dy = -1;
+            break;
+        case EAST:
+            dx = 1;
+            break;
+        case WEST:
+            dx = -1;
+            break;
+        default:
+            return Direction.NOT_A_DIRECTION;
+        }
+        final int x = applyX(dx, dy, 0);
+        final int y = applyY(dx, dy, 0);
+        if (y == 1) {
+            return Direction.NORTH;
+        }
+        if (y == -1) {
+            return Direction.SOUTH;
+        }
+        return x == 1 ? Direction.EAST : Direction.WEST;
+    }
+
+    /**
+     * Get the image of a set of cells.
+     *
+     * @param cells The cells of a board.
+     * @return A new BitBoard holding the image of every cell.
+     */
+    public BitBoard apply(final BitBoard cells) {
+        final int dimension = cells.getDimension();
+        BitBoard image = new BitBoard(dimension);
+        for (int cell = cells.nextSetBit(0); cell >= 0;
+                cell = cells.nextSetBit(cell + 1)) {
+            image.set(apply(cell, dimension));
+        }
+        return image;
+    }
+
+    /**
+     * Get the symmetry that undoes this one.
+     *
+     * @return The inverse symmetry.
+     */
+    public Symmetry inverse() {
+        switch (this) {
+        case ROTATE_90:
+            return ROTATE_270;
+        case ROTATE_270:
+            return ROTATE_90;
+        default:
+            return this;
+        }
+    }
+
+    /**
+     * Get the symmetries that map a topology onto itself, edges included.
+     *
+     * @param topology A cell graph, or null for the implicit square grid of
+     *        a TILED board.
+     * @return An unmodifiable list of the symmetries, IDENTITY first.
+     */
+    public static List<Symmetry> of(final Topology topology) {
+        if (topology == null) {
+            return ALL;
+        }
+        switch (topology.getKind()) {
+        case SQUARE:
+        case TORUS:
+            return ALL;
+        case MASKED:
+            BitBoard blocked = topology.getBlockedCells();
+            List<Symmetry> symmetries = new ArrayList<Symmetry>();
+            for (Symmetry symmetry : values()) {
+                if (symmetry.apply(blocked).equals(blocked)) {
+                    symmetries.add(symmetry);
+                }
+            }
+            return Collections.unmodifiableList(symmetries);
+        default:
+            return IDENTITY_ONLY;
+        }
+    }
+}
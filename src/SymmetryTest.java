@@ -0,0 +1,108 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SymmetryTest {
+
+    private static final int DIMENSION = 6;
+
+    @Test
+    public void testInverse() {
+        for (Symmetry symmetry : Symmetry.values()) {
+            for (int cell = 0; cell < DIMENSION * DIMENSION; cell++) {
+                int image = symmetry.apply(cell, DIMENSION);
+                assertEquals(cell, symmetry.inverse().apply(image, DIMENSION));
+            }
+        }
+    }
+
+    @Test
+    public void testDirectionsFollowCells() {
+        Location centre = Location.of(2, 3, DIMENSION - 1);
+        Direction[] directions = { Direction.NORTH, Direction.SOUTH,
+                Direction.EAST, Direction.WEST };
+        for (Symmetry symmetry : Symmetry.values()) {
+            for (Direction direction : directions) {
+                Location image = symmetry.apply(centre.cloneOffset(direction));
+                assertEquals(symmetry + " " + direction, image,
+                        symmetry.apply(centre).cloneOffset(
+                                symmetry.apply(direction)));
+            }
+        }
+    }
+
+    @Test
+    public void testBoardKeysMatchImages() {
+        Random random = new Random(16);
+        Board board = new Board(Topology.square(DIMENSION));
+        Board tiled = new Board(DIMENSION, Board.Storage.TILED);
+        /* The first round computes the keys from the cells, the second
+         * checks that they then follow changes. */
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 12; i++) {
+                int cell = random.nextInt(DIMENSION * DIMENSION);
+                board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+                tiled.setStateAt(board.getLocationOf(cell),
+                        Board.LocationState.UNAVAILABLE);
+            }
+            BitBoard unavailable = board.getUnavailableCells();
+            for (Symmetry symmetry : Symmetry.values()) {
+                Board image = new Board(Topology.square(DIMENSION));
+                BitBoard cells = symmetry.apply(unavailable);
+                for (int cell = cells.nextSetBit(0); cell >= 0;
+                        cell = cells.nextSetBit(cell + 1)) {
+                    image.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+                }
+                assertEquals(symmetry.toString(), image.getZobristKey(),
+                        board.getZobristKey(symmetry));
+                assertEquals(symmetry.toString(), image.getZobristKey(),
+                        tiled.getZobristKey(symmetry));
+            }
+        }
+    }
+
+    @Test
+    public void testMirroredGamesShareCanonicalKey() {
+        /* The default start: centre top against centre bottom. */
+        Game east = new Game(Game.Mode.TWO_PLAYER, 9, "P1", "P2");
+        Game west = new Game(Game.Mode.TWO_PLAYER, 9, "P1", "P2");
+        for (Game game : new Game[] { east, west }) {
+            game.setHeadless(true);
+            game.begin(Location.of(4, 8, 8), Location.of(4, 0, 8));
+        }
+        assertEquals(east.getCanonicalPositionKey(),
+                west.getCanonicalPositionKey());
+
+        assertTrue(east.requestMove(5 + 8 * 9));
+        assertTrue(west.requestMove(3 + 8 * 9));
+        assertTrue(east.getPositionKey() != west.getPositionKey());
+        assertEquals(east.getCanonicalPositionKey(),
+                west.getCanonicalPositionKey());
+        /* Both canonical forms put P1 on the same cell. */
+        assertEquals(east.getCanonicalSymmetry().apply(Location.of(5, 8, 8)),
+                west.getCanonicalSymmetry().apply(Location.of(3, 8, 8)));
+
+        assertTrue(east.requestMove(4 + 1 * 9));
+        assertTrue(west.requestMove(5 + 0 * 9));
+        assertTrue(east.getCanonicalPositionKey()
+                != west.getCanonicalPositionKey());
+    }
+
+    @Test
+    public void testSymmetriesOfTopologies() {
+        assertEquals(8, new Board(Topology.square(5)).getSymmetries().size());
+        assertEquals(8, new Board(Topology.torus(4)).getSymmetries().size());
+        assertEquals(1,
+                new Board(Topology.hexagonal(5)).getSymmetries().size());
+
+        BitBoard centre = new BitBoard(5);
+        centre.set(2 + 2 * 5);
+        assertEquals(8, Symmetry.of(Topology.masked(centre)).size());
+        BitBoard corner = new BitBoard(5);
+        corner.set(0);
+        /* Only the identity and the main diagonal fix a corner. */
+        assertEquals(2, Symmetry.of(Topology.masked(corner)).size());
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped endgame tablebase for one small board dimension, written
+ * by TablebaseGenerator. Each entry gives the result of a position with
+ * perfect play: whether the side to move wins, and in how many moves the
+ * game ends when the winner hurries and the loser holds out.
+ *
+ * Positions on boards of up to 7 by 7 cells are encoded exactly in one
+ * long: the unavailable cells in the low 49 bits, player 1's cell in the
+ * next 6, player 2's cell in the next 6, and the side to move above them.
+ *
+ * File layout, big-endian:
+ * MAGIC (int), dimension (int), capacity (int), entry count (int), then
+ * capacity keys (long) and capacity entries (byte), as an open-addressed
+ * table with linear probing from slot mix(key) & (capacity - 1). Key 0 marks
+ * an empty slot; it is never a position, since both player cells are
+ * unavailable.
+ *
+ * Entry encoding: (distance << 1) | (side to move wins ? 1 : 0).
+ */
+public final class Tablebase {
+
+    /** Identifies tablebase files. */
+    public static final int MAGIC = 0x54424C31;
+    /** Largest dimension whose positions fit the encoding. */
+    public static final int MAX_DIMENSION = 7;
+
+    static final int HEADER_BYTES = 16;
+
+    private static final int CELL_BITS = 6;
+    private static final int FIRST_SHIFT = 49;
+    private static final int SECOND_SHIFT = FIRST_SHIFT + CELL_BITS;
+    private static final int SIDE_SHIFT = SECOND_SHIFT + CELL_BITS;
+
+    private final MappedByteBuffer buffer;
+    private final int dimension;
+    private final int capacity;
+    private final int entryCount;
+
+    private Tablebase(final MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new InvalidStateException("Not a tablebase file.");
+        }
+        this.dimension = buffer.getInt(4);
+        this.capacity = buffer.getInt(8);
+        this.entryCount = buffer.getInt(12);
+    }
+
+    /**
+     * Map a tablebase file into memory.
+     *
+     * @param path The file written by TablebaseGenerator.
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidStateException (unchecked) if the file is not a
+     *         tablebase.
+     * @return The tablebase.
+     */
+    public static Tablebase open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new Tablebase(buffer);
+        }
+    }
+
+    /**
+     * Get the dimension of the boards this tablebase covers.
+     *
+     * @return The board dimension.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Get the number of positions stored.
+     *
+     * @return The entry count.
+     */
+    public int getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Look up the board's current position.
+     *
+     * @requires board has this tablebase's dimension and a SQUARE topology.
+     * @param board The board.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @return The entry, or -1 if the position is not in the tablebase.
+     */
+    public int probe(final Board board, final int firstCell,
+            final int secondCell, final int playerToMove) {
+        if (board.getDimension() != dimension) {
+            return -1;
+        }
+        return probe(encode(board.getUnavailableWord(0),
+                firstCell, secondCell, playerToMove));
+    }
+
+    /**
+     * Look up an encoded position in O(1) expected time.
+     *
+     * @param key The position, as produced by encode.
+     * @return The entry, or -1 if the position is not in the tablebase.
+     */
+    public int probe(final long key) {
+        final int mask = capacity - 1;
+        int slot = (int) ZobristKeys.mix(key) & mask;
+        while (true) {
+            final long stored = buffer.getLong(HEADER_BYTES + 8 * slot);
+            if (stored == 0) {
+                return -1;
+            }
+            if (stored == key) {
+                return buffer.get(HEADER_BYTES + 8 * capacity + slot) & 0xFF;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Encode a position.
+     *
+     * @requires The board has at most 49 cells, unavailable holds its
+     *           unavailable cells and both player cells are among them.
+     * @param unavailable The unavailable cells, one bit per cell index.
+     * @param firstCell The cell of player 1.
+     * @param secondCell The cell of player 2.
+     * @param playerToMove The index of the player who moves next.
+     * @return The key of the position.
+     */
+    public static long encode(final long unavailable, final int firstCell,
+            final int secondCell, final int playerToMove) {
+        return unavailable | ((long) firstCell << FIRST_SHIFT)
+                | ((long) secondCell << SECOND_SHIFT)
+                | ((long) playerToMove << SIDE_SHIFT);
+    }
+
+    /**
+     * @return The unavailable cells of an encoded position.
+     */
+    static long getUnavailable(final long key) {
+        return key & ((1L << FIRST_SHIFT) - 1);
+    }
+
+    /**
+     * @return The cell of a player in an encoded position.
+     */
+    static int getCell(final long key, final int player) {
+        final int shift = player == 0 ? FIRST_SHIFT : SECOND_SHIFT;
+        return (int) (key >>> shift) & ((1 << CELL_BITS) - 1);
+    }
+
+    /**
+     * @return The player to move in an encoded position.
+     */
+    static int getPlayerToMove(final long key) {
+        return (int) (key >>> SIDE_SHIFT) & 1;
+    }
+
+    /**
+     * Check whether an entry is a win for the side to move.
+     *
+     * @param entry An entry returned by probe.
+     * @return true if the side to move wins.
+     */
+    public static boolean isWin(final int entry) {
+        return (entry & 1) != 0;
+    }
+
+    /**
+     * Get the number of moves left in a position with perfect play.
+     *
+     * @param entry An entry returned by probe.
+     * @return The number of moves both players make before the loser is
+     *         stuck.
+     */
+    public static int getDistance(final int entry) {
+        return entry >>> 1;
+    }
+}
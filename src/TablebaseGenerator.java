@@ -0,0 +1,256 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline generator of Tablebase files.
+ *
+ * The key encoding covers boards of up to Tablebase.MAX_DIMENSION, but the
+ * positions are held in one in-memory table of at most MAX_POSITIONS
+ * entries, about 300 MB at its largest. That is enough for every start pair
+ * on 5 by 5 (about 13.1 million positions) or one start pair on 6 by 6
+ * (about 10.4 million); all starts on 6 by 6, or any 7 by 7 start, stop
+ * with an InvalidStateException once the limit is reached.
+ *
+ * Positions are enumerated forwards from the chosen start cells, and every
+ * position is solved once all the positions it leads to are solved. Cells
+ * only ever become unavailable, so the positions form a DAG layered by the
+ * number of unavailable cells, and solving them in post-order is retrograde
+ * analysis: every result is derived from results one layer deeper, starting
+ * from the positions where the side to move is stuck.
+ *
+ * Usage: java TablebaseGenerator dimension file [p1x p1y p2x p2y]
+ * Without start cells, every pair of distinct start cells is enumerated.
+ */
+public final class TablebaseGenerator {
+
+    private static final double MAX_LOAD = 0.5;
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    /** The largest number of positions one generator can solve. */
+    public static final int MAX_POSITIONS = (int) (MAX_CAPACITY * MAX_LOAD);
+
+    private final int dimension;
+    private final Topology topology;
+    private final int maxCapacity;
+
+    /* Open-addressed map from position key to entry. */
+    private long[] keys = new long[1 << 12];
+    private byte[] entries = new byte[1 << 12];
+    private int size = 0;
+
+    /**
+     * Create a generator for a board dimension.
+     *
+     * @requires dimension in [1, Tablebase.MAX_DIMENSION].
+     * @param dimension The dimension of the board along one edge.
+     * @throws InvalidStateException (unchecked) if the dimension is out of
+     *         range.
+     */
+    public TablebaseGenerator(final int dimension) {
+        this(dimension, MAX_CAPACITY);
+    }
+
+    /**
+     * Create a generator whose table may grow to at most maxCapacity slots,
+     * to test the limit without solving millions of positions.
+     */
+    TablebaseGenerator(final int dimension, final int maxCapacity) {
+        if (dimension < 1 || dimension > Tablebase.MAX_DIMENSION) {
+            throw new InvalidStateException(
+                    "Tablebases cover dimensions up to "
+                            + Tablebase.MAX_DIMENSION + ".");
+        }
+        this.dimension = dimension;
+        this.topology = Topology.square(dimension);
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Solve every position reachable from one pair of start cells, with
+     * player 1 to move.
+     *
+     * @requires firstCell != secondCell, both in [0, dimension^2 - 1].
+     * @param firstCell The start cell of player 1.
+     * @param secondCell The start cell of player 2.
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if more than MAX_POSITIONS
+     *         positions would be solved in all.
+     * @return The entry of the start position.
+     */
+    public int addStart(final int firstCell, final int secondCell) {
+        long unavailable = (1L << firstCell) | (1L << secondCell);
+        return solve(Tablebase.encode(unavailable, firstCell, secondCell, 0));
+    }
+
+    /**
+     * Solve every position reachable from any pair of distinct start cells.
+     *
+     * @modifies this
+     * @throws InvalidStateException (unchecked) if more than MAX_POSITIONS
+     *         positions would be solved in all.
+     */
+    public void addAllStarts() {
+        final int cells = dimension * dimension;
+        for (int first = 0; first < cells; first++) {
+            for (int second = 0; second < cells; second++) {
+                if (first != second) {
+                    addStart(first, second);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of positions solved so far.
+     *
+     * @return The number of positions.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Write the solved positions in the Tablebase file format. The
+     * in-memory table already has the file's layout, so it is written as
+     * it is.
+     *
+     * @param path The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(dimension);
+            out.writeInt(keys.length);
+            out.writeInt(size);
+            for (long key : keys) {
+                out.writeLong(key);
+            }
+            out.write(entries);
+        }
+    }
+
+    /**
+     * Solve a position and everything reachable from it.
+     *
+     * @return The entry of the position.
+     */
+    private int solve(final long key) {
+        int stored = get(key);
+        if (stored >= 0) {
+            return stored;
+        }
+
+        final long unavailable = Tablebase.getUnavailable(key);
+        final int toMove = Tablebase.getPlayerToMove(key);
+        final int[] cells = { Tablebase.getCell(key, 0),
+                Tablebase.getCell(key, 1) };
+        final int from = cells[toMove];
+
+        /* Win as fast as possible; if lost, hold out as long as possible. */
+        int fastestWin = Integer.MAX_VALUE;
+        int slowestLoss = -1;
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            final int next = topology.getNeighbourAt(e);
+            if ((unavailable & (1L << next)) != 0) {
+                continue;
+            }
+            cells[toMove] = next;
+            final int child = solve(Tablebase.encode(unavailable | (1L << next),
+                    cells[0], cells[1], 1 - toMove));
+            cells[toMove] = from;
+            final int distance = Tablebase.getDistance(child) + 1;
+            if (Tablebase.isWin(child)) {
+                slowestLoss = Math.max(slowestLoss, distance);
+            } else {
+                fastestWin = Math.min(fastestWin, distance);
+            }
+        }
+
+        int entry;
+        if (fastestWin != Integer.MAX_VALUE) {
+            entry = (fastestWin << 1) | 1;
+        } else {
+            entry = Math.max(slowestLoss, 0) << 1;
+        }
+        put(key, entry);
+        return entry;
+    }
+
+    private int get(final long key) {
+        int slot = (int) ZobristKeys.mix(key) & (keys.length - 1);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return entries[slot] & 0xFF;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return -1;
+    }
+
+    private void put(final long key, final int entry) {
+        if (size + 1 > keys.length * MAX_LOAD) {
+            if (keys.length >= maxCapacity) {
+                throw new InvalidStateException("Tablebase generation "
+                        + "exceeds " + (int) (maxCapacity * MAX_LOAD)
+                        + " positions; use a smaller board or fewer "
+                        + "start cells.");
+            }
+            grow();
+        }
+        int slot = (int) ZobristKeys.mix(key) & (keys.length - 1);
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        entries[slot] = (byte) entry;
+        size++;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[] oldEntries = entries;
+        keys = new long[oldKeys.length * 2];
+        entries = new byte[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldEntries[i] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Generate a tablebase file from the command line.
+     *
+     * @param args dimension, output file, and optionally the start
+     *        coordinates of player 1 and player 2.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2 && args.length != 6) {
+            System.err.println(
+                    "Usage: TablebaseGenerator dimension file [p1x p1y p2x p2y]");
+            return;
+        }
+        final int dimension = Integer.parseInt(args[0]);
+        TablebaseGenerator generator = new TablebaseGenerator(dimension);
+        if (args.length == 6) {
+            generator.addStart(
+                    Integer.parseInt(args[2])
+                            + Integer.parseInt(args[3]) * dimension,
+                    Integer.parseInt(args[4])
+                            + Integer.parseInt(args[5]) * dimension);
+        } else {
+            generator.addAllStarts();
+        }
+        generator.write(Paths.get(args[1]));
+        System.out.println(generator.size() + " positions written to "
+                + args[1]);
+    }
+}
@@ -0,0 +1,108 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class TablebaseTest {
+
+    /**
+     * Decide a position by plain minimax.
+     *
+     * @return true if the player to move wins.
+     */
+    private static boolean wins(long unavailable, int[] cells, int toMove,
+            Topology topology) {
+        int from = cells[toMove];
+        for (int e = topology.getEdgeStart(from); e < topology.getEdgeEnd(from); e++) {
+            int next = topology.getNeighbourAt(e);
+            if ((unavailable & (1L << next)) != 0) {
+                continue;
+            }
+            cells[toMove] = next;
+            boolean opponentWins = wins(unavailable | (1L << next), cells,
+                    1 - toMove, topology);
+            cells[toMove] = from;
+            if (!opponentWins) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testGeneratedFileMatchesMinimax() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(4);
+        int start = generator.addStart(1, 14);
+        Path file = Files.createTempFile("tablebase", ".tb");
+        try {
+            generator.write(file);
+            Tablebase tablebase = Tablebase.open(file);
+            assertEquals(4, tablebase.getDimension());
+            assertEquals(generator.size(), tablebase.getEntryCount());
+
+            long unavailable = (1L << 1) | (1L << 14);
+            assertEquals(start, tablebase.probe(
+                    Tablebase.encode(unavailable, 1, 14, 0)));
+            assertEquals(wins(unavailable, new int[] { 1, 14 }, 0,
+                    Topology.square(4)), Tablebase.isWin(start));
+
+            /* A position after a few moves. */
+            unavailable |= (1L << 2) | (1L << 10) | (1L << 6);
+            int entry = tablebase.probe(Tablebase.encode(unavailable, 6, 10, 1));
+            assertTrue(entry >= 0);
+            assertEquals(wins(unavailable, new int[] { 6, 10 }, 1,
+                    Topology.square(4)), Tablebase.isWin(entry));
+
+            assertEquals(-1, tablebase.probe(Tablebase.encode(
+                    (1L << 0) | (1L << 15), 0, 15, 0)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStuckPositionIsLoss() {
+        TablebaseGenerator generator = new TablebaseGenerator(2);
+        int entry = generator.addStart(0, 3);
+        /* 2 by 2: P1 moves, P2 moves, P1 is stuck. */
+        assertFalse(Tablebase.isWin(entry));
+        assertEquals(2, Tablebase.getDistance(entry));
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testDimensionTooLarge() {
+        new TablebaseGenerator(Tablebase.MAX_DIMENSION + 1);
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testTooManyPositions() {
+        /* A 5 by 5 game from the centres of opposite edges reaches about
+         * 75000 positions, far more than 4096. */
+        new TablebaseGenerator(5, 1 << 13).addStart(2, 22);
+    }
+
+    @Test
+    public void testGameUsesTablebase() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(3);
+        generator.addStart(1, 7);
+        Path file = Files.createTempFile("tablebase", ".tb");
+        try {
+            generator.write(file);
+            Game game = new Game(Game.Mode.TWO_PLAYER, 3, "P1", "P2");
+            game.setHeadless(true);
+            game.setTablebase(Tablebase.open(file));
+            game.begin(Location.of(1, 0, 2), Location.of(1, 2, 2));
+
+            assertTrue(game.requestMove(0));
+            boolean secondWins = wins((1L << 0) | (1L << 1) | (1L << 7),
+                    new int[] { 0, 7 }, 1, Topology.square(3));
+            assertEquals(secondWins ? "P2" : "P1", game.getWinner().getName());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
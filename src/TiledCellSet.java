@@ -0,0 +1,196 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A sparse set of cells on a very large square board. The board is split
+ * into tiles of TILE_WIDTH by TILE_HEIGHT cells, each stored one bit per
+ * cell in a single off-heap, page-aligned page. A tile is only allocated
+ * the first time one of its cells is added, so memory grows with the area
+ * that has actually been touched rather than with the board size.
+ *
+ * Abstraction function:
+ * Cell (x,y) is a member of the set iff its tile is allocated and bit
+ * (localX + localY*TILE_WIDTH) of that tile's page is set.
+ *
+ * Invariant:
+ * size is the number of set bits over all allocated tiles.
+ *
+ */
+public class TiledCellSet {
+
+    public static final int PAGE_SIZE   = 4096;
+    public static final int TILE_WIDTH  = 256;
+    public static final int TILE_HEIGHT = PAGE_SIZE * 8 / TILE_WIDTH;
+
+    private static final int TILE_X_SHIFT = 8;
+    private static final int TILE_Y_SHIFT = 7;
+    private static final int PAGES_PER_SLAB = 64;
+    /* One page more than is handed out, so the slab can be page-aligned. */
+    public static final int SLAB_BYTES = PAGE_SIZE * (PAGES_PER_SLAB + 1);
+
+    private final int dimension;
+    private final int tilesPerRow;
+    private final ByteBuffer[] tiles;
+
+    private ByteBuffer slab = null;
+    private int nextPageInSlab = PAGES_PER_SLAB;
+    private int allocatedTiles = 0;
+    private long reservedBytes = 0;
+    private long size = 0;
+
+    /**
+     * Create an empty TiledCellSet covering a dimension by dimension board.
+     * No tile memory is allocated until a cell is added.
+     *
+     * @requires dimension is greater than 0.
+     * @param dimension The dimension of the board along one edge.
+     * @throws InvalidStateException (unchecked) if dimension is not greater
+     *         than 0.
+     */
+    public TiledCellSet(final int dimension) {
+        if (dimension <= 0) {
+            throw new InvalidStateException(
+                    "Cannot create tiled set with given dimension.");
+        }
+        this.dimension = dimension;
+        this.tilesPerRow = ((dimension - 1) >>> TILE_X_SHIFT) + 1;
+        int tilesPerColumn = ((dimension - 1) >>> TILE_Y_SHIFT) + 1;
+        this.tiles = new ByteBuffer[tilesPerRow * tilesPerColumn];
+    }
+
+    /**
+     * Get the dimension of the board this set covers.
+     *
+     * @return Dimension of the board.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Check whether a cell is in the set.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @return true if the cell is in the set. false otherwise.
+     */
+    public boolean contains(final int x, final int y) {
+        ByteBuffer tile = tiles[getTileIndex(x, y)];
+        if (tile == null) {
+            return false;
+        }
+        return (tile.getLong(getWordOffset(x, y)) & (1L << x)) != 0;
+    }
+
+    /**
+     * Add a cell to the set, allocating its tile if necessary.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @modifies this
+     */
+    public void add(final int x, final int y) {
+        int tileIndex = getTileIndex(x, y);
+        ByteBuffer tile = tiles[tileIndex];
+        if (tile == null) {
+            tile = allocatePage();
+            tiles[tileIndex] = tile;
+            allocatedTiles++;
+        }
+        int offset = getWordOffset(x, y);
+        long word = tile.getLong(offset);
+        long bit = 1L << x;
+        if ((word & bit) == 0) {
+            tile.putLong(offset, word | bit);
+            size++;
+        }
+    }
+
+    /**
+     * Remove a cell from the set. Never allocates.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @modifies this
+     */
+    public void remove(final int x, final int y) {
+        ByteBuffer tile = tiles[getTileIndex(x, y)];
+        if (tile == null) {
+            return;
+        }
+        int offset = getWordOffset(x, y);
+        long word = tile.getLong(offset);
+        long bit = 1L << x;
+        if ((word & bit) != 0) {
+            tile.putLong(offset, word & ~bit);
+            size--;
+        }
+    }
+
+    /**
+     * Count the cells in the set.
+     *
+     * @return The number of cells in the set.
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Get the number of tiles which have been allocated.
+     *
+     * @return The number of allocated tiles.
+     */
+    public int getAllocatedTileCount() {
+        return this.allocatedTiles;
+    }
+
+    /**
+     * Get the amount of off-heap memory reserved for cell data. Tiles are
+     * carved from slabs, so this counts whole slabs, including pages not yet
+     * handed out and the alignment padding.
+     *
+     * @return The number of bytes in allocated slabs.
+     */
+    public long getAllocatedBytes() {
+        return this.reservedBytes;
+    }
+
+    private int getTileIndex(final int x, final int y) {
+        return (x >>> TILE_X_SHIFT) + (y >>> TILE_Y_SHIFT) * tilesPerRow;
+    }
+
+    /**
+     * Get the byte offset, within a tile, of the word holding a cell. Rows
+     * of a tile are TILE_WIDTH / 64 words long, and the bit within the word
+     * is the low six bits of x.
+     */
+    private int getWordOffset(final int x, final int y) {
+        int localX = x & (TILE_WIDTH - 1);
+        int localY = y & (TILE_HEIGHT - 1);
+        return ((localY * TILE_WIDTH + localX) >>> 6) << 3;
+    }
+
+    /**
+     * Hand out one zeroed, page-aligned page, carving it from a slab of
+     * pages so that alignment padding is paid once per slab.
+     *
+     * @modifies slab, nextPageInSlab, reservedBytes
+     * @return A PAGE_SIZE buffer in native byte order.
+     */
+    private ByteBuffer allocatePage() {
+        if (nextPageInSlab == PAGES_PER_SLAB) {
+            slab = ByteBuffer.allocateDirect(SLAB_BYTES)
+                    .alignedSlice(PAGE_SIZE);
+            reservedBytes += SLAB_BYTES;
+            nextPageInSlab = 0;
+        }
+        ByteBuffer page = slab.slice(nextPageInSlab * PAGE_SIZE, PAGE_SIZE)
+                .order(ByteOrder.nativeOrder());
+        nextPageInSlab++;
+        return page;
+    }
+}
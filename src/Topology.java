@@ -0,0 +1,448 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The cell graph of a board, stored in compressed sparse row (CSR) form.
+ * Every topology lays its cells out on a dimension by dimension grid with
+ * cell index x + y*dimension, so Locations and the game file format work on
+ * all of them; only the edges differ.
+ *
+ * Abstraction function:
+ * The edges leaving cell c are e in [offsets[c], offsets[c+1]). Edge e leads
+ * to cell neighbours[e] in the direction labels[e], and the edge leading back
+ * from that neighbour to c has label reverseLabels[e]. Labels are Direction
+ * IDs for SQUARE, TORUS and MASKED topologies, and HEX_* constants for
+ * HEXAGONAL ones.
+ *
+ * @invariant Topologies are immutable, so the generators share one
+ *            instance per shape among the SHARED_LIMIT shapes used most
+ *            recently.
+ * @invariant Edges of each cell are ordered by ascending label.
+ * @invariant Blocked cells have no edges and no edges lead to them.
+ */
+public final class Topology {
+
+    public enum Kind {
+
+        SQUARE(0, "Square grid with four neighbours."),
+        TORUS(1, "Square grid whose edges wrap around."),
+        HEXAGONAL(2, "Offset-row hexagonal grid with six neighbours."),
+        MASKED(3, "Square grid with obstacle cells removed.");
+
+
+        private final int ID;
+        private final String text;
+
+
+        private Kind(final int ID, final String text) {
+            this.ID = ID;
+            this.text = text;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Enum#toString()
+         */
+        @Override
+        public String toString() {
+            return this.text;
+        }
+
+    }
+
+    public static final int HEX_EAST       = 0;
+    public static final int HEX_WEST       = 1;
+    public static final int HEX_NORTH_EAST = 2;
+    public static final int HEX_NORTH_WEST = 3;
+    public static final int HEX_SOUTH_EAST = 4;
+    public static final int HEX_SOUTH_WEST = 5;
+
+    private static final int NORTH = Direction.NORTH.ordinal();
+    private static final int SOUTH = Direction.SOUTH.ordinal();
+    private static final int EAST  = Direction.EAST.ordinal();
+    private static final int WEST  = Direction.WEST.ordinal();
+
+    /** Most shapes whose topologies are kept for sharing at once. */
+    public static final int SHARED_LIMIT = 16;
+
+    /* Least recently used shapes are dropped first; guarded by SHARED. */
+    private static final Map<ShapeKey, Topology> SHARED =
+            new LinkedHashMap<ShapeKey, Topology>(SHARED_LIMIT, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<ShapeKey, Topology> eldest) {
+                    return size() > SHARED_LIMIT;
+                }
+            };
+
+    private final Kind     kind;
+    private final int      dimension;
+    private final int      cellCount;
+    private final int[]    offsets;
+    private final int[]    neighbours;
+    private final byte[]   labels;
+    private final byte[]   reverseLabels;
+    private final BitBoard blocked;
+    private final int      maxDegree;
+
+    /**
+     * Get the shared square-grid topology of a dimension, where each cell is
+     * joined to its north, south, east and west neighbours on the board.
+     *
+     * @requires dimension is greater than 0.
+     * @param dimension The dimension of the board along one edge.
+     * @return The square topology.
+     */
+    public static Topology square(final int dimension) {
+        return shared(new ShapeKey(Kind.SQUARE, dimension, null));
+    }
+
+    /**
+     * Get the shared toroidal topology of a dimension: a square grid whose
+     * north/south and east/west edges wrap around.
+     *
+     * @requires dimension is at least 3, so that no two edges of a cell
+     *           lead to the same neighbour.
+     * @param dimension The dimension of the board along one edge.
+     * @throws InvalidStateException (unchecked) if dimension is less than 3.
+     * @return The toroidal topology.
+     */
+    public static Topology torus(final int dimension) {
+        if (dimension < 3) {
+            throw new InvalidStateException("A torus needs dimension >= 3.");
+        }
+        return shared(new ShapeKey(Kind.TORUS, dimension, null));
+    }
+
+    /**
+     * Get the shared hexagonal topology of a dimension. Rows are offset by
+     * half a cell, odd rows to the east, giving each cell up to six
+     * neighbours.
+     *
+     * @requires dimension is greater than 0.
+     * @param dimension The dimension of the board along one edge.
+     * @return The hexagonal topology.
+     */
+    public static Topology hexagonal(final int dimension) {
+        return shared(new ShapeKey(Kind.HEXAGONAL, dimension, null));
+    }
+
+    /**
+     * Get the shared topology of a square grid with obstacles. Obstacle
+     * cells have no edges, and boards of this topology start with them
+     * unavailable.
+     *
+     * @requires obstacles is not null.
+     * @param obstacles The set of blocked cells; its dimension is the
+     *        dimension of the topology. It is copied, not retained.
+     * @return The masked topology.
+     */
+    public static Topology masked(final BitBoard obstacles) {
+        return shared(new ShapeKey(Kind.MASKED, obstacles.getDimension(),
+                obstacles.clone()));
+    }
+
+    private static Topology shared(final ShapeKey key) {
+        synchronized (SHARED) {
+            Topology topology = SHARED.get(key);
+            if (topology == null) {
+                topology = new Topology(key.kind, key.dimension, key.blocked);
+                SHARED.put(key, topology);
+            }
+            return topology;
+        }
+    }
+
+    private Topology(final Kind kind, final int dimension, final BitBoard blocked) {
+        if (dimension <= 0 || (long) dimension * dimension > Integer.MAX_VALUE) {
+            throw new InvalidStateException(
+                    "Cannot create topology with given dimension.");
+        }
+        this.kind = kind;
+        this.dimension = dimension;
+        this.cellCount = dimension * dimension;
+        this.blocked = blocked;
+
+        final int[] scratchCells = new int[6];
+        final int[] scratchLabels = new int[6];
+
+        this.offsets = new int[cellCount + 1];
+        for (int cell = 0; cell < cellCount; cell++) {
+            offsets[cell + 1] = offsets[cell]
+                    + generateEdges(cell, scratchCells, scratchLabels);
+        }
+
+        this.neighbours = new int[offsets[cellCount]];
+        this.labels = new byte[offsets[cellCount]];
+        int maxDegree = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int degree = generateEdges(cell, scratchCells, scratchLabels);
+            for (int i = 0; i < degree; i++) {
+                neighbours[offsets[cell] + i] = scratchCells[i];
+                labels[offsets[cell] + i] = (byte) scratchLabels[i];
+            }
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        this.maxDegree = maxDegree;
+
+        this.reverseLabels = new byte[neighbours.length];
+        for (int cell = 0; cell < cellCount; cell++) {
+            for (int e = offsets[cell]; e < offsets[cell + 1]; e++) {
+                int neighbour = neighbours[e];
+                for (int back = offsets[neighbour]; back < offsets[neighbour + 1]; back++) {
+                    if (neighbours[back] == cell) {
+                        reverseLabels[e] = labels[back];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the kind of this topology.
+     *
+     * @return The kind.
+     */
+    public Kind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Get the dimension of the grid the cells are laid out on.
+     *
+     * @return Dimension of the board.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Get the number of cells, including blocked ones.
+     *
+     * @return dimension*dimension.
+     */
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    /**
+     * Check whether edge labels are Direction IDs, so that Direction-based
+     * APIs apply.
+     *
+     * @return true for every kind except HEXAGONAL.
+     */
+    public boolean hasCardinalLabels() {
+        return this.kind != Kind.HEXAGONAL;
+    }
+
+    /**
+     * Get the largest number of neighbours of any cell.
+     *
+     * @return The maximum degree.
+     */
+    public int getMaxDegree() {
+        return this.maxDegree;
+    }
+
+    /**
+     * Get the index of the first edge leaving a cell.
+     *
+     * @requires cell in [0, getCellCount() - 1].
+     * @param cell The index of the cell.
+     * @return The first edge index of the cell.
+     */
+    public int getEdgeStart(final int cell) {
+        return offsets[cell];
+    }
+
+    /**
+     * Get the index one past the last edge leaving a cell.
+     *
+     * @requires cell in [0, getCellCount() - 1].
+     * @param cell The index of the cell.
+     * @return The end edge index of the cell.
+     */
+    public int getEdgeEnd(final int cell) {
+        return offsets[cell + 1];
+    }
+
+    /**
+     * Get the cell an edge leads to.
+     *
+     * @param edge The index of the edge.
+     * @return The index of the neighbouring cell.
+     */
+    public int getNeighbourAt(final int edge) {
+        return neighbours[edge];
+    }
+
+    /**
+     * Get the direction label of an edge.
+     *
+     * @param edge The index of the edge.
+     * @return The label of the edge.
+     */
+    public int getLabelAt(final int edge) {
+        return labels[edge];
+    }
+
+    /**
+     * Get the direction label of the edge leading back along an edge.
+     *
+     * @param edge The index of the edge.
+     * @return The label of the reverse edge.
+     */
+    public int getReverseLabelAt(final int edge) {
+        return reverseLabels[edge];
+    }
+
+    /**
+     * Get the number of neighbours of a cell, regardless of availability.
+     *
+     * @requires cell in [0, getCellCount() - 1].
+     * @param cell The index of the cell.
+     * @return The degree of the cell in the graph.
+     */
+    public int getDegree(final int cell) {
+        return offsets[cell + 1] - offsets[cell];
+    }
+
+    /**
+     * Get the neighbour of a cell in the direction of a label.
+     *
+     * @requires cell in [0, getCellCount() - 1].
+     * @param cell The index of the cell.
+     * @param label The direction label.
+     * @return The index of the neighbour, or -1 if the cell has no edge with
+     *         that label.
+     */
+    public int getNeighbour(final int cell, final int label) {
+        for (int e = offsets[cell]; e < offsets[cell + 1]; e++) {
+            if (labels[e] == label) {
+                return neighbours[e];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether two cells are joined by an edge.
+     *
+     * @requires from in [0, getCellCount() - 1].
+     * @param from The index of the source cell.
+     * @param to The index of the destination cell.
+     * @return true if an edge leads from from to to.
+     */
+    public boolean isNeighbour(final int from, final int to) {
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (neighbours[e] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a cell is an obstacle.
+     *
+     * @requires cell in [0, getCellCount() - 1].
+     * @param cell The index of the cell.
+     * @return true if the cell is blocked by the topology.
+     */
+    public boolean isBlocked(final int cell) {
+        return blocked != null && blocked.get(cell);
+    }
+
+    /**
+     * Get the obstacle cells.
+     *
+     * @return A new BitBoard of blocked cells, empty if there are none.
+     */
+    public BitBoard getBlockedCells() {
+        return blocked != null ? blocked.clone() : new BitBoard(dimension);
+    }
+
+    /**
+     * Write the edges of a cell, in ascending label order, into scratch
+     * arrays.
+     *
+     * @return The number of edges written.
+     */
+    private int generateEdges(final int cell, final int[] cells, final int[] edgeLabels) {
+        if (isBlocked(cell)) {
+            return 0;
+        }
+        final int x = cell % dimension;
+        final int y = cell / dimension;
+        int count = 0;
+        if (kind == Kind.HEXAGONAL) {
+            final int shift = y & 1;
+            count = addEdge(x + 1, y, HEX_EAST, cells, edgeLabels, count);
+            count = addEdge(x - 1, y, HEX_WEST, cells, edgeLabels, count);
+            count = addEdge(x + shift, y + 1, HEX_NORTH_EAST, cells, edgeLabels, count);
+            count = addEdge(x + shift - 1, y + 1, HEX_NORTH_WEST, cells, edgeLabels, count);
+            count = addEdge(x + shift, y - 1, HEX_SOUTH_EAST, cells, edgeLabels, count);
+            count = addEdge(x + shift - 1, y - 1, HEX_SOUTH_WEST, cells, edgeLabels, count);
+        } else if (kind == Kind.TORUS) {
+            final int d = dimension;
+            count = addEdge(x, (y + 1) % d, NORTH, cells, edgeLabels, count);
+            count = addEdge(x, (y + d - 1) % d, SOUTH, cells, edgeLabels, count);
+            count = addEdge((x + 1) % d, y, EAST, cells, edgeLabels, count);
+            count = addEdge((x + d - 1) % d, y, WEST, cells, edgeLabels, count);
+        } else {
+            count = addEdge(x, y + 1, NORTH, cells, edgeLabels, count);
+            count = addEdge(x, y - 1, SOUTH, cells, edgeLabels, count);
+            count = addEdge(x + 1, y, EAST, cells, edgeLabels, count);
+            count = addEdge(x - 1, y, WEST, cells, edgeLabels, count);
+        }
+        return count;
+    }
+
+    private int addEdge(final int x, final int y, final int label,
+            final int[] cells, final int[] edgeLabels, final int count) {
+        if (x < 0 || x >= dimension || y < 0 || y >= dimension) {
+            return count;
+        }
+        final int cell = x + y * dimension;
+        if (isBlocked(cell)) {
+            return count;
+        }
+        cells[count] = cell;
+        edgeLabels[count] = label;
+        return count + 1;
+    }
+
+    /**
+     * Identifies a shape so that equal shapes share one Topology.
+     */
+    private static final class ShapeKey {
+        private final Kind     kind;
+        private final int      dimension;
+        private final BitBoard blocked;
+
+        ShapeKey(final Kind kind, final int dimension, final BitBoard blocked) {
+            this.kind = kind;
+            this.dimension = dimension;
+            this.blocked = blocked;
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            if (!(that instanceof ShapeKey)) {
+                return false;
+            }
+            ShapeKey key = (ShapeKey) that;
+            return kind == key.kind && dimension == key.dimension
+                    && (blocked == null ? key.blocked == null
+                                        : blocked.equals(key.blocked));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * kind.hashCode() + dimension)
+                    + (blocked == null ? 0 : blocked.hashCode());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TopologyTest {
+
+    @Test
+    public void testSquareDegrees() {
+        Topology square = Topology.square(5);
+        assertEquals(2, square.getDegree(0));
+        assertEquals(3, square.getDegree(2));
+        assertEquals(4, square.getDegree(12));
+        assertEquals(7, square.getNeighbour(2, Direction.NORTH.ordinal()));
+        assertEquals(-1, square.getNeighbour(2, Direction.SOUTH.ordinal()));
+    }
+
+    @Test
+    public void testSharedPerShape() {
+        assertSame(Topology.square(6), Topology.square(6));
+        assertSame(Topology.hexagonal(6), Topology.hexagonal(6));
+        assertNotSame(Topology.square(6), Topology.torus(6));
+
+        BitBoard obstacles = new BitBoard(6);
+        obstacles.set(7);
+        assertSame(Topology.masked(obstacles), Topology.masked(obstacles.clone()));
+    }
+
+    @Test
+    public void testSharingIsBounded() {
+        BitBoard obstacles = new BitBoard(6);
+        obstacles.set(8);
+        Topology first = Topology.masked(obstacles);
+        for (int dimension = 1; dimension <= Topology.SHARED_LIMIT; dimension++) {
+            Topology.hexagonal(100 + dimension);
+        }
+        Topology again = Topology.masked(obstacles);
+        assertNotSame(first, again);
+        assertEquals(first.getEdgeEnd(35), again.getEdgeEnd(35));
+    }
+
+    @Test
+    public void testTorusWraps() {
+        Topology torus = Topology.torus(4);
+        for (int cell = 0; cell < torus.getCellCount(); cell++) {
+            assertEquals(4, torus.getDegree(cell));
+        }
+        assertEquals(3, torus.getNeighbour(0, Direction.WEST.ordinal()));
+        assertEquals(12, torus.getNeighbour(0, Direction.SOUTH.ordinal()));
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testTorusTooSmall() {
+        Topology.torus(2);
+    }
+
+    @Test
+    public void testHexagonalNeighbours() {
+        Topology hex = Topology.hexagonal(5);
+        int even = 2 + 2 * 5;
+        int odd = 2 + 1 * 5;
+        assertEquals(6, hex.getDegree(even));
+        assertEquals(6, hex.getDegree(odd));
+        assertEquals(2 + 3 * 5, hex.getNeighbour(even, Topology.HEX_NORTH_EAST));
+        assertEquals(1 + 3 * 5, hex.getNeighbour(even, Topology.HEX_NORTH_WEST));
+        assertEquals(3 + 2 * 5, hex.getNeighbour(odd, Topology.HEX_NORTH_EAST));
+        for (int e = hex.getEdgeStart(even); e < hex.getEdgeEnd(even); e++) {
+            assertTrue(hex.isNeighbour(hex.getNeighbourAt(e), even));
+        }
+    }
+
+    @Test
+    public void testMaskedBoard() {
+        BitBoard obstacles = new BitBoard(5);
+        obstacles.set(11);
+        obstacles.set(13);
+        Board board = new Board(Topology.masked(obstacles));
+
+        assertEquals(Board.LocationState.UNAVAILABLE, board.getStateAt(11));
+        assertEquals(2, board.getDegreeAt(12));
+        assertFalse(board.isMoveLegal(12, 11));
+        assertTrue(board.isMoveLegal(12, 17));
+        assertEquals(23, board.countAvailable());
+    }
+
+    @Test
+    public void testHexagonalBoard() {
+        Board board = new Board(Topology.hexagonal(5));
+        int cell = 2 + 2 * 5;
+        board.setStateAt(cell + 5, Board.LocationState.UNAVAILABLE);
+        assertEquals(5, board.getDegreeAt(cell));
+        assertTrue(board.isMoveLegal(cell, cell + 4));
+        assertFalse(board.isMoveLegal(cell, cell + 6));
+    }
+
+}
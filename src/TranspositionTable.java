@@ -0,0 +1,295 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size table of search results keyed by 64-bit Zobrist position
+ * keys, held off the Java heap so that it costs the garbage collector
+ * nothing however large it is.
+ *
+ * The table may be shared by any number of threads and games without
+ * locking. Each entry is two longs: the packed result, and the key XORed
+ * with it. Both are written and read with opaque accesses, so a reader
+ * that races a writer may see one half of each write; the XOR check then
+ * fails and the read counts as a miss. Results are packed into a single
+ * long by pack and read back with getScore, getDepth, getBound and
+ * getMoveIndex.
+ *
+ * Entries are grouped four to a 64-byte bucket. A store replaces the entry
+ * with the same key if the new result is at least as deep or the old one
+ * is from an earlier search; otherwise it replaces the entry of its bucket
+ * that is shallowest, counting each search since it was stored against it.
+ */
+public final class TranspositionTable {
+
+    public enum Bound {
+
+        EXACT(0, "The score is exact."),
+        LOWER(1, "The score is a lower bound."),
+        UPPER(2, "The score is an upper bound.");
+
+        private final int ID;
+        private final String text;
+
+        private Bound(final int ID, final String text) {
+            this.ID = ID;
+            this.text = text;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Enum#toString()
+         */
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+
+    /** The result of a probe that found nothing. */
+    public static final long MISS = 0;
+
+    /** Deepest depth that can be stored. */
+    public static final int MAX_DEPTH = 255;
+
+    /** Largest move index that can be stored. */
+    public static final int MAX_MOVE_INDEX = 254;
+
+    private static final Bound[] BOUNDS = Bound.values();
+
+    private static final VarHandle LONGS = MethodHandles
+            .byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_SHIFT = 6;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    /* Layout of a packed result. The present bit keeps every result
+     * distinct from MISS. */
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+    private static final int GENERATION_MASK = 63;
+    private static final int MOVE_SHIFT = 48;
+    private static final long PRESENT = 1L << 56;
+
+    /* Each age step counts as this many plies of depth on replacement. */
+    private static final int AGE_WEIGHT = 4;
+
+    private final ByteBuffer[] segments;
+    private final long bucketMask;
+    private final int megabytes;
+    /* Racing increments may be lost, which only delays ageing. */
+    private volatile int generation = 0;
+
+    /**
+     * Create an empty table.
+     *
+     * @requires megabytes is greater than 0.
+     * @param megabytes The size of the table in megabytes; it is rounded
+     *        down to a power of two.
+     * @throws InvalidStateException (unchecked) if megabytes is not
+     *         positive.
+     */
+    public TranspositionTable(final int megabytes) {
+        if (megabytes <= 0) {
+            throw new InvalidStateException(
+                    "Table size must be at least one megabyte.");
+        }
+        final long bytes = Long.highestOneBit((long) megabytes) << 20;
+        this.megabytes = (int) (bytes >>> 20);
+        this.bucketMask = (bytes >>> BUCKET_SHIFT) - 1;
+        final long segmentBytes = Math.min(bytes, 1L << SEGMENT_SHIFT);
+        this.segments = new ByteBuffer[(int) (bytes / segmentBytes)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect((int) segmentBytes)
+                    .order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Get the size of the table.
+     *
+     * @return The size in megabytes, a power of two.
+     */
+    public int getMegabytes() {
+        return this.megabytes;
+    }
+
+    /**
+     * Get the number of results the table can hold.
+     *
+     * @return The number of entries.
+     */
+    public long getCapacity() {
+        return (bucketMask + 1) * BUCKET_ENTRIES;
+    }
+
+    /**
+     * Start a new search, so that results stored by earlier searches are
+     * replaced first.
+     *
+     * @modifies this
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Get the generation stored with new results, which newSearch advances.
+     *
+     * @return The generation, in [0, 63].
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param key The position key.
+     * @return The packed result stored for the key, or MISS.
+     */
+    public long probe(final long key) {
+        final ByteBuffer segment = getSegment(key);
+        final int bucket = getOffset(key);
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            final int offset = bucket + i * ENTRY_BYTES;
+            final long check = (long) LONGS.getOpaque(segment, offset);
+            final long data = (long) LONGS.getOpaque(segment, offset + 8);
+            if (data != MISS && (check ^ data) == key) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Store a search result.
+     *
+     * @requires depth in [0, MAX_DEPTH], moveIndex in [-1, MAX_MOVE_INDEX].
+     * @param key The position key.
+     * @param depth The depth the position was searched to.
+     * @param bound How score relates to the true score.
+     * @param score The score from the side to move.
+     * @param moveIndex The index of the best move among the neighbours of
+     *        the mover's cell, or -1 if there is none.
+     * @modifies this
+     */
+    public void store(final long key, final int depth, final Bound bound,
+            final int score, final int moveIndex) {
+        final ByteBuffer segment = getSegment(key);
+        final int bucket = getOffset(key);
+        final int current = generation;
+        int victim = -1;
+        int victimPriority = Integer.MAX_VALUE;
+        for (int i = 0; i < BUCKET_ENTRIES; i++) {
+            final int offset = bucket + i * ENTRY_BYTES;
+            final long check = (long) LONGS.getOpaque(segment, offset);
+            final long data = (long) LONGS.getOpaque(segment, offset + 8);
+            if (data == MISS) {
+                if (victimPriority > Integer.MIN_VALUE) {
+                    victim = offset;
+                    victimPriority = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+            final int age = (current - getGeneration(data)) & GENERATION_MASK;
+            if ((check ^ data) == key) {
+                if (depth < getDepth(data) && age == 0
+                        && bound != Bound.EXACT) {
+                    return;
+                }
+                victim = offset;
+                break;
+            }
+            final int priority = getDepth(data) - AGE_WEIGHT * age;
+            if (priority < victimPriority) {
+                victim = offset;
+                victimPriority = priority;
+            }
+        }
+        final long data = pack(depth, bound, score, moveIndex, current);
+        LONGS.setOpaque(segment, victim, key ^ data);
+        LONGS.setOpaque(segment, victim + 8, data);
+    }
+
+    /**
+     * Forget every stored result. Must not race with other accesses.
+     *
+     * @modifies this
+     */
+    public void clear() {
+        final byte[] zeros = new byte[1 << 16];
+        for (ByteBuffer segment : segments) {
+            for (int offset = 0; offset < segment.capacity();
+                    offset += zeros.length) {
+                segment.put(offset, zeros, 0,
+                        Math.min(zeros.length, segment.capacity() - offset));
+            }
+        }
+        generation = 0;
+    }
+
+    /**
+     * Pack a result into the form stored in the table.
+     */
+    private static long pack(final int depth, final Bound bound,
+            final int score, final int moveIndex, final int generation) {
+        return (score & 0xFFFFFFFFL)
+                | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound.ID << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT)
+                | ((long) (moveIndex + 1) << MOVE_SHIFT)
+                | PRESENT;
+    }
+
+    /**
+     * @param data A packed result other than MISS.
+     * @return The stored score.
+     */
+    public static int getScore(final long data) {
+        return (int) data;
+    }
+
+    /**
+     * @param data A packed result other than MISS.
+     * @return The stored depth.
+     */
+    public static int getDepth(final long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * @param data A packed result other than MISS.
+     * @return The stored bound.
+     */
+    public static Bound getBound(final long data) {
+        return BOUNDS[(int) (data >>> BOUND_SHIFT) & 3];
+    }
+
+    /**
+     * @param data A packed result other than MISS.
+     * @return The stored move index, or -1 if there is none.
+     */
+    public static int getMoveIndex(final long data) {
+        return ((int) (data >>> MOVE_SHIFT) & 0xFF) - 1;
+    }
+
+    private static int getGeneration(final long data) {
+        return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    private ByteBuffer getSegment(final long key) {
+        return segments[(int) (((key & bucketMask) << BUCKET_SHIFT)
+                >>> SEGMENT_SHIFT)];
+    }
+
+    private int getOffset(final long key) {
+        return (int) (((key & bucketMask) << BUCKET_SHIFT) & SEGMENT_MASK);
+    }
+}
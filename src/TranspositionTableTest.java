@@ -0,0 +1,116 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1, table.getMegabytes());
+        assertEquals(65536, table.getCapacity());
+        long key = 0x123456789ABCDEFL;
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+        table.store(key, 7, TranspositionTable.Bound.LOWER, -12345, 3);
+        long entry = table.probe(key);
+        assertTrue(entry != TranspositionTable.MISS);
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.Bound.LOWER,
+                TranspositionTable.getBound(entry));
+        assertEquals(-12345, TranspositionTable.getScore(entry));
+        assertEquals(3, TranspositionTable.getMoveIndex(entry));
+        assertEquals(TranspositionTable.MISS, table.probe(key + 1));
+
+        table.store(key, 0, TranspositionTable.Bound.EXACT, 0, -1);
+        entry = table.probe(key);
+        assertEquals(0, TranspositionTable.getDepth(entry));
+        assertEquals(-1, TranspositionTable.getMoveIndex(entry));
+        table.clear();
+        assertEquals(TranspositionTable.MISS, table.probe(key));
+    }
+
+    @Test
+    public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long stride = table.getCapacity() / 4;
+        /* A shallower bound does not replace a deeper one in one search. */
+        table.store(5, 9, TranspositionTable.Bound.LOWER, 1, 0);
+        table.store(5, 3, TranspositionTable.Bound.UPPER, 2, 0);
+        assertEquals(9, TranspositionTable.getDepth(table.probe(5)));
+        table.newSearch();
+        table.store(5, 3, TranspositionTable.Bound.UPPER, 2, 0);
+        assertEquals(3, TranspositionTable.getDepth(table.probe(5)));
+
+        /* A full bucket gives up its shallowest entry. */
+        for (int i = 1; i < 4; i++) {
+            table.store(5 + i * stride, 10 + i,
+                    TranspositionTable.Bound.EXACT, i, 0);
+        }
+        table.store(5 + 4 * stride, 20, TranspositionTable.Bound.EXACT, 4, 0);
+        assertEquals(TranspositionTable.MISS, table.probe(5));
+        for (int i = 1; i < 5; i++) {
+            assertEquals(i, TranspositionTable.getScore(
+                    table.probe(5 + i * stride)));
+        }
+
+        /* Entries from old searches go before deeper current ones. */
+        for (int i = 0; i < 4; i++) {
+            table.newSearch();
+        }
+        table.store(5 + 5 * stride, 1, TranspositionTable.Bound.EXACT, 5, 0);
+        table.store(5 + 6 * stride, 1, TranspositionTable.Bound.EXACT, 6, 0);
+        table.store(5 + 7 * stride, 1, TranspositionTable.Bound.EXACT, 7, 0);
+        for (int i = 5; i < 8; i++) {
+            assertEquals(i, TranspositionTable.getScore(
+                    table.probe(5 + i * stride)));
+        }
+    }
+
+    @Test
+    public void testConcurrentAccessNeverReturnsTornEntries() throws Exception {
+        final TranspositionTable table = new TranspositionTable(1);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long seed = t;
+            threads[t] = new Thread(new Runnable() {
+
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 200000; i++) {
+                        /* Few keys, so threads fight over the same entries. */
+                        long key = mix(random.nextInt(512));
+                        if (random.nextBoolean()) {
+                            table.store(key, (int) (key >>> 59),
+                                    TranspositionTable.Bound.EXACT,
+                                    (int) key, (int) (key >>> 60) & 7);
+                        } else {
+                            long entry = table.probe(key);
+                            if (entry != TranspositionTable.MISS
+                                    && (TranspositionTable.getScore(entry)
+                                            != (int) key
+                                    || TranspositionTable.getDepth(entry)
+                                            != (int) (key >>> 59))) {
+                                failed.set(true);
+                            }
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
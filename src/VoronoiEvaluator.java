@@ -0,0 +1,253 @@
+import java.util.Arrays;
+
+/**
+ * Scores positions by Voronoi territory: the available cells each player
+ * reaches strictly before the other, by breadth-first distance. Cells at
+ * equal distance belong to neither.
+ *
+ * Raw cell counts overstate territory that a single walk cannot collect,
+ * so each side's territory is scored by the chamber analysis of
+ * ChamberAnalyzer restricted to it. A walk that passes an articulation
+ * point cannot come back, so only one branch behind it counts, and on
+ * bipartite grids each chamber counts at most one more cell of the colour
+ * opposite its entry than of its own.
+ *
+ * Candidate moves share one search of the opponent's distances. Each
+ * candidate still gets a search of its own, but that search stops at
+ * cells the opponent reaches strictly first. It therefore costs about as
+ * much as the candidate's own territory, not the whole region, and is
+ * followed by the chamber bounds of both territories. The opponent's
+ * distances treat the candidate cell as still available, so a candidate
+ * that cuts the opponent's shortest paths is scored slightly
+ * pessimistically.
+ */
+public final class VoronoiEvaluator {
+
+    private final Board board;
+    /* The unavailable cells to read instead of the board's, or null. */
+    private final BitBoard blocked;
+    private final Topology topology;
+    private final ChamberAnalyzer chambers;
+
+    /* The opponent's distances, valid where opponentMark[c] ==
+     * opponentStamp, and the cells it reaches in search order. */
+    private final int[] opponentMark;
+    private final int[] opponentDistance;
+    private final int[] opponentCells;
+    private int opponentCount;
+    private int opponentStamp = 0;
+
+    /* The candidate's distances, valid where mark[c] == stamp. */
+    private final int[] mark;
+    private final int[] distance;
+    private final int[] queue;
+    private int stamp = 0;
+
+    /* owner[c] == labelBase + MINE or labelBase + THEIRS. */
+    private static final int MINE = 1;
+    private static final int THEIRS = 2;
+    private final int[] owner;
+    private int labelBase = 0;
+
+    private int lastTerritory;
+    private int lastOpponentTerritory;
+
+    /**
+     * Create an evaluator for a board. The evaluator reads the board's
+     * current availability on every call.
+     *
+     * @requires board is DENSE.
+     * @param board The board to evaluate.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    public VoronoiEvaluator(final Board board) {
+        this(board, null);
+    }
+
+    /**
+     * Create an evaluator that reads availability from a BitBoard of
+     * unavailable cells rather than from the board, so that a search can
+     * evaluate its own positions without changing the board.
+     *
+     * @requires board is DENSE, and blocked is null or has the dimension
+     *           of the board.
+     * @param board The board whose cell graph to evaluate on.
+     * @param blocked The unavailable cells, read on every call, or null to
+     *        read the board's.
+     * @throws InvalidStateException (unchecked) if the board is not DENSE.
+     */
+    VoronoiEvaluator(final Board board, final BitBoard blocked) {
+        if (board.getStorage() != Board.Storage.DENSE) {
+            throw new InvalidStateException(
+                    "Operation requires a DENSE board.");
+        }
+        this.board = board;
+        this.blocked = blocked;
+        this.topology = board.getTopology();
+        this.chambers = new ChamberAnalyzer(board, blocked);
+        final int cells = topology.getCellCount();
+        this.opponentMark = new int[cells];
+        this.opponentDistance = new int[cells];
+        this.opponentCells = new int[cells];
+        this.mark = new int[cells];
+        this.distance = new int[cells];
+        this.queue = new int[cells];
+        this.owner = new int[cells];
+    }
+
+    /**
+     * Score the current position for a player.
+     *
+     * @requires Both cells are unavailable and distinct.
+     * @param playerCell The cell of the player to score for.
+     * @param opponentCell The cell of the other player.
+     * @return The player's corrected territory minus the opponent's.
+     */
+    public int evaluate(final int playerCell, final int opponentCell) {
+        searchOpponent(opponentCell);
+        return score(playerCell, opponentCell);
+    }
+
+    /**
+     * Score several candidate moves of a player, searching the opponent's
+     * distances once for all of them. Each candidate is scored as if the
+     * player stood on it, with the opponent to move.
+     *
+     * @requires Every candidate is an available cell other than
+     *           opponentCell, and scores holds at least count entries.
+     * @param opponentCell The cell of the other player.
+     * @param candidates The cells the player could move to.
+     * @param count The number of candidates.
+     * @param scores Receives the score of each candidate.
+     * @modifies scores
+     * @return The index of the best candidate, the first on ties, or -1 if
+     *         count is 0.
+     */
+    public int evaluateMoves(final int opponentCell, final int[] candidates,
+            final int count, final int[] scores) {
+        if (count == 0) {
+            return -1;
+        }
+        searchOpponent(opponentCell);
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            scores[i] = score(candidates[i], opponentCell);
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The corrected territory of the player in the last score.
+     */
+    public int getTerritory() {
+        return this.lastTerritory;
+    }
+
+    /**
+     * @return The corrected territory of the opponent in the last score.
+     */
+    public int getOpponentTerritory() {
+        return this.lastOpponentTerritory;
+    }
+
+    /**
+     * Search the opponent's distances through available cells.
+     */
+    private void searchOpponent(final int opponentCell) {
+        if (++opponentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(opponentMark, 0);
+            opponentStamp = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        opponentMark[opponentCell] = opponentStamp;
+        opponentDistance[opponentCell] = 0;
+        opponentCells[tail++] = opponentCell;
+        while (head < tail) {
+            final int cell = opponentCells[head++];
+            final int next = opponentDistance[cell] + 1;
+            final int end = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < end; e++) {
+                final int neighbour = topology.getNeighbourAt(e);
+                if (opponentMark[neighbour] != opponentStamp
+                        && isAvailable(neighbour)) {
+                    opponentMark[neighbour] = opponentStamp;
+                    opponentDistance[neighbour] = next;
+                    opponentCells[tail++] = neighbour;
+                }
+            }
+        }
+        opponentCount = tail;
+    }
+
+    /**
+     * Score a player standing on a cell against the searched opponent.
+     */
+    private int score(final int playerCell, final int opponentCell) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        labelBase += 3;
+        if (labelBase > Integer.MAX_VALUE - 3) {
+            Arrays.fill(owner, 0);
+            labelBase = 3;
+        }
+        final int mine = labelBase + MINE;
+        final int theirs = labelBase + THEIRS;
+
+        /* Search from the player through the cells it reaches no later
+         * than the opponent. */
+        int head = 0;
+        int tail = 0;
+        mark[playerCell] = stamp;
+        distance[playerCell] = 0;
+        queue[tail++] = playerCell;
+        while (head < tail) {
+            final int cell = queue[head++];
+            final int next = distance[cell] + 1;
+            final int end = topology.getEdgeEnd(cell);
+            for (int e = topology.getEdgeStart(cell); e < end; e++) {
+                final int neighbour = topology.getNeighbourAt(e);
+                if (mark[neighbour] == stamp || !isAvailable(neighbour)) {
+                    continue;
+                }
+                final boolean contested =
+                        opponentMark[neighbour] == opponentStamp;
+                if (contested && opponentDistance[neighbour] < next) {
+                    continue;
+                }
+                mark[neighbour] = stamp;
+                distance[neighbour] = next;
+                queue[tail++] = neighbour;
+                if (!contested || next < opponentDistance[neighbour]) {
+                    owner[neighbour] = mine;
+                }
+            }
+        }
+
+        /* The opponent owns every cell it reaches that the player's search
+         * did not. */
+        for (int i = 1; i < opponentCount; i++) {
+            final int cell = opponentCells[i];
+            if (mark[cell] != stamp) {
+                owner[cell] = theirs;
+            }
+        }
+
+        lastTerritory = chambers.boundWithin(playerCell, owner, mine);
+        lastOpponentTerritory = chambers.boundWithin(opponentCell, owner,
+                theirs);
+        return lastTerritory - lastOpponentTerritory;
+    }
+
+    private boolean isAvailable(final int cell) {
+        if (blocked != null) {
+            return !blocked.get(cell);
+        }
+        return board.getStateAt(cell) == Board.LocationState.AVAILABLE;
+    }
+}
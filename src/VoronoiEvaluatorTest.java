@@ -0,0 +1,152 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VoronoiEvaluatorTest {
+
+    /**
+     * Breadth-first distances from a cell through available cells, or -1.
+     */
+    private static int[] distances(Board board, int source) {
+        Topology topology = board.getTopology();
+        int cells = topology.getCellCount();
+        int[] distance = new int[cells];
+        java.util.Arrays.fill(distance, -1);
+        int[] queue = new int[cells];
+        int head = 0;
+        int tail = 0;
+        distance[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int e = topology.getEdgeStart(cell); e < topology.getEdgeEnd(cell); e++) {
+                int next = topology.getNeighbourAt(e);
+                if (distance[next] < 0 && board.getStateAt(next)
+                        == Board.LocationState.AVAILABLE) {
+                    distance[next] = distance[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static Board randomBoard(int dimension, double density,
+            long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(Topology.square(dimension));
+        for (int cell = 0; cell < dimension * dimension; cell++) {
+            if (random.nextDouble() < density) {
+                board.setStateAt(cell, Board.LocationState.UNAVAILABLE);
+            }
+        }
+        return board;
+    }
+
+    @Test
+    public void testOpenBoardIsSymmetric() {
+        Board board = new Board(7);
+        board.setStateAt(3, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(3 + 6 * 7, Board.LocationState.UNAVAILABLE);
+        VoronoiEvaluator evaluator = new VoronoiEvaluator(board);
+        assertEquals(0, evaluator.evaluate(3, 3 + 6 * 7));
+        /* Rows 0 to 2 less the player cell, 20 cells with row 3 shared;
+         * only 9 of them share the colour of the player's cell, so a walk
+         * enters at most 10 of the other colour. */
+        assertEquals(19, evaluator.getTerritory());
+        assertEquals(19, evaluator.getOpponentTerritory());
+    }
+
+    @Test
+    public void testTerritoryIsBoundedByVoronoiCount() {
+        for (int seed = 0; seed < 20; seed++) {
+            Board board = randomBoard(15, 0.25, seed);
+            int first = 0;
+            int second = 15 * 15 - 1;
+            board.setStateAt(first, Board.LocationState.UNAVAILABLE);
+            board.setStateAt(second, Board.LocationState.UNAVAILABLE);
+            int[] a = distances(board, first);
+            int[] b = distances(board, second);
+            int mine = 0;
+            int theirs = 0;
+            for (int cell = 0; cell < 15 * 15; cell++) {
+                if (board.getStateAt(cell) == Board.LocationState.UNAVAILABLE) {
+                    continue;
+                }
+                int da = a[cell] < 0 ? Integer.MAX_VALUE : a[cell];
+                int db = b[cell] < 0 ? Integer.MAX_VALUE : b[cell];
+                if (da < db) {
+                    mine++;
+                } else if (db < da) {
+                    theirs++;
+                }
+            }
+            VoronoiEvaluator evaluator = new VoronoiEvaluator(board);
+            int score = evaluator.evaluate(first, second);
+            assertEquals(evaluator.getTerritory()
+                    - evaluator.getOpponentTerritory(), score);
+            assertTrue(evaluator.getTerritory() <= mine);
+            assertTrue(evaluator.getOpponentTerritory() <= theirs);
+            assertTrue(mine == 0 || evaluator.getTerritory() > 0);
+        }
+    }
+
+    @Test
+    public void testBatchMatchesSingleMoves() {
+        for (int seed = 0; seed < 10; seed++) {
+            Board board = randomBoard(12, 0.2, seed + 100);
+            int player = 5 + 5 * 12;
+            int opponent = 11 + 11 * 12;
+            board.setStateAt(player, Board.LocationState.AVAILABLE);
+            board.setStateAt(opponent, Board.LocationState.UNAVAILABLE);
+            Topology topology = board.getTopology();
+            int[] candidates = new int[4];
+            int count = 0;
+            for (int e = topology.getEdgeStart(player); e < topology.getEdgeEnd(player); e++) {
+                int next = topology.getNeighbourAt(e);
+                if (board.getStateAt(next) == Board.LocationState.AVAILABLE) {
+                    candidates[count++] = next;
+                }
+            }
+            board.setStateAt(player, Board.LocationState.UNAVAILABLE);
+            VoronoiEvaluator evaluator = new VoronoiEvaluator(board);
+            int[] scores = new int[count];
+            int best = evaluator.evaluateMoves(opponent, candidates, count,
+                    scores);
+            for (int i = 0; i < count; i++) {
+                board.setStateAt(candidates[i],
+                        Board.LocationState.UNAVAILABLE);
+                VoronoiEvaluator single = new VoronoiEvaluator(board);
+                int expected = single.evaluate(candidates[i], opponent);
+                board.setStateAt(candidates[i], Board.LocationState.AVAILABLE);
+                /* The batch leaves the candidate open to the opponent, so it
+                 * can only be pessimistic. */
+                assertTrue(scores[i] <= expected);
+                assertTrue(scores[best] >= scores[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testPrefersTheLargerSide() {
+        /* A wall down column 3 leaves the players on its right, with the
+         * opponent at the east edge. The player should head towards the
+         * opponent rather than along the wall. */
+        Board board = new Board(9);
+        for (int y = 1; y < 9; y++) {
+            board.setStateAt(3 + y * 9, Board.LocationState.UNAVAILABLE);
+        }
+        int player = 4 + 4 * 9;
+        int opponent = 7 + 4 * 9;
+        board.setStateAt(player, Board.LocationState.UNAVAILABLE);
+        board.setStateAt(opponent, Board.LocationState.UNAVAILABLE);
+        int[] candidates = { 4 + 5 * 9, 4 + 3 * 9, 5 + 4 * 9 };
+        int[] scores = new int[3];
+        VoronoiEvaluator evaluator = new VoronoiEvaluator(board);
+        int best = evaluator.evaluateMoves(opponent, candidates, 3, scores);
+        /* Moving towards the opponent claims the most of the right side. */
+        assertEquals(2, best);
+    }
+}
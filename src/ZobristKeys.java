@@ -0,0 +1,171 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of positions on a board of one
+ * dimension. A position key is the XOR of the keys of every unavailable
+ * cell, of each player's cell, and of the side-to-move key when it is the
+ * second player's turn, so it can be updated with one XOR per change.
+ *
+ * Keys are generated from a fixed seed derived from the dimension, so they
+ * are identical across JVM runs and can be stored in files. Boards of up to
+ * TABLE_LIMIT cells use precomputed tables shared by every Board of that
+ * dimension, for the SHARED_LIMIT dimensions used most recently; larger
+ * boards derive each key on demand from the same generator.
+ *
+ * @invariant Keys for a given dimension never change.
+ */
+public class ZobristKeys {
+
+    /** Largest board, in cells, whose keys are held in tables. */
+    public static final int TABLE_LIMIT = 1 << 20;
+
+    private static final int UNAVAILABLE = 0;
+    private static final int PLAYER_1    = 1;
+    private static final int PLAYER_2    = 2;
+    private static final int KINDS       = 3;
+
+    private static final long SEED  = 0x43504E3232314C31L;
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    /** Most dimensions whose keys are kept for sharing at once. */
+    public static final int SHARED_LIMIT = 16;
+
+    /* Least recently used dimensions are dropped first; guarded by
+     * KEYS_BY_DIMENSION. */
+    private static final Map<Integer, ZobristKeys> KEYS_BY_DIMENSION =
+            new LinkedHashMap<Integer, ZobristKeys>(SHARED_LIMIT, 0.75f,
+                    true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<Integer, ZobristKeys> eldest) {
+                    return size() > SHARED_LIMIT;
+                }
+            };
+
+    private final int    dimension;
+    private final long   seed;
+    private final long   sideToMoveKey;
+    private final long[] table;
+
+    /**
+     * Get the shared keys for boards of a dimension.
+     *
+     * @requires dimension is greater than 0.
+     * @param dimension The dimension of the board along one edge.
+     * @return The keys for that dimension.
+     */
+    public static ZobristKeys forDimension(final int dimension) {
+        synchronized (KEYS_BY_DIMENSION) {
+            ZobristKeys keys = KEYS_BY_DIMENSION.get(dimension);
+            if (keys == null) {
+                keys = new ZobristKeys(dimension);
+                KEYS_BY_DIMENSION.put(dimension, keys);
+            }
+            return keys;
+        }
+    }
+
+    private ZobristKeys(final int dimension) {
+        this.dimension = dimension;
+        this.seed = mix(SEED + dimension * GAMMA);
+        this.sideToMoveKey = mix(seed - 1);
+
+        long cellCount = (long) dimension * dimension;
+        if (cellCount <= TABLE_LIMIT) {
+            this.table = new long[(int) cellCount * KINDS];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = mix(seed + (i + 1) * GAMMA);
+            }
+        } else {
+            this.table = null;
+        }
+    }
+
+    /**
+     * Get the dimension these keys belong to.
+     *
+     * @return Dimension of the board.
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Get the key for a cell being unavailable.
+     *
+     * @requires x and y both in [0, dimension - 1].
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @return The key of the unavailable cell.
+     */
+    public long getUnavailableKey(final int x, final int y) {
+        return getKey(UNAVAILABLE, x + (long) y * dimension);
+    }
+
+    /**
+     * Get the key for a cell being unavailable.
+     *
+     * @requires cell in [0, dimension*dimension - 1].
+     * @param cell The index x + y*dimension of the cell.
+     * @return The key of the unavailable cell.
+     */
+    public long getUnavailableKey(final int cell) {
+        return getKey(UNAVAILABLE, cell);
+    }
+
+    /**
+     * Get the key for a player standing on a cell.
+     *
+     * @requires player is 0 or 1, x and y both in [0, dimension - 1].
+     * @param player The index of the player in turn order.
+     * @param x The first coordinate of the cell.
+     * @param y The second coordinate of the cell.
+     * @return The key of the player's cell.
+     */
+    public long getPlayerKey(final int player, final int x, final int y) {
+        return getKey(player == 0 ? PLAYER_1 : PLAYER_2, x + (long) y * dimension);
+    }
+
+    /**
+     * Get the key for a player standing on a cell.
+     *
+     * @requires player is 0 or 1, cell in [0, dimension*dimension - 1].
+     * @param player The index of the player in turn order.
+     * @param cell The index x + y*dimension of the cell.
+     * @return The key of the player's cell.
+     */
+    public long getPlayerKey(final int player, final int cell) {
+        return getKey(player == 0 ? PLAYER_1 : PLAYER_2, cell);
+    }
+
+    /**
+     * Get the key XORed in while it is the second player's turn.
+     *
+     * @return The side-to-move key.
+     */
+    public long getSideToMoveKey() {
+        return this.sideToMoveKey;
+    }
+
+    private long getKey(final int kind, final long cell) {
+        long index = cell * KINDS + kind;
+        if (table != null) {
+            return table[(int) index];
+        }
+        return mix(seed + (index + 1) * GAMMA);
+    }
+
+    /**
+     * The SplitMix64 finaliser: a fast bijective mix with good avalanche.
+     * Inputs are spaced by GAMMA, as in SplitMix64 itself.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}